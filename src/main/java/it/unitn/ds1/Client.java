@@ -24,7 +24,7 @@ public final class Client {
 		"   port       TCP port of the Node to contact\n" +
 		"\n" +
 		"Commands:\n" +
-		"   read   [key]           Read the value with the given key\n" +
+		"   read   [key] [version] Read the value with the given key (only if newer than the optional version)\n" +
 		"   write  [key] [value]   Update the value of the entry with the given key\n" +
 		"   leave                  Instruct the Node to leave the system\n";
 
@@ -70,6 +70,23 @@ public final class Client {
 		}
 	}
 
+	/**
+	 * Try to parse some string to a version.
+	 * On failure, output an error and exit.
+	 *
+	 * @param raw String to parse.
+	 * @return The parsed version.
+	 */
+	private static long parseVersionOrExit(String raw) {
+		try {
+			return Long.valueOf(raw);
+		} catch (NumberFormatException e) {
+			System.err.println("Version must be a Long.");
+			printHelpAndExit();
+			throw new RuntimeException("Should not be here...");
+		}
+	}
+
 	/**
 	 * Entry point.
 	 *
@@ -112,15 +129,16 @@ public final class Client {
 			case "read": {
 
 				// validate number of arguments
-				if (args.length != 4) {
+				if (args.length != 4 && args.length != 5) {
 					printHelpAndExit();
 				}
 
-				// extract the key
+				// extract the key and the version already known, if any
 				final int key = parseIntOrExit(args[3]);
+				final long knownVersion = args.length == 5 ? parseVersionOrExit(args[4]) : 0;
 
 				// ask the value for the key
-				final int exitCode = new CommandExecutor(ip, port).execute(new ReadCommand(key));
+				final int exitCode = new CommandExecutor(ip, port).execute(new ReadCommand(key, knownVersion));
 				System.exit(exitCode);
 				break;
 			}
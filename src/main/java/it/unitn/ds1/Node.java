@@ -22,6 +22,17 @@ public final class Node {
 	 */
 	private static final String CONFIG_STORAGE_PATH = "node.storage-path";
 
+	/**
+	 * Key used in the configuration file to indicate the weight of the node,
+	 * i.e. how big is the share of the keys the node is responsible for.
+	 */
+	private static final String CONFIG_NODE_WEIGHT = "node.weight";
+
+	/**
+	 * Key used in the configuration file to indicate the zone (eg. rack) of the node.
+	 */
+	private static final String CONFIG_NODE_ZONE = "node.zone";
+
 	/**
 	 * Error message to print when the Node is invoked with the wrong parameters.
 	 */
@@ -34,6 +45,7 @@ public final class Node {
 		"   bootstrap  Instruct the Node to bootstrap a new system (does NOT require ip and port)\n" +
 		"   join       Instruct the Node to join the system (for the first time)\n" +
 		"   recover    Instruct the Node to do recovery and join again the system after a crash\n" +
+		"              (ip and port are needed only if the Node did not store a snapshot of the system)\n" +
 		"\n" +
 		"Arguments:\n" +
 		"   ip         The IP of a remote Node already in the system\n" +
@@ -119,10 +131,16 @@ public final class Node {
 			case "recover": {
 
 				// validate number of arguments
-				if (args.length != 3) {
+				if (args.length != 1 && args.length != 3) {
 					printHelpAndExit();
 				}
 
+				// without ip and port, the node uses the snapshot of the system it stored
+				if (args.length == 1) {
+					recover(null, null);
+					break;
+				}
+
 				// extract ip and port of the node to contact to join the system
 				final String ip = args[1];
 				final String port = args[2];
@@ -156,6 +174,8 @@ public final class Node {
 
 		// create a NodeActor of type "bootstrap" and add it to the system
 		final String storagePath = config.getString(CONFIG_STORAGE_PATH);
+		final int weight = config.getInt(CONFIG_NODE_WEIGHT);
+		final String zone = config.getString(CONFIG_NODE_ZONE);
        // We’ll treat this node’s “raw address” as stored in config or default to localhost:0
        final String rawAddress = config.hasPath("node.address")
            ? config.getString("node.address")
@@ -165,6 +185,8 @@ public final class Node {
            hashedId,            // hashed node ID
            rawAddress,          // the string “ip:port”
            storagePath,
+           weight,
+           zone,
            SystemConstants.READ_QUORUM,
            SystemConstants.WRITE_QUORUM,
            SystemConstants.REPLICATION,
@@ -185,6 +207,8 @@ public final class Node {
 	String selfHost = config.getString("akka.remote.netty.tcp.hostname");
 	int    selfPort = config.getInt("akka.remote.netty.tcp.port");
 	String storagePath = config.getString(CONFIG_STORAGE_PATH);
+	int    weight      = config.getInt(CONFIG_NODE_WEIGHT);
+	String zone        = config.getString(CONFIG_NODE_ZONE);
 
 	String rawAddress = selfHost + ":" + selfPort;
 	int    hashedId   = HashUtil.hash(rawAddress);
@@ -206,6 +230,8 @@ public final class Node {
         hashedId,
         rawAddress,
         storagePath,
+        weight,
+        zone,
         remote,
         SystemConstants.READ_QUORUM,
         SystemConstants.WRITE_QUORUM,
@@ -221,6 +247,8 @@ private static void recover(String ip, String port) {
 	String selfHost = config.getString("akka.remote.netty.tcp.hostname");
 	int    selfPort = config.getInt("akka.remote.netty.tcp.port");
 	String storagePath = config.getString(CONFIG_STORAGE_PATH);
+	int    weight      = config.getInt(CONFIG_NODE_WEIGHT);
+	String zone        = config.getString(CONFIG_NODE_ZONE);
 
 	String rawAddress = selfHost + ":" + selfPort;
 	int    hashedId   = HashUtil.hash(rawAddress);
@@ -228,8 +256,8 @@ private static void recover(String ip, String port) {
     // initialize Akka
     final ActorSystem system = ActorSystem.create(SystemConstants.SYSTEM_NAME, config);
 
-    // build the Akka remote path of an existing node
-    String remote = String.format(
+    // build the Akka remote path of an existing node, if any
+    String remote = ip == null ? null : String.format(
 		"akka.tcp://%s@%s:%s/user/%s",
 		SystemConstants.SYSTEM_NAME,  // dsproject
 		ip,                           // bootstrap IP (method arg)
@@ -237,10 +265,12 @@ private static void recover(String ip, String port) {
 		SystemConstants.ACTOR_NAME    // node
 	);
 
-	system.actorOf(NodeActor.join(
+	system.actorOf(NodeActor.recover(
 		hashedId,      // now unique per node
 		rawAddress,    // e.g. "127.0.0.1:20020"
 		storagePath,
+		weight,
+		zone,
 		remote,
 		SystemConstants.READ_QUORUM,
 		SystemConstants.WRITE_QUORUM,
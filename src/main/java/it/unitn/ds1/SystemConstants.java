@@ -26,10 +26,132 @@ public final class SystemConstants {
 
 	/**
 	 * Timeout that internal nodes wait before replying to
-	 * the client that an operation failed.
+	 * the client that an operation failed. Used for the requests of the clients until
+	 * the coordinator knows enough completion times to compute an adaptive timeout.
+	 * It is also the time a replica has to answer before the coordinator suspects it is unreachable,
+	 * independently of the adaptive timeout, so that a replica that is only slow is not suspected.
 	 */
 	public static final int QUORUM_TIMEOUT_SECONDS = 3;
 
+	/**
+	 * Percentile of the recent times to reach a quorum, for the same type of operation (read or write),
+	 * used to compute the adaptive timeout of the requests of the clients.
+	 */
+	public static final double QUORUM_TIMEOUT_PERCENTILE = 0.999;
+
+	/**
+	 * Factor applied to QUORUM_TIMEOUT_PERCENTILE to compute the adaptive timeout.
+	 * It leaves room for the requests that are slower because of a load spike.
+	 */
+	public static final double QUORUM_TIMEOUT_FACTOR = 4;
+
+	/**
+	 * Minimum adaptive timeout for the requests of the clients, in milliseconds.
+	 */
+	public static final int QUORUM_TIMEOUT_MIN_MILLISECONDS = 50;
+
+	/**
+	 * Maximum adaptive timeout for the requests of the clients, in milliseconds.
+	 * It must be lower than CLIENT_TIMEOUT_SECONDS, so that the client receives the error.
+	 */
+	public static final int QUORUM_TIMEOUT_MAX_MILLISECONDS = 5000;
+
+	/**
+	 * Fraction of the reads (between 0 and 1) for which the coordinator repairs stale replicas.
+	 * After replying to the client, the coordinator keeps collecting the late responses until the
+	 * adaptive timeout of the read expires, and sends the most recent value to every replica that returned
+	 * an older version or no value at all. The replicas that answer later are not repaired: only their
+	 * suspicion waits for QUORUM_TIMEOUT_SECONDS. Use 1 to repair on every read, 0 to disable read repair.
+	 */
+	public static final double READ_REPAIR_CHANCE = 0.1;
+
+	/**
+	 * Maximum number of repair writes that a coordinator sends each second,
+	 * so that read repair cannot overload the replicas.
+	 */
+	public static final int READ_REPAIR_MAX_PER_SECOND = 100;
+
+	/**
+	 * Number of hinted writes delivered in each batch to a node that is reachable again.
+	 * Writes for unreachable replicas are stored as hints on other nodes (sloppy quorum)
+	 * and delivered one batch at a time, each one after the previous is acknowledged.
+	 */
+	public static final int HINT_REPLAY_BATCH_SIZE = 500;
+
+	/**
+	 * Interval between two rounds of anti-entropy. At each round, a node compares the Merkle tree
+	 * of each range it replicates with the one of a random co-replica, and they exchange
+	 * only the records in the parts of the trees that differ.
+	 */
+	public static final int ANTI_ENTROPY_INTERVAL_SECONDS = 30;
+
+	/**
+	 * Maximum expected difference between the clocks of two nodes, in milliseconds.
+	 * A recovering node asks the other replicas for the records they changed since the last
+	 * change of its own storage, minus this margin, since the two times come from different clocks.
+	 */
+	public static final int RECOVERY_CLOCK_SKEW_MILLISECONDS = 2000;
+
+	/**
+	 * Maximum size of each chunk of records streamed between nodes (eg. to a joining node), in bytes.
+	 * The size of the records is the one of their encoding, with the values in UTF-8.
+	 */
+	public static final int STREAM_CHUNK_BYTES = 256 * 1024;
+
+	/**
+	 * Number of chunks of a stream that the sender can send before receiving an acknowledgement.
+	 * The receiver acknowledges each chunk after persisting it, so at most this number of chunks
+	 * is in flight (or waiting to be persisted) at any time.
+	 */
+	public static final int STREAM_WINDOW_CHUNKS = 4;
+
+	/**
+	 * Maximum transfer rate of each stream, in megabytes per second,
+	 * so that moving data to a joining node does not slow down the client requests of the sender.
+	 * A joining node receives its ranges from all their replicas in parallel,
+	 * so its total transfer rate grows with the replication factor.
+	 */
+	public static final int STREAM_RATE_MB_PER_SECOND = 32;
+
+	/**
+	 * Time after which a node that receives no chunk of a stream considers the sender stalled
+	 * and asks the other replicas for the rest of the stream, starting after the last chunk it received.
+	 */
+	public static final int STREAM_STALL_TIMEOUT_SECONDS = 5;
+
+	/**
+	 * Interval between two gossip rounds, in milliseconds. At each round, a node increments
+	 * its heartbeat and sends the heartbeats it knows to GOSSIP_FANOUT random nodes.
+	 */
+	public static final int GOSSIP_INTERVAL_MILLISECONDS = 1000;
+
+	/**
+	 * Number of random nodes contacted at each gossip round.
+	 */
+	public static final int GOSSIP_FANOUT = 2;
+
+	/**
+	 * Suspicion level above which the phi accrual failure detector marks a node as down.
+	 * Phi = 8 means that the probability of a heartbeat arriving so late from a node that is up
+	 * is 10^-8: a higher value detects failures later, but with less false positives.
+	 * Coordinators do not contact the nodes that are down and send their writes to other nodes.
+	 */
+	public static final double PHI_THRESHOLD = 8.0;
+
+	/**
+	 * Minimum standard deviation of the intervals between the heartbeats, in milliseconds,
+	 * used by the failure detector. Heartbeats spread by gossip do not arrive at regular intervals,
+	 * this prevents a node from being marked as down after a single late heartbeat.
+	 */
+	public static final int PHI_MIN_STD_DEVIATION_MILLISECONDS = 500;
+
+	/**
+	 * Time a node waits, after receiving the first join request, for other nodes that want to join,
+	 * in milliseconds. All the nodes that ask to join in this window are admitted together:
+	 * they stream their ranges in parallel and the other nodes repartition their records only once.
+	 */
+	public static final int SCALE_OUT_ADMISSION_MILLISECONDS = 200;
+
 
 	/**
 	 * Replication factor. Each key will be replicated on N nodes.
@@ -47,4 +169,89 @@ public final class SystemConstants {
 	 * contact at lead this number of nodes.
 	 */
 	static final int WRITE_QUORUM = 2;
+
+	/**
+	 * Write mode. When false, the coordinator of an update first reads the current version
+	 * of the key from a quorum of replicas and then writes the value with the next version (two round trips).
+	 * When true, the coordinator stamps the value with a hybrid logical clock timestamp
+	 * and sends the write immediately (one round trip): replicas keep the value with the highest version,
+	 * i.e. the last writer wins.
+	 */
+	public static final boolean HLC_WRITES = false;
+
+	/**
+	 * Read strategy. When false, the coordinator of a read sends the request to all the reachable replicas
+	 * and waits for the first R answers. When true, it contacts only R replicas (itself first, if it is one)
+	 * and sends a speculative request to one more replica when an answer is late, i.e. it did not arrive within
+	 * the HEDGE_PERCENTILE of the response times observed for the contacted replicas.
+	 * This reduces the load of the reads on the replicas, without waiting for a slow replica.
+	 * The price is that the replicas not contacted are not compared with the others, so read repair
+	 * does not fix them: they stay stale until anti-entropy or a later read reaches them.
+	 */
+	public static final boolean HEDGED_READS = false;
+
+	/**
+	 * Percentile of the response times of a replica after which its answer is considered late.
+	 */
+	public static final double HEDGE_PERCENTILE = 0.95;
+
+	/**
+	 * Delay before a speculative request, in milliseconds, when too few response times
+	 * of the contacted replicas are known to compute the percentile.
+	 */
+	public static final int HEDGE_DEFAULT_DELAY_MILLISECONDS = 50;
+
+	/**
+	 * Read strategy. When true, only one of the contacted replicas (the coordinator itself, if it is one,
+	 * otherwise the one with the best score) returns the value of the key, the others return only its version.
+	 * If a version is more recent than the value received, the coordinator fetches the value from the replica
+	 * that has it. The first phase of the updates needs only the versions, so no replica returns the value.
+	 * Consistency is not affected, since the versions of all the contacted replicas are still compared
+	 * (and repaired); a read whose value comes from a stale replica pays one more round trip.
+	 */
+	public static final boolean DIGEST_READS = true;
+
+	/**
+	 * When true, a client read of a key that arrives while the coordinator is already reading the same key
+	 * (for a client that knows the same version) does not start a new quorum read: it waits for the one
+	 * in flight and receives the same result. A read that arrives after an update of the key completed
+	 * on the coordinator always starts a new quorum read.
+	 * The price is read-your-writes across coordinators: a read may join one that started before an update
+	 * of the same client completed through another coordinator, and return the previous value.
+	 */
+	public static final boolean COALESCE_READS = false;
+
+	/**
+	 * Weight of the last response time in the moving average kept by the coordinator for each replica.
+	 * The replicas with the best score (average response time multiplied by the outstanding requests)
+	 * receive the requests of the reads. Higher values react faster to a replica that slows down.
+	 */
+	public static final double REPLICA_SCORE_ALPHA = 0.3;
+
+	/**
+	 * Time after which the average response time of a replica that did not answer halves, in milliseconds.
+	 * A replica that was slow, and so is not contacted anymore, is tried again after some time.
+	 */
+	public static final int REPLICA_SCORE_HALF_LIFE_MILLISECONDS = 2000;
+
+	/**
+	 * Penalty added to the score of the replicas in a zone different from the one of the coordinator,
+	 * in milliseconds. Reads prefer the replicas in the same zone, unless they answer slower than
+	 * the remote ones by more than this amount.
+	 */
+	public static final int REPLICA_SCORE_CROSS_ZONE_PENALTY_MILLISECONDS = 10;
+
+	/**
+	 * Default weight of a node, i.e. the number of tokens it owns on the ring.
+	 * Nodes with a higher weight are responsible for a proportionally bigger share of the keys.
+	 * The weight of each node can be changed with the "node.weight" configuration key.
+	 */
+	public static final int DEFAULT_NODE_WEIGHT = 1;
+
+	/**
+	 * Default zone of a node (eg. rack or data center). The replicas of each key
+	 * are spread across distinct zones and reads prefer the replicas in the same zone
+	 * of the coordinator. The zone of each node can be changed with the "node.zone" configuration key.
+	 */
+	public static final String DEFAULT_NODE_ZONE = "default";
 }
@@ -28,7 +28,7 @@ public final class LeaveCommand implements Command {
 		final Timeout timeout = new Timeout(CLIENT_TIMEOUT_SECONDS, TimeUnit.SECONDS);
 		final Future<Object> future = Patterns.ask(actor, new ClientLeaveRequest(), timeout);
 
-		// wait for an acknowledgement
+		// wait for an acknowledgement... the node answers only once its ranges are handed off
 		final Object message = Await.result(future, timeout.duration());
 		assert message instanceof ClientLeaveResponse;
 
@@ -22,6 +22,7 @@ public final class ReadCommand implements Command {
 
 	// internal variables
 	private final int key;
+	private final long knownVersion;
 
 	/**
 	 * Create a new command to read the value of a given key.
@@ -29,7 +30,19 @@ public final class ReadCommand implements Command {
 	 * @param key Key to read.
 	 */
 	public ReadCommand(int key) {
+		this(key, 0);
+	}
+
+	/**
+	 * Create a new command to read the value of a given key, if it changed.
+	 * If the most recent version of the key is the known one, the value is not transferred.
+	 *
+	 * @param key          Key to read.
+	 * @param knownVersion Version of the key already known, or 0 if none.
+	 */
+	public ReadCommand(int key, long knownVersion) {
 		this.key = key;
+		this.knownVersion = knownVersion;
 	}
 
 	@Override
@@ -39,7 +52,7 @@ public final class ReadCommand implements Command {
 
 		// send the command to the actor
 		final Timeout timeout = new Timeout(CLIENT_TIMEOUT_SECONDS, TimeUnit.SECONDS);
-		final Future<Object> future = Patterns.ask(actor, new ClientReadRequest(key), timeout);
+		final Future<Object> future = Patterns.ask(actor, new ClientReadRequest(key, knownVersion), timeout);
 
 		// wait for an acknowledgement
 		final Object message = Await.result(future, timeout.duration());
@@ -62,9 +75,12 @@ public final class ReadCommand implements Command {
 
 			// log the result
 			final ClientReadResponse result = (ClientReadResponse) message;
-			if (result.keyFound()) {
-				logger.info("[CLIENT] Actor [{}] replies: value for key [{}] is \"{}\"",
-					result.getSenderID(), result.getKey(), result.getValue());
+			if (result.isNotModified()) {
+				logger.info("[CLIENT] Actor [{}] replies: key [{}] NOT MODIFIED since version {}",
+					result.getSenderID(), result.getKey(), result.getVersion());
+			} else if (result.keyFound()) {
+				logger.info("[CLIENT] Actor [{}] replies: value for key [{}] is \"{}\" (version {})",
+					result.getSenderID(), result.getKey(), result.getValue(), result.getVersion());
 			} else {
 				logger.warning("[CLIENT] Actor [{}] replies: key [{}] was NOT FOUND",
 					result.getSenderID(), result.getKey());
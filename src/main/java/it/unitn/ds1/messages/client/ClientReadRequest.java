@@ -4,14 +4,22 @@ import java.io.Serializable;
 
 /**
  * Message to request the read of some key. This message used by the client.
+ * A client that already knows a version of the key can send it: if the most recent
+ * version is the same, the reply does not contain the value (see @{@link ClientReadResponse#isNotModified()}).
  */
 public final class ClientReadRequest implements Serializable {
 
 	// message fields
 	private final int key;
+	private final long knownVersion;
 
 	public ClientReadRequest(int key) {
+		this(key, 0);
+	}
+
+	public ClientReadRequest(int key, long knownVersion) {
 		this.key = key;
+		this.knownVersion = knownVersion;
 	}
 
 	/**
@@ -20,4 +28,11 @@ public final class ClientReadRequest implements Serializable {
 	public int getKey() {
 		return key;
 	}
+
+	/**
+	 * @return The version of the key already known by the client, or 0 if none.
+	 */
+	public long getKnownVersion() {
+		return knownVersion;
+	}
 }
@@ -11,11 +11,19 @@ public final class ClientReadResponse extends BaseMessage {
 	// message fields
 	private final int key;
 	private final String value;
+	private final long version;
+	private final boolean notModified;
 
 	public ClientReadResponse(int senderID, int key, @Nullable String value) {
+		this(senderID, key, value, 0, false);
+	}
+
+	public ClientReadResponse(int senderID, int key, @Nullable String value, long version, boolean notModified) {
 		super(senderID);
 		this.key = key;
 		this.value = value;
+		this.version = version;
+		this.notModified = notModified;
 	}
 
 	/**
@@ -29,15 +37,31 @@ public final class ClientReadResponse extends BaseMessage {
 	 * @return True if the key was found, false otherwise.
 	 */
 	public boolean keyFound() {
-		return value != null;
+		return value != null || notModified;
 	}
 
 	/**
-	 * @return Return the value of the key. This can be null if the key is not found.
+	 * @return Return the value of the key. This can be null if the key is not found
+	 * or if the value was not modified.
 	 */
 	@Nullable
 	public String getValue() {
 		return value;
 	}
 
+	/**
+	 * @return The version of the value, or 0 if the key is not found.
+	 */
+	public long getVersion() {
+		return version;
+	}
+
+	/**
+	 * @return True if the most recent version is the one already known by the client.
+	 * In this case, the value is not sent.
+	 */
+	public boolean isNotModified() {
+		return notModified;
+	}
+
 }
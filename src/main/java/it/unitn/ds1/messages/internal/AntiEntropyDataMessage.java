@@ -0,0 +1,60 @@
+package it.unitn.ds1.messages.internal;
+
+import it.unitn.ds1.messages.BaseMessage;
+import it.unitn.ds1.node.TokenRange;
+import it.unitn.ds1.storage.VersionedItem;
+import org.jetbrains.annotations.NotNull;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Message used by the anti-entropy protocol to send the records
+ * of the leaves of the Merkle tree that differ between two replicas.
+ * The receiver keeps the most recent records and, if requested,
+ * replies with its own records for the same leaves.
+ */
+public final class AntiEntropyDataMessage extends BaseMessage {
+
+	private final TokenRange range;
+	private final List<Integer> leaves;
+	private final Map<Integer, VersionedItem> records;
+	private final boolean replyExpected;
+
+	public AntiEntropyDataMessage(int senderID, @NotNull TokenRange range, @NotNull List<Integer> leaves,
+								  @NotNull Map<Integer, VersionedItem> records, boolean replyExpected) {
+		super(senderID);
+		this.range = range;
+		this.leaves = leaves;
+		this.records = records;
+		this.replyExpected = replyExpected;
+	}
+
+	/**
+	 * @return The range covered by the tree.
+	 */
+	public TokenRange getRange() {
+		return range;
+	}
+
+	/**
+	 * @return Indexes of the leaves that differ.
+	 */
+	public List<Integer> getLeaves() {
+		return leaves;
+	}
+
+	/**
+	 * @return Records of the sender in the leaves that differ.
+	 */
+	public Map<Integer, VersionedItem> getRecords() {
+		return records;
+	}
+
+	/**
+	 * @return True if the receiver should reply with its records for the same leaves.
+	 */
+	public boolean isReplyExpected() {
+		return replyExpected;
+	}
+}
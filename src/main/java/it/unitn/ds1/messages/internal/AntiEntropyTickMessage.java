@@ -0,0 +1,14 @@
+package it.unitn.ds1.messages.internal;
+
+import it.unitn.ds1.messages.BaseMessage;
+
+/**
+ * Message sent periodically by a node to itself to start
+ * a round of anti-entropy with the other replicas of its ranges.
+ */
+public final class AntiEntropyTickMessage extends BaseMessage {
+
+	public AntiEntropyTickMessage(int senderID) {
+		super(senderID);
+	}
+}
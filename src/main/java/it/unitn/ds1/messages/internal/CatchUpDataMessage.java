@@ -0,0 +1,36 @@
+package it.unitn.ds1.messages.internal;
+
+import it.unitn.ds1.messages.BaseMessage;
+import it.unitn.ds1.storage.VersionedItem;
+import org.jetbrains.annotations.NotNull;
+
+import java.util.Map;
+
+/**
+ * Message used to reply to a @{@link CatchUpRequestMessage}
+ * with the records that changed since the requested time.
+ * The records are split in batches of bounded size, sent in order;
+ * the last batch of a reply is marked, so the receiver knows when the reply is complete.
+ */
+public final class CatchUpDataMessage extends BaseMessage {
+
+	private final Map<Integer, VersionedItem> records;
+	private final boolean last;
+
+	public CatchUpDataMessage(int senderID, @NotNull Map<Integer, VersionedItem> records, boolean last) {
+		super(senderID);
+		this.records = records;
+		this.last = last;
+	}
+
+	public Map<Integer, VersionedItem> getRecords() {
+		return records;
+	}
+
+	/**
+	 * @return True if this is the last batch of the reply.
+	 */
+	public boolean isLast() {
+		return last;
+	}
+}
@@ -0,0 +1,30 @@
+package it.unitn.ds1.messages.internal;
+
+import it.unitn.ds1.messages.BaseMessage;
+import it.unitn.ds1.node.TokenRange;
+import org.jetbrains.annotations.NotNull;
+
+import java.util.Map;
+
+/**
+ * Message sent by a recovering node to the other replicas of its ranges,
+ * to get the records that changed while it was down.
+ * For each range, the message contains the time since which the records are needed.
+ * The receiver replies with a @{@link CatchUpDataMessage}.
+ */
+public final class CatchUpRequestMessage extends BaseMessage {
+
+	private final Map<TokenRange, Long> watermarks;
+
+	public CatchUpRequestMessage(int senderID, @NotNull Map<TokenRange, Long> watermarks) {
+		super(senderID);
+		this.watermarks = watermarks;
+	}
+
+	/**
+	 * @return For each range, the time (in milliseconds) since which the changes are needed.
+	 */
+	public Map<TokenRange, Long> getWatermarks() {
+		return watermarks;
+	}
+}
@@ -0,0 +1,14 @@
+package it.unitn.ds1.messages.internal;
+
+import it.unitn.ds1.messages.BaseMessage;
+
+/**
+ * Message sent by a recovering node to itself to stop waiting
+ * for the replies to its @{@link CatchUpRequestMessage}s.
+ */
+public final class CatchUpTimeoutMessage extends BaseMessage {
+
+	public CatchUpTimeoutMessage(int senderID) {
+		super(senderID);
+	}
+}
@@ -0,0 +1,50 @@
+package it.unitn.ds1.messages.internal;
+
+import it.unitn.ds1.messages.BaseMessage;
+import it.unitn.ds1.node.Heartbeat;
+import org.jetbrains.annotations.NotNull;
+
+import java.util.Map;
+
+/**
+ * Message sent periodically by each node to a few random nodes,
+ * with the most recent heartbeat it knows for every node of the ring (including itself).
+ * The receiver keeps the newest heartbeats and forwards them in its next rounds,
+ * so that every heartbeat reaches all the nodes in a logarithmic number of rounds.
+ * The message also contains the epoch and the checksum of the membership of the sender:
+ * a receiver that knows some more recent change replies with a @{@link MembershipDeltaMessage}.
+ */
+public final class GossipMessage extends BaseMessage {
+
+	private final Map<Integer, Heartbeat> heartbeats;
+	private final long membershipEpoch;
+	private final long membershipChecksum;
+
+	public GossipMessage(int senderID, @NotNull Map<Integer, Heartbeat> heartbeats, long membershipEpoch, long membershipChecksum) {
+		super(senderID);
+		this.heartbeats = heartbeats;
+		this.membershipEpoch = membershipEpoch;
+		this.membershipChecksum = membershipChecksum;
+	}
+
+	/**
+	 * @return Heartbeats known by the sender, as a map node ID -> heartbeat.
+	 */
+	public Map<Integer, Heartbeat> getHeartbeats() {
+		return heartbeats;
+	}
+
+	/**
+	 * @return Highest epoch of the membership changes known by the sender.
+	 */
+	public long getMembershipEpoch() {
+		return membershipEpoch;
+	}
+
+	/**
+	 * @return Checksum of the membership changes known by the sender.
+	 */
+	public long getMembershipChecksum() {
+		return membershipChecksum;
+	}
+}
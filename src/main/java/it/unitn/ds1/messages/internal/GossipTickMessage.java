@@ -0,0 +1,14 @@
+package it.unitn.ds1.messages.internal;
+
+import it.unitn.ds1.messages.BaseMessage;
+
+/**
+ * Message sent periodically by a node to itself to start a gossip round
+ * and to check which nodes are down.
+ */
+public final class GossipTickMessage extends BaseMessage {
+
+	public GossipTickMessage(int senderID) {
+		super(senderID);
+	}
+}
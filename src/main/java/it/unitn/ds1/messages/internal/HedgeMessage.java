@@ -0,0 +1,24 @@
+package it.unitn.ds1.messages.internal;
+
+import it.unitn.ds1.messages.BaseMessage;
+
+/**
+ * Message sent by a coordinator to itself when the answers to a read are late,
+ * to send a speculative request to another replica.
+ */
+public final class HedgeMessage extends BaseMessage {
+
+	private final int requestID;
+
+	public HedgeMessage(int senderID, int requestID) {
+		super(senderID);
+		this.requestID = requestID;
+	}
+
+	/**
+	 * @return ID of the read.
+	 */
+	public int getRequestID() {
+		return requestID;
+	}
+}
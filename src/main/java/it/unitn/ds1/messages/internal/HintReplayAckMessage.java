@@ -0,0 +1,27 @@
+package it.unitn.ds1.messages.internal;
+
+import it.unitn.ds1.messages.BaseMessage;
+import org.jetbrains.annotations.NotNull;
+
+import java.util.Map;
+
+/**
+ * Message used to acknowledge a batch of hinted writes (see @{@link HintReplayMessage}).
+ * The sender of the hints can forget them and deliver the next batch.
+ */
+public final class HintReplayAckMessage extends BaseMessage {
+
+	private final Map<Integer, Long> versions;
+
+	public HintReplayAckMessage(int senderID, @NotNull Map<Integer, Long> versions) {
+		super(senderID);
+		this.versions = versions;
+	}
+
+	/**
+	 * @return The versions received, as a map key -> version.
+	 */
+	public Map<Integer, Long> getVersions() {
+		return versions;
+	}
+}
@@ -7,13 +7,15 @@ import org.jetbrains.annotations.NotNull;
 import java.util.Map;
 
 /**
- * Message used to send all my data to some node when I have to leave the network.
+ * Message used to deliver a batch of hinted writes to their owner,
+ * i.e. the writes stored by the sender while the owner was unreachable.
+ * The owner replies with a @{@link HintReplayAckMessage}.
  */
-public final class LeaveDataMessage extends BaseMessage {
+public final class HintReplayMessage extends BaseMessage {
 
 	private final Map<Integer, VersionedItem> records;
 
-	public LeaveDataMessage(int senderID, @NotNull Map<Integer, VersionedItem> records) {
+	public HintReplayMessage(int senderID, @NotNull Map<Integer, VersionedItem> records) {
 		super(senderID);
 		this.records = records;
 	}
@@ -0,0 +1,15 @@
+package it.unitn.ds1.messages.internal;
+
+import it.unitn.ds1.messages.BaseMessage;
+
+/**
+ * Message sent by a joining node to the node that admitted it,
+ * when it received all the records of its ranges. The node that admitted it
+ * announces the join of the whole batch when all its nodes completed.
+ */
+public final class JoinCompletedMessage extends BaseMessage {
+
+	public JoinCompletedMessage(int senderID) {
+		super(senderID);
+	}
+}
@@ -1,14 +1,71 @@
 package it.unitn.ds1.messages.internal;
 
 import it.unitn.ds1.messages.BaseMessage;
+import org.jetbrains.annotations.NotNull;
 
 /**
  * Message used to require to join the system.
+ * The node that receives it forwards it to the node in charge of admitting new nodes,
+ * so that the nodes that join at the same time are admitted together.
  */
 public final class JoinRequestMessage extends BaseMessage {
 
-	public JoinRequestMessage(int senderID) {
+	// message fields
+	private final int weight;
+	private final String zone;
+	private final long epoch;
+	private final boolean forwarded;
+
+	public JoinRequestMessage(int senderID, int weight, @NotNull String zone) {
+		this(senderID, weight, zone, 0);
+	}
+
+	public JoinRequestMessage(int senderID, int weight, @NotNull String zone, long epoch) {
+		this(senderID, weight, zone, epoch, false);
+	}
+
+	private JoinRequestMessage(int senderID, int weight, @NotNull String zone, long epoch, boolean forwarded) {
 		super(senderID);
+		this.weight = weight;
+		this.zone = zone;
+		this.epoch = epoch;
+		this.forwarded = forwarded;
+	}
+
+	/**
+	 * @return A copy of this request, marked as forwarded by another node.
+	 */
+	@NotNull
+	public JoinRequestMessage forwarded() {
+		return new JoinRequestMessage(getSenderID(), weight, zone, epoch, true);
 	}
 
+	/**
+	 * @return Weight of the node that wants to join the system.
+	 */
+	public int getWeight() {
+		return weight;
+	}
+
+	/**
+	 * @return Zone of the node that wants to join the system.
+	 */
+	@NotNull
+	public String getZone() {
+		return zone;
+	}
+
+	/**
+	 * @return Epoch of the membership known by the node, 0 if it knows nothing.
+	 */
+	public long getEpoch() {
+		return epoch;
+	}
+
+	/**
+	 * @return True if the request was forwarded by another node, so it must not be forwarded again.
+	 */
+	public boolean isForwarded() {
+		return forwarded;
+	}
 }
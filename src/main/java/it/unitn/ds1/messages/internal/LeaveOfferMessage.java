@@ -0,0 +1,29 @@
+package it.unitn.ds1.messages.internal;
+
+import it.unitn.ds1.messages.BaseMessage;
+import it.unitn.ds1.node.TokenRange;
+import org.jetbrains.annotations.NotNull;
+
+import java.util.List;
+
+/**
+ * Message sent by a node that is leaving to each node that will replicate some of its ranges.
+ * The receiver asks for the records in these ranges with a @{@link StreamRequestMessage}.
+ * The node leaves only when all the streams are acknowledged.
+ */
+public final class LeaveOfferMessage extends BaseMessage {
+
+	private final List<TokenRange> ranges;
+
+	public LeaveOfferMessage(int senderID, @NotNull List<TokenRange> ranges) {
+		super(senderID);
+		this.ranges = ranges;
+	}
+
+	/**
+	 * @return Ranges that the receiver will replicate after the leave.
+	 */
+	public List<TokenRange> getRanges() {
+		return ranges;
+	}
+}
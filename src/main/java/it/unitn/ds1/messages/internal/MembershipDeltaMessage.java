@@ -0,0 +1,30 @@
+package it.unitn.ds1.messages.internal;
+
+import it.unitn.ds1.messages.BaseMessage;
+import it.unitn.ds1.node.MembershipDelta;
+import org.jetbrains.annotations.NotNull;
+
+import java.util.List;
+
+/**
+ * Message used to spread changes of the membership.
+ * A node that learns some new change forwards it to a few random nodes,
+ * so every change reaches all the nodes in a logarithmic number of hops.
+ * It is also used to reply to a @{@link GossipMessage} from a node that missed some changes.
+ */
+public final class MembershipDeltaMessage extends BaseMessage {
+
+	private final List<MembershipDelta> deltas;
+
+	public MembershipDeltaMessage(int senderID, @NotNull List<MembershipDelta> deltas) {
+		super(senderID);
+		this.deltas = deltas;
+	}
+
+	/**
+	 * @return Changes, sorted by epoch.
+	 */
+	public List<MembershipDelta> getDeltas() {
+		return deltas;
+	}
+}
@@ -0,0 +1,48 @@
+package it.unitn.ds1.messages.internal;
+
+import it.unitn.ds1.messages.BaseMessage;
+import it.unitn.ds1.node.TokenRange;
+import org.jetbrains.annotations.NotNull;
+
+import java.util.Map;
+
+/**
+ * Message used by the anti-entropy protocol to compare the Merkle trees
+ * of two replicas of the same range. It contains the digests of some nodes
+ * at one level of the sender's tree: the receiver compares them with its own
+ * and replies with the digests of the children of the nodes that differ.
+ */
+public final class MerkleDigestMessage extends BaseMessage {
+
+	private final TokenRange range;
+	private final int level;
+	private final Map<Integer, Long> digests;
+
+	public MerkleDigestMessage(int senderID, @NotNull TokenRange range, int level, @NotNull Map<Integer, Long> digests) {
+		super(senderID);
+		this.range = range;
+		this.level = level;
+		this.digests = digests;
+	}
+
+	/**
+	 * @return The range covered by the tree.
+	 */
+	public TokenRange getRange() {
+		return range;
+	}
+
+	/**
+	 * @return The level of the tree, 0 is the root.
+	 */
+	public int getLevel() {
+		return level;
+	}
+
+	/**
+	 * @return The digests of the nodes, as a map index in the level -> digest.
+	 */
+	public Map<Integer, Long> getDigests() {
+		return digests;
+	}
+}
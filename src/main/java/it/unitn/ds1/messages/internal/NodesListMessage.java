@@ -1,36 +1,49 @@
 package it.unitn.ds1.messages.internal;
 
-import akka.actor.ActorRef;
 import it.unitn.ds1.messages.BaseMessage;
+import it.unitn.ds1.node.MembershipDelta;
+import org.jetbrains.annotations.NotNull;
 
-import java.util.Collections;
-import java.util.Map;
+import java.util.List;
 
 /**
- * Message used to transmit the list of Nodes in the system.
- * Used during the leave phase.
+ * Message used to transmit the Nodes present in the system to a node that wants to join
+ * or to recover. It contains only the changes of the membership that the node
+ * does not know, i.e. the ones after the epoch in its @{@link JoinRequestMessage}.
+ * A joining node also receives the list of the nodes admitted together with it,
+ * which are part of the ring it has to consider.
  */
 public final class NodesListMessage extends BaseMessage {
 
 	// message fields
-	private final Map<Integer, ActorRef> nodes;
+	private final List<MembershipDelta> deltas;
+	private final List<MembershipDelta> admitted;
 
 	/**
-	 * Nodes List Message: transmit the Nodes present in the system.
+	 * Nodes List Message: transmit the changes of the membership.
 	 *
 	 * @param senderID ID of the sender node.
-	 * @param nodes    Nodes in the system. Note that the provided map will be
-	 *                 copied and made unmodifiable before sending it in the message.
+	 * @param deltas   Changes of the membership, sorted by epoch.
+	 * @param admitted Joins of the nodes admitted together, including the receiver (empty for a recovering node).
 	 */
-	public NodesListMessage(int senderID, Map<Integer, ActorRef> nodes) {
+	public NodesListMessage(int senderID, @NotNull List<MembershipDelta> deltas, @NotNull List<MembershipDelta> admitted) {
 		super(senderID);
-		this.nodes = Collections.unmodifiableMap(nodes);
+		this.deltas = deltas;
+		this.admitted = admitted;
 	}
 
 	/**
-	 * @return Nodes in the system, as a Map: id -> node reference.
+	 * @return Changes of the membership, sorted by epoch.
 	 */
-	public Map<Integer, ActorRef> getNodes() {
-		return nodes;
+	public List<MembershipDelta> getDeltas() {
+		return deltas;
+	}
+
+	/**
+	 * @return Joins of the nodes admitted together with the receiver.
+	 * They are not announced yet, so their epoch is 0.
+	 */
+	public List<MembershipDelta> getAdmitted() {
+		return admitted;
 	}
 }
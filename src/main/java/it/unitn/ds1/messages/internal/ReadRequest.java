@@ -12,11 +12,23 @@ public final class ReadRequest extends BaseMessage {
 	// message fields
 	private final int requestID;
 	private final int key;
+	private final boolean digest;
+	private final long knownVersion;
 
 	public ReadRequest(int senderID, int requestID, int key) {
+		this(senderID, requestID, key, false);
+	}
+
+	public ReadRequest(int senderID, int requestID, int key, boolean digest) {
+		this(senderID, requestID, key, digest, 0);
+	}
+
+	public ReadRequest(int senderID, int requestID, int key, boolean digest, long knownVersion) {
 		super(senderID);
 		this.requestID = requestID;
 		this.key = key;
+		this.digest = digest;
+		this.knownVersion = knownVersion;
 	}
 
 	/**
@@ -32,4 +44,19 @@ public final class ReadRequest extends BaseMessage {
 	public int getKey() {
 		return key;
 	}
+
+	/**
+	 * @return True if the coordinator needs only the version of the key, not its value.
+	 */
+	public boolean isDigest() {
+		return digest;
+	}
+
+	/**
+	 * @return Version of the key already known by the coordinator, or 0 if none.
+	 * If the replica stores this version, it returns only the version, not the value.
+	 */
+	public long getKnownVersion() {
+		return knownVersion;
+	}
 }
@@ -15,12 +15,18 @@ public final class ReadResponse extends BaseMessage {
 	private final int requestID;
 	private final int key;
 	private final VersionedItem item;
+	private final boolean digest;
 
 	public ReadResponse(int senderID, int requestID, int key, @Nullable VersionedItem item) {
+		this(senderID, requestID, key, item, false);
+	}
+
+	public ReadResponse(int senderID, int requestID, int key, @Nullable VersionedItem item, boolean digest) {
 		super(senderID);
 		this.requestID = requestID;
 		this.key = key;
 		this.item = item;
+		this.digest = digest;
 	}
 
 	/**
@@ -39,9 +45,17 @@ public final class ReadResponse extends BaseMessage {
 
 	/**
 	 * @return value and version associated with the key contained in this response.
+	 * For a digest, only the version is set.
 	 */
 	@Nullable
 	public VersionedItem getValue() {
 		return item;
 	}
+
+	/**
+	 * @return True if this response carries only the version of the key, without its value.
+	 */
+	public boolean isDigest() {
+		return digest;
+	}
 }
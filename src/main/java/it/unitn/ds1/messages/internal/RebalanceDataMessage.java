@@ -7,13 +7,14 @@ import org.jetbrains.annotations.NotNull;
 import java.util.Map;
 
 /**
- * Message used to send all my data to some node which has to join.
+ * Message used to send some records to a node that became
+ * responsible for them after a change in the weights of the ring.
  */
-public final class JoinDataMessage extends BaseMessage {
+public final class RebalanceDataMessage extends BaseMessage {
 
 	private final Map<Integer, VersionedItem> records;
 
-	public JoinDataMessage(int senderID, @NotNull Map<Integer, VersionedItem> records) {
+	public RebalanceDataMessage(int senderID, @NotNull Map<Integer, VersionedItem> records) {
 		super(senderID);
 		this.records = records;
 	}
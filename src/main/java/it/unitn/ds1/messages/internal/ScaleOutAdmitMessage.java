@@ -0,0 +1,14 @@
+package it.unitn.ds1.messages.internal;
+
+import it.unitn.ds1.messages.BaseMessage;
+
+/**
+ * Message sent by a node to itself at the end of the admission window of a scale-out,
+ * to admit all the nodes that asked to join in the meantime.
+ */
+public final class ScaleOutAdmitMessage extends BaseMessage {
+
+	public ScaleOutAdmitMessage(int senderID) {
+		super(senderID);
+	}
+}
@@ -0,0 +1,37 @@
+package it.unitn.ds1.messages.internal;
+
+import it.unitn.ds1.messages.BaseMessage;
+import it.unitn.ds1.node.MembershipDelta;
+import org.jetbrains.annotations.NotNull;
+
+import java.util.List;
+
+/**
+ * Message sent by the node that admits a batch of joining nodes to the members of the ring.
+ * The joining nodes stream their ranges before their join is announced:
+ * until then, the members forward to them the writes of the ranges they will replicate.
+ */
+public final class ScaleOutAdmittedMessage extends BaseMessage {
+
+	// message fields
+	private final List<MembershipDelta> admitted;
+
+	/**
+	 * Scale Out Admitted Message: transmit the nodes admitted together.
+	 *
+	 * @param senderID ID of the sender node.
+	 * @param admitted Joins of the nodes admitted together.
+	 */
+	public ScaleOutAdmittedMessage(int senderID, @NotNull List<MembershipDelta> admitted) {
+		super(senderID);
+		this.admitted = admitted;
+	}
+
+	/**
+	 * @return Joins of the nodes admitted together.
+	 * They are not announced yet, so their epoch is 0.
+	 */
+	public List<MembershipDelta> getAdmitted() {
+		return admitted;
+	}
+}
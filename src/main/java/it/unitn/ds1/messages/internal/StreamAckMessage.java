@@ -0,0 +1,27 @@
+package it.unitn.ds1.messages.internal;
+
+import it.unitn.ds1.messages.BaseMessage;
+
+/**
+ * Message used to acknowledge a @{@link StreamChunkMessage}.
+ * Each acknowledgement allows the sender of the stream to send one more chunk.
+ */
+public final class StreamAckMessage extends BaseMessage {
+
+	private final int streamID;
+	private final int sequence;
+
+	public StreamAckMessage(int senderID, int streamID, int sequence) {
+		super(senderID);
+		this.streamID = streamID;
+		this.sequence = sequence;
+	}
+
+	public int getStreamID() {
+		return streamID;
+	}
+
+	public int getSequence() {
+		return sequence;
+	}
+}
@@ -0,0 +1,75 @@
+package it.unitn.ds1.messages.internal;
+
+import it.unitn.ds1.messages.BaseMessage;
+import it.unitn.ds1.storage.Segment;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+/**
+ * Message used to send a bounded chunk of the records requested with a @{@link StreamRequestMessage}.
+ * The records are encoded as a @{@link Segment}, so they travel as a single checksummed byte array.
+ * Each chunk contains the records of some consecutive positions on the ring and tells how far
+ * the stream went: all the ranges before the next range were sent completely,
+ * the next range was sent up to the position (included), if any.
+ * The receiver must acknowledge each chunk with a @{@link StreamAckMessage}.
+ */
+public final class StreamChunkMessage extends BaseMessage {
+
+	private final int streamID;
+	private final int sequence;
+	private final byte[] segment;
+	private final int nextRange;
+	private final Integer position;
+	private final boolean last;
+
+	public StreamChunkMessage(int senderID, int streamID, int sequence, @NotNull byte[] segment,
+							  int nextRange, @Nullable Integer position, boolean last) {
+		super(senderID);
+		this.streamID = streamID;
+		this.sequence = sequence;
+		this.segment = segment;
+		this.nextRange = nextRange;
+		this.position = position;
+		this.last = last;
+	}
+
+	public int getStreamID() {
+		return streamID;
+	}
+
+	/**
+	 * @return Sequence number of the chunk in the stream, starting from 0.
+	 */
+	public int getSequence() {
+		return sequence;
+	}
+
+	/**
+	 * @return The records of the chunk, encoded as a @{@link Segment}.
+	 */
+	public byte[] getSegment() {
+		return segment;
+	}
+
+	/**
+	 * @return Index of the first requested range that was not sent completely.
+	 */
+	public int getNextRange() {
+		return nextRange;
+	}
+
+	/**
+	 * @return Last position of the next range that was sent, or null if nothing was sent from it.
+	 */
+	@Nullable
+	public Integer getPosition() {
+		return position;
+	}
+
+	/**
+	 * @return True if this is the last chunk of the stream.
+	 */
+	public boolean isLast() {
+		return last;
+	}
+}
@@ -0,0 +1,30 @@
+package it.unitn.ds1.messages.internal;
+
+import it.unitn.ds1.messages.BaseMessage;
+
+/**
+ * Message sent by a node to itself to send the next chunks of a stream
+ * that was paused to respect the maximum transfer rate.
+ */
+public final class StreamPumpMessage extends BaseMessage {
+
+	private final int target;
+	private final int streamID;
+
+	public StreamPumpMessage(int senderID, int target, int streamID) {
+		super(senderID);
+		this.target = target;
+		this.streamID = streamID;
+	}
+
+	/**
+	 * @return ID of the node that receives the stream.
+	 */
+	public int getTarget() {
+		return target;
+	}
+
+	public int getStreamID() {
+		return streamID;
+	}
+}
@@ -0,0 +1,51 @@
+package it.unitn.ds1.messages.internal;
+
+import it.unitn.ds1.messages.BaseMessage;
+import it.unitn.ds1.node.TokenRange;
+import org.jetbrains.annotations.NotNull;
+
+import java.util.List;
+
+/**
+ * Message used to ask a node to stream the records in some token ranges,
+ * eg. to a node that is joining and will replicate these ranges.
+ * The receiver sends the records as a sequence of @{@link StreamChunkMessage}s:
+ * it sends at most the given number of chunks, then one more for each @{@link StreamAckMessage}.
+ * <p>
+ * An interrupted stream can be resumed by requesting the ranges that were not received yet,
+ * with a new stream ID: chunks of the old stream are then ignored.
+ */
+public final class StreamRequestMessage extends BaseMessage {
+
+	private final int streamID;
+	private final List<TokenRange> ranges;
+	private final int credits;
+
+	public StreamRequestMessage(int senderID, int streamID, @NotNull List<TokenRange> ranges, int credits) {
+		super(senderID);
+		this.streamID = streamID;
+		this.ranges = ranges;
+		this.credits = credits;
+	}
+
+	/**
+	 * @return Identifier of the stream, chosen by the receiver of the records.
+	 */
+	public int getStreamID() {
+		return streamID;
+	}
+
+	/**
+	 * @return Ranges to send, in order.
+	 */
+	public List<TokenRange> getRanges() {
+		return ranges;
+	}
+
+	/**
+	 * @return Number of chunks that can be sent before the first acknowledgement.
+	 */
+	public int getCredits() {
+		return credits;
+	}
+}
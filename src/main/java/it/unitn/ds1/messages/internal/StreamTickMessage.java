@@ -0,0 +1,14 @@
+package it.unitn.ds1.messages.internal;
+
+import it.unitn.ds1.messages.BaseMessage;
+
+/**
+ * Message sent periodically by a node to itself while it receives some streams,
+ * to resume the ones that made no progress for a while.
+ */
+public final class StreamTickMessage extends BaseMessage {
+
+	public StreamTickMessage(int senderID) {
+		super(senderID);
+	}
+}
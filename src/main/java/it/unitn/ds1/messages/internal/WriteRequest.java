@@ -3,10 +3,13 @@ package it.unitn.ds1.messages.internal;
 import it.unitn.ds1.messages.BaseMessage;
 import it.unitn.ds1.messages.client.ClientUpdateRequest;
 import it.unitn.ds1.storage.VersionedItem;
+import org.jetbrains.annotations.Nullable;
 
 /**
  * Message to request the write of some record. This message is internal to the system.
  * See @{@link ClientUpdateRequest} for the client to update a record.
+ * When one of the replicas is unreachable, the write is sent to another node
+ * with a hint: the node stores the record on behalf of the intended owner (sloppy quorum).
  */
 public class WriteRequest extends BaseMessage {
 
@@ -14,12 +17,18 @@ public class WriteRequest extends BaseMessage {
 	private final int requestID;
 	private final int key;
 	private final VersionedItem versionedItem;
+	private final Integer hintFor;
 
 	public WriteRequest(int senderID, int requestID, int key, VersionedItem versionedItem) {
+		this(senderID, requestID, key, versionedItem, null);
+	}
+
+	public WriteRequest(int senderID, int requestID, int key, VersionedItem versionedItem, @Nullable Integer hintFor) {
 		super(senderID);
 		this.requestID = requestID;
 		this.key = key;
 		this.versionedItem = versionedItem;
+		this.hintFor = hintFor;
 	}
 
 	/**
@@ -42,4 +51,13 @@ public class WriteRequest extends BaseMessage {
 	public VersionedItem getVersionedItem() {
 		return versionedItem;
 	}
+
+	/**
+	 * @return The ID of the node that should store the record, if the receiver
+	 * is storing it on its behalf. Null if the receiver is one of the replicas.
+	 */
+	@Nullable
+	public Integer getHintFor() {
+		return hintFor;
+	}
 }
@@ -0,0 +1,68 @@
+package it.unitn.ds1.node;
+
+import org.jetbrains.annotations.NotNull;
+
+import java.io.Serializable;
+
+/**
+ * Heartbeat of a node, spread to the other nodes by gossip.
+ * The generation is chosen when the node starts, so that the heartbeats of a node
+ * that recovered from a crash are newer than the ones it sent before, even if
+ * the version restarts from zero. The version is incremented at each gossip round.
+ */
+public final class Heartbeat implements Serializable, Comparable<Heartbeat> {
+
+	private final long generation;
+	private final long version;
+
+	/**
+	 * Create a new heartbeat.
+	 *
+	 * @param generation Start time of the node.
+	 * @param version    Number of gossip rounds since the start of the node.
+	 */
+	public Heartbeat(long generation, long version) {
+		this.generation = generation;
+		this.version = version;
+	}
+
+	public long getGeneration() {
+		return generation;
+	}
+
+	public long getVersion() {
+		return version;
+	}
+
+	/**
+	 * @return The heartbeat of the next gossip round.
+	 */
+	@NotNull
+	public Heartbeat next() {
+		return new Heartbeat(generation, version + 1);
+	}
+
+	@Override
+	public int compareTo(@NotNull Heartbeat other) {
+		final int result = Long.compare(generation, other.generation);
+		return result != 0 ? result : Long.compare(version, other.version);
+	}
+
+	@Override
+	public boolean equals(Object o) {
+		if (this == o) return true;
+		if (o == null || getClass() != o.getClass()) return false;
+		final Heartbeat that = (Heartbeat) o;
+		return generation == that.generation && version == that.version;
+	}
+
+	@Override
+	public int hashCode() {
+		return 31 * Long.hashCode(generation) + Long.hashCode(version);
+	}
+
+	@Override
+	public String toString() {
+		return generation + ":" + version;
+	}
+}
@@ -0,0 +1,85 @@
+package it.unitn.ds1.node;
+
+import java.util.function.LongSupplier;
+
+/**
+ * Hybrid logical clock, used to stamp the versions of the writes
+ * when the coordinator does not read the current version before writing.
+ * <p>
+ * Each timestamp is a 64 bit number: the upper 48 bits contain the physical time
+ * in milliseconds, the lower 16 bits a logical counter used to order events
+ * that happen in the same millisecond (or while the physical clock is behind).
+ * Timestamps are strictly increasing on each node and, since every node updates its clock
+ * when it sees a version from another node, causally related writes are correctly ordered
+ * even when the physical clocks are not perfectly synchronized.
+ * <p>
+ * Timestamps are always bigger than the small versions produced by the read-before-write mode,
+ * so the two modes can be mixed: the last writer wins.
+ */
+final class HybridLogicalClock {
+
+	// number of bits used for the logical counter
+	private static final int LOGICAL_BITS = 16;
+	private static final long LOGICAL_MASK = (1L << LOGICAL_BITS) - 1;
+
+	// source of physical time
+	private final LongSupplier physicalClock;
+
+	// last timestamp generated or observed
+	private long last;
+
+	/**
+	 * Create a new clock based on the system time.
+	 */
+	HybridLogicalClock() {
+		this(System::currentTimeMillis);
+	}
+
+	/**
+	 * Create a new clock based on the given physical time source.
+	 *
+	 * @param physicalClock Source of the physical time, in milliseconds.
+	 */
+	HybridLogicalClock(LongSupplier physicalClock) {
+		this.physicalClock = physicalClock;
+		this.last = 0;
+	}
+
+	/**
+	 * Generate a new timestamp, strictly bigger than all timestamps
+	 * previously generated or observed by this clock.
+	 *
+	 * @return The new timestamp.
+	 */
+	long now() {
+		final long physical = physicalClock.getAsLong() << LOGICAL_BITS;
+		last = Math.max(physical, last + 1);
+		return last;
+	}
+
+	/**
+	 * Observe a timestamp generated by another node,
+	 * so that the next timestamps generated by this clock are bigger.
+	 *
+	 * @param timestamp Remote timestamp (or version).
+	 */
+	void update(long timestamp) {
+		last = Math.max(last, timestamp);
+	}
+
+	/**
+	 * @param timestamp Timestamp generated by some clock.
+	 * @return The physical part of the timestamp, in milliseconds.
+	 */
+	static long physicalTime(long timestamp) {
+		return timestamp >>> LOGICAL_BITS;
+	}
+
+	/**
+	 * @param timestamp Timestamp generated by some clock.
+	 * @return The logical part of the timestamp.
+	 */
+	static long logicalTime(long timestamp) {
+		return timestamp & LOGICAL_MASK;
+	}
+}
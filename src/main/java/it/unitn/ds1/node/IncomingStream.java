@@ -0,0 +1,100 @@
+package it.unitn.ds1.node;
+
+import it.unitn.ds1.messages.internal.StreamChunkMessage;
+import org.jetbrains.annotations.NotNull;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * State of a stream of records that this node receives from another one.
+ * It keeps the part of the requested ranges that was not received yet,
+ * so that an interrupted stream can be resumed from where it stopped.
+ */
+final class IncomingStream {
+
+	// sender of the stream
+	private final int source;
+	private final int streamID;
+
+	// ranges requested, in order
+	private final List<TokenRange> ranges;
+
+	// progress, as reported by the last chunk received
+	private int nextRange;
+	private Integer position;
+
+	// next chunk expected
+	private int sequence;
+
+	// time of the last chunk received, in milliseconds
+	private long lastActivity;
+
+	/**
+	 * Create a new stream.
+	 *
+	 * @param source   ID of the node that sends the records.
+	 * @param streamID Identifier of the stream.
+	 * @param ranges   Ranges requested.
+	 * @param now      Current time, in milliseconds.
+	 */
+	IncomingStream(int source, int streamID, @NotNull List<TokenRange> ranges, long now) {
+		this.source = source;
+		this.streamID = streamID;
+		this.ranges = ranges;
+		this.nextRange = 0;
+		this.position = null;
+		this.sequence = 0;
+		this.lastActivity = now;
+	}
+
+	int getSource() {
+		return source;
+	}
+
+	int getStreamID() {
+		return streamID;
+	}
+
+	long getLastActivity() {
+		return lastActivity;
+	}
+
+	/**
+	 * Record the progress reported by a chunk.
+	 *
+	 * @param chunk Chunk received.
+	 * @param now   Current time, in milliseconds.
+	 * @return False if the chunk is not the one expected (and must be ignored), true otherwise.
+	 */
+	boolean advance(@NotNull StreamChunkMessage chunk, long now) {
+		if (chunk.getStreamID() != streamID || chunk.getSequence() != sequence) {
+			return false;
+		}
+		sequence++;
+		nextRange = chunk.getNextRange();
+		position = chunk.getPosition();
+		lastActivity = now;
+		return true;
+	}
+
+	/**
+	 * @return True if all the requested ranges were received.
+	 */
+	boolean isCompleted() {
+		return nextRange >= ranges.size();
+	}
+
+	/**
+	 * @return The part of the requested ranges that was not received yet, in order.
+	 */
+	@NotNull
+	List<TokenRange> remainingRanges() {
+		final List<TokenRange> remaining = new ArrayList<>();
+		for (int i = nextRange; i < ranges.size(); i++) {
+			final TokenRange range = ranges.get(i);
+			remaining.add(i == nextRange && position != null ? new TokenRange(position, range.getEnd()) : range);
+		}
+		return remaining;
+	}
+}
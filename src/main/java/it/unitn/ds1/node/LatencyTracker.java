@@ -0,0 +1,70 @@
+package it.unitn.ds1.node;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Keeps the most recent response times of each node,
+ * used by the coordinator to decide when the answer of a replica is late.
+ */
+final class LatencyTracker {
+
+	// number of response times kept for each node
+	static final int WINDOW_SIZE = 100;
+
+	// minimum number of response times needed to compute a percentile
+	static final int MIN_SAMPLES = 10;
+
+	// node -> circular buffer of response times, in nanoseconds
+	private final Map<Integer, long[]> samples;
+
+	// node -> number of response times recorded (may be bigger than the window)
+	private final Map<Integer, Integer> counts;
+
+	LatencyTracker() {
+		this.samples = new HashMap<>();
+		this.counts = new HashMap<>();
+	}
+
+	/**
+	 * Record a response time.
+	 *
+	 * @param node  ID of the node that answered.
+	 * @param nanos Time between the request and the response, in nanoseconds.
+	 */
+	void record(int node, long nanos) {
+		final long[] window = samples.computeIfAbsent(node, n -> new long[WINDOW_SIZE]);
+		final int count = counts.getOrDefault(node, 0);
+		window[count % WINDOW_SIZE] = nanos;
+		counts.put(node, count + 1);
+	}
+
+	/**
+	 * Compute a percentile of the recent response times of a node.
+	 *
+	 * @param node       ID of the node.
+	 * @param percentile Percentile, between 0 and 1.
+	 * @return The percentile in nanoseconds, or -1 if less than MIN_SAMPLES response times are known.
+	 */
+	long percentile(int node, double percentile) {
+		final int count = Math.min(counts.getOrDefault(node, 0), WINDOW_SIZE);
+		if (count < MIN_SAMPLES) {
+			return -1;
+		}
+		final long[] sorted = Arrays.copyOf(samples.get(node), count);
+		Arrays.sort(sorted);
+		final int index = (int) Math.ceil(percentile * count) - 1;
+		return sorted[Math.max(0, Math.min(count - 1, index))];
+	}
+
+	/**
+	 * Forget the response times of a node (eg. it left the ring).
+	 *
+	 * @param node ID of the node.
+	 */
+	void remove(int node) {
+		samples.remove(node);
+		counts.remove(node);
+	}
+}
@@ -0,0 +1,85 @@
+package it.unitn.ds1.node;
+
+import akka.actor.ActorRef;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.io.Serializable;
+
+/**
+ * A change of the membership of the ring: a node joined, joined again after a crash
+ * (possibly with a different reference, weight or zone) or left.
+ * <p>
+ * Every change is created by the node it is about (a join by the node that admitted it),
+ * with an epoch bigger than all the epochs known by that node, so the changes about the same node
+ * are totally ordered and the most recent one describes the current state of the node.
+ */
+public final class MembershipDelta implements Serializable {
+
+	/**
+	 * Kind of change.
+	 */
+	public enum Type {
+		JOIN,
+		REJOIN,
+		LEAVE
+	}
+
+	private final long epoch;
+	private final Type type;
+	private final int nodeID;
+	private final ActorRef node;
+	private final int weight;
+	private final String zone;
+
+	/**
+	 * Create a new change.
+	 *
+	 * @param epoch  Epoch of the change.
+	 * @param type   Kind of change.
+	 * @param nodeID ID of the node.
+	 * @param node   Reference to the node, null if it left.
+	 * @param weight Weight of the node.
+	 * @param zone   Zone of the node.
+	 */
+	public MembershipDelta(long epoch, @NotNull Type type, int nodeID, @Nullable ActorRef node, int weight, @NotNull String zone) {
+		this.epoch = epoch;
+		this.type = type;
+		this.nodeID = nodeID;
+		this.node = node;
+		this.weight = weight;
+		this.zone = zone;
+	}
+
+	public long getEpoch() {
+		return epoch;
+	}
+
+	@NotNull
+	public Type getType() {
+		return type;
+	}
+
+	public int getNodeID() {
+		return nodeID;
+	}
+
+	@Nullable
+	public ActorRef getNode() {
+		return node;
+	}
+
+	public int getWeight() {
+		return weight;
+	}
+
+	@NotNull
+	public String getZone() {
+		return zone;
+	}
+
+	@Override
+	public String toString() {
+		return type + "(" + nodeID + ")@" + epoch;
+	}
+}
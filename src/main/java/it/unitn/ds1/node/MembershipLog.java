@@ -0,0 +1,109 @@
+package it.unitn.ds1.node;
+
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+/**
+ * Log of the changes of the membership known by a node.
+ * <p>
+ * Only the most recent change of each node is kept (the ones of the nodes that left
+ * are kept as well, so that an old join cannot bring them back), so the log is as big as
+ * the membership. The epoch of the log is the highest epoch of its changes:
+ * two nodes compare their epochs (and a checksum of their logs) and exchange only
+ * the changes that are newer than the epoch of the other node.
+ */
+final class MembershipLog {
+
+	// most recent change of each node
+	private final Map<Integer, MembershipDelta> changes;
+
+	// highest epoch of the changes
+	private long epoch;
+
+	// XOR of the digests of the changes, to compare logs with the same epoch
+	private long checksum;
+
+	MembershipLog() {
+		this.changes = new HashMap<>();
+		this.epoch = 0;
+		this.checksum = 0;
+	}
+
+	/**
+	 * Add a change to the log, unless a more recent change of the same node is already known.
+	 *
+	 * @param delta Change.
+	 * @return True if the change is new, false if it was ignored.
+	 */
+	boolean apply(@NotNull MembershipDelta delta) {
+		final MembershipDelta current = changes.get(delta.getNodeID());
+		if (current != null && current.getEpoch() >= delta.getEpoch()) {
+			return false;
+		}
+		if (current != null) {
+			checksum ^= digest(current);
+		}
+		changes.put(delta.getNodeID(), delta);
+		checksum ^= digest(delta);
+		epoch = Math.max(epoch, delta.getEpoch());
+		return true;
+	}
+
+	/**
+	 * @return Highest epoch known.
+	 */
+	long epoch() {
+		return epoch;
+	}
+
+	/**
+	 * @return Epoch for a new change.
+	 */
+	long nextEpoch() {
+		return epoch + 1;
+	}
+
+	/**
+	 * @return Checksum of the log: two logs with the same changes have the same checksum.
+	 */
+	long checksum() {
+		return checksum;
+	}
+
+	/**
+	 * @param nodeID ID of some node.
+	 * @return The most recent change of the node, null if unknown.
+	 */
+	@Nullable
+	MembershipDelta get(int nodeID) {
+		return changes.get(nodeID);
+	}
+
+	/**
+	 * Return the changes with an epoch bigger than the given one.
+	 *
+	 * @param since Epoch known by some node, 0 to get all the changes.
+	 * @return The changes, sorted by epoch.
+	 */
+	@NotNull
+	List<MembershipDelta> since(long since) {
+		return changes.values().stream()
+			.filter(delta -> delta.getEpoch() > since)
+			.sorted(Comparator.comparingLong(MembershipDelta::getEpoch))
+			.collect(Collectors.toList());
+	}
+
+	// digest of a change, used for the checksum
+	private static long digest(@NotNull MembershipDelta delta) {
+		long h = delta.getEpoch() * 0x9e3779b97f4a7c15L + delta.getNodeID();
+		h = (h ^ (h >>> 30)) * 0xbf58476d1ce4e5b9L;
+		h = (h ^ (h >>> 27)) * 0x94d049bb133111ebL;
+		return h ^ (h >>> 31);
+	}
+}
@@ -0,0 +1,124 @@
+package it.unitn.ds1.node;
+
+import akka.actor.ActorRef;
+import akka.serialization.Serialization;
+import it.unitn.ds1.storage.exceptions.ReadException;
+import it.unitn.ds1.storage.exceptions.WriteException;
+import org.apache.commons.csv.CSVFormat;
+import org.apache.commons.csv.CSVPrinter;
+import org.apache.commons.csv.CSVRecord;
+import org.jetbrains.annotations.NotNull;
+
+import java.io.File;
+import java.io.FileReader;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.function.Function;
+
+/**
+ * Durable snapshot of the @{@link MembershipLog} of a node, stored next to its records,
+ * so that a node that restarts can rebuild the ring without contacting another node.
+ * <p>
+ * The file contains one change per line: epoch, type, node ID, actor path
+ * ("-" for the nodes that left), weight and zone. The tokens of each node
+ * are derived from its ID and weight, so they are not stored.
+ * The file is replaced atomically, so a crash never leaves a partial snapshot.
+ */
+final class MembershipStore {
+
+	// same format used for the records of the node
+	private static final CSVFormat CUSTOM_CSV_FORMAT = CSVFormat.DEFAULT.withDelimiter(' ');
+
+	// marker for a missing actor path
+	private static final String NO_PATH = "-";
+
+	// location of the file for this node
+	private final String fileLocation;
+
+	/**
+	 * Create a new store for the node with the given ID.
+	 *
+	 * @param directory Directory where to store the file.
+	 * @param nodeID    ID of the node that uses this store.
+	 */
+	MembershipStore(@NotNull String directory, int nodeID) {
+		this.fileLocation = new File(directory, "nodeMembership-" + nodeID + ".txt").getAbsolutePath();
+	}
+
+	/**
+	 * Replace the snapshot with the given changes.
+	 *
+	 * @param deltas Changes of the membership.
+	 * @throws WriteException thrown if any error during writing occur
+	 */
+	void save(@NotNull Collection<MembershipDelta> deltas) throws WriteException {
+		final Path file = Paths.get(fileLocation);
+		final Path temporary = Paths.get(fileLocation + ".tmp");
+		try {
+			try (CSVPrinter printer = new CSVPrinter(new FileWriter(temporary.toFile()), CUSTOM_CSV_FORMAT)) {
+				for (MembershipDelta delta : deltas) {
+					printer.printRecord(delta.getEpoch(), delta.getType(), delta.getNodeID(),
+						delta.getNode() != null ? Serialization.serializedActorPath(delta.getNode()) : NO_PATH,
+						delta.getWeight(), delta.getZone());
+				}
+			}
+			Files.move(temporary, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+		} catch (IOException e) {
+			throw new WriteException(e);
+		}
+	}
+
+	/**
+	 * Read the snapshot.
+	 *
+	 * @param resolver Function to obtain a reference from an actor path.
+	 * @return The changes in the snapshot, empty if there is no snapshot.
+	 * @throws ReadException thrown if the snapshot can not be read
+	 */
+	@NotNull
+	List<MembershipDelta> load(@NotNull Function<String, ActorRef> resolver) throws ReadException {
+		final List<MembershipDelta> deltas = new ArrayList<>();
+		if (!new File(fileLocation).exists()) {
+			return deltas;
+		}
+		try (FileReader fileReader = new FileReader(fileLocation)) {
+			for (CSVRecord record : CUSTOM_CSV_FORMAT.parse(fileReader)) {
+				if (record.size() != 6) {
+					throw new ReadException("Read bad membership change \"" + record.toString() + "\".");
+				}
+				final String path = record.get(3);
+				deltas.add(new MembershipDelta(
+					Long.parseLong(record.get(0)),
+					MembershipDelta.Type.valueOf(record.get(1)),
+					Integer.parseInt(record.get(2)),
+					NO_PATH.equals(path) ? null : resolver.apply(path),
+					Integer.parseInt(record.get(4)),
+					record.get(5)
+				));
+			}
+		} catch (IOException | IllegalArgumentException e) {
+			throw new ReadException(e);
+		}
+		return deltas;
+	}
+
+	/**
+	 * Delete the snapshot.
+	 */
+	void delete() {
+		final File file = new File(fileLocation);
+		if (file.exists()) {
+			boolean delete = file.delete();
+			if (!delete) {
+				throw new RuntimeException("Unable to delete file \"" + fileLocation + "\".");
+			}
+		}
+	}
+}
@@ -0,0 +1,209 @@
+package it.unitn.ds1.node;
+
+import it.unitn.ds1.storage.VersionedItem;
+import org.jetbrains.annotations.NotNull;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Merkle tree over the records of a token range, used by the anti-entropy protocol
+ * to find the records that differ between two replicas of the range.
+ * <p>
+ * The hash space is split in 2^LEAF_BITS buckets of the same size. The digest of each bucket
+ * is the XOR of the digests of its records and is updated incrementally by the @{@link RecordCache}
+ * on every write. The leaves of the tree of a range are the buckets that the range covers
+ * (the first and last bucket may be covered only in part, in this case their digest is computed
+ * from the records in the covered part). The inner nodes combine the digests of their two children.
+ * Two replicas that build the tree for the same range obtain trees with the same shape, so they
+ * can compare them level by level and descend only into the subtrees that differ.
+ */
+final class MerkleTree {
+
+	// number of bits of the hashed key used to choose the bucket
+	static final int LEAF_BITS = 16;
+	private static final int SHIFT = 32 - LEAF_BITS;
+
+	// range covered by the tree
+	private final TokenRange range;
+
+	// ranges covered by the leaves, in order
+	private final List<TokenRange> leaves;
+
+	// levels[0] contains the root, levels[depth] the leaves (padded with empty leaves)
+	private final long[][] levels;
+
+	private MerkleTree(@NotNull TokenRange range, @NotNull List<TokenRange> leaves, @NotNull long[] leafDigests) {
+		this.range = range;
+		this.leaves = leaves;
+
+		int depth = 0;
+		while ((1 << depth) < leafDigests.length) depth++;
+		this.levels = new long[depth + 1][];
+		this.levels[depth] = new long[1 << depth];
+		System.arraycopy(leafDigests, 0, this.levels[depth], 0, leafDigests.length);
+		for (int level = depth - 1; level >= 0; level--) {
+			final long[] children = this.levels[level + 1];
+			final long[] nodes = new long[1 << level];
+			for (int i = 0; i < nodes.length; i++) {
+				nodes[i] = combine(children[2 * i], children[2 * i + 1]);
+			}
+			this.levels[level] = nodes;
+		}
+	}
+
+	/**
+	 * Build the tree for the given range, using the records in the cache.
+	 *
+	 * @param range Range covered by the tree.
+	 * @param cache Records of the node.
+	 * @return The tree.
+	 */
+	@NotNull
+	static MerkleTree build(@NotNull TokenRange range, @NotNull RecordCache cache) {
+		final List<TokenRange> leaves = leavesOf(range);
+		final long[] digests = new long[leaves.size()];
+		for (int i = 0; i < digests.length; i++) {
+			final TokenRange leaf = leaves.get(i);
+			final int bucket = bucketOf(leaf.getEnd());
+			if (leaf.equals(bucketRange(bucket))) {
+				digests[i] = cache.bucketDigest(bucket);
+			} else {
+				long digest = 0;
+				for (Integer key : cache.keysIn(leaf)) {
+					digest ^= digest(key, cache.get(key));
+				}
+				digests[i] = digest;
+			}
+		}
+		return new MerkleTree(range, leaves, digests);
+	}
+
+	/**
+	 * @return The range covered by the tree.
+	 */
+	@NotNull
+	TokenRange getRange() {
+		return range;
+	}
+
+	/**
+	 * @return The level of the leaves. The root is at level 0.
+	 */
+	int depth() {
+		return levels.length - 1;
+	}
+
+	/**
+	 * @param level Level of the tree.
+	 * @return Number of nodes at the given level.
+	 */
+	int width(int level) {
+		return levels[level].length;
+	}
+
+	/**
+	 * @param level Level of the tree.
+	 * @param index Index of the node in the level.
+	 * @return Digest of the node.
+	 */
+	long digest(int level, int index) {
+		return levels[level][index];
+	}
+
+	/**
+	 * @return Digest of the root, i.e. of the whole range.
+	 */
+	long root() {
+		return levels[0][0];
+	}
+
+	/**
+	 * Return the range covered by some leaf.
+	 *
+	 * @param index Index of the leaf.
+	 * @return The range, or null for the empty leaves used to pad the last level.
+	 */
+	TokenRange leaf(int index) {
+		return index < leaves.size() ? leaves.get(index) : null;
+	}
+
+	/* -----
+	 * Utils
+	 ----- */
+
+	/**
+	 * @param hashedKey Position on the ring.
+	 * @return The bucket that contains the position.
+	 */
+	static int bucketOf(int hashedKey) {
+		return (hashedKey ^ Integer.MIN_VALUE) >>> SHIFT;
+	}
+
+	/**
+	 * @param bucket Bucket.
+	 * @return The range of positions in the bucket.
+	 */
+	@NotNull
+	static TokenRange bucketRange(int bucket) {
+		final int first = (bucket << SHIFT) ^ Integer.MIN_VALUE;
+		final int last = first + (1 << SHIFT) - 1;
+		return new TokenRange(first - 1, last);
+	}
+
+	/**
+	 * Split a range in the ranges of the buckets it covers.
+	 * The first and the last ranges may cover only part of a bucket.
+	 *
+	 * @param range Range to split.
+	 * @return Ranges covered by each leaf, in order.
+	 */
+	@NotNull
+	static List<TokenRange> leavesOf(@NotNull TokenRange range) {
+		final List<TokenRange> result = new ArrayList<>();
+		if (range.getStart() == range.getEnd()) {
+			for (int bucket = 0; bucket < (1 << LEAF_BITS); bucket++) {
+				result.add(bucketRange(bucket));
+			}
+			return result;
+		}
+
+		int position = range.getStart();
+		while (true) {
+			final int last = bucketRange(bucketOf(position + 1)).getEnd();
+			if (new TokenRange(position, last).contains(range.getEnd())) {
+				result.add(new TokenRange(position, range.getEnd()));
+				return result;
+			}
+			result.add(new TokenRange(position, last));
+			position = last;
+		}
+	}
+
+	/**
+	 * Compute the digest of a record. The digest of a set of records is the XOR
+	 * of their digests, so it can be updated when a single record changes.
+	 *
+	 * @param key  Key of the record.
+	 * @param item Record.
+	 * @return 64 bit digest of the record.
+	 */
+	static long digest(int key, @NotNull VersionedItem item) {
+		long h = mix(key);
+		h = mix(h ^ item.getVersion());
+		h = mix(h ^ (item.getValue() != null ? item.getValue().hashCode() : 0));
+		return h;
+	}
+
+	// digest of an inner node: an empty subtree has digest 0
+	private static long combine(long left, long right) {
+		return (left == 0 && right == 0) ? 0 : mix(left * 31 + right);
+	}
+
+	// 64 bit finalizer of SplitMix64
+	private static long mix(long z) {
+		z = (z ^ (z >>> 30)) * 0xbf58476d1ce4e5b9L;
+		z = (z ^ (z >>> 27)) * 0x94d049bb133111ebL;
+		return z ^ (z >>> 31);
+	}
+}
@@ -1,37 +1,82 @@
 package it.unitn.ds1.node;
 
+import akka.actor.ActorIdentity;
 import akka.actor.ActorRef;
+import akka.actor.Address;
 import akka.actor.Cancellable;
+import akka.actor.ExtendedActorSystem;
+import akka.actor.Identify;
 import akka.actor.Props;
 import akka.actor.UntypedActor;
 import akka.event.DiagnosticLoggingAdapter;
 import akka.event.Logging;
 import akka.japi.Creator;
+import akka.remote.DisassociatedEvent;
+import akka.remote.QuarantinedEvent;
 import it.unitn.ds1.messages.client.*;
 import it.unitn.ds1.messages.internal.*;
 import it.unitn.ds1.node.status.ReadRequestStatus;
 import it.unitn.ds1.node.status.UpdateRequestStatus;
 import it.unitn.ds1.node.status.UpdateResponseStatus;
+import it.unitn.ds1.messages.BaseMessage;
 import it.unitn.ds1.storage.FileStorageManager;
+import it.unitn.ds1.storage.HintStore;
+import it.unitn.ds1.storage.Segment;
 import it.unitn.ds1.storage.StorageManager;
 import it.unitn.ds1.storage.VersionedItem;
+import it.unitn.ds1.storage.exceptions.ReadException;
 import org.jetbrains.annotations.NotNull;
 import org.jetbrains.annotations.Nullable;
 import scala.concurrent.duration.Duration;
 
 import java.io.IOException;
 import java.io.Serializable;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Deque;
 import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
 import java.util.Map;
+import java.util.Random;
 import java.util.Set;
+import java.util.concurrent.ForkJoinPool;
 import java.util.concurrent.TimeUnit;
+import java.util.function.IntFunction;
+import java.util.function.IntPredicate;
 import java.util.stream.Collectors;
 import it.unitn.ds1.node.HashUtil;
 
 import java.util.TreeSet;
 import java.util.stream.Collectors;
 
+import static it.unitn.ds1.SystemConstants.ANTI_ENTROPY_INTERVAL_SECONDS;
+import static it.unitn.ds1.SystemConstants.GOSSIP_FANOUT;
+import static it.unitn.ds1.SystemConstants.GOSSIP_INTERVAL_MILLISECONDS;
+import static it.unitn.ds1.SystemConstants.HEDGE_DEFAULT_DELAY_MILLISECONDS;
+import static it.unitn.ds1.SystemConstants.HEDGE_PERCENTILE;
+import static it.unitn.ds1.SystemConstants.HINT_REPLAY_BATCH_SIZE;
+import static it.unitn.ds1.SystemConstants.HLC_WRITES;
+import static it.unitn.ds1.SystemConstants.PHI_MIN_STD_DEVIATION_MILLISECONDS;
+import static it.unitn.ds1.SystemConstants.PHI_THRESHOLD;
+import static it.unitn.ds1.SystemConstants.QUORUM_TIMEOUT_FACTOR;
+import static it.unitn.ds1.SystemConstants.QUORUM_TIMEOUT_MAX_MILLISECONDS;
+import static it.unitn.ds1.SystemConstants.QUORUM_TIMEOUT_MIN_MILLISECONDS;
+import static it.unitn.ds1.SystemConstants.QUORUM_TIMEOUT_PERCENTILE;
 import static it.unitn.ds1.SystemConstants.QUORUM_TIMEOUT_SECONDS;
+import static it.unitn.ds1.SystemConstants.READ_REPAIR_CHANCE;
+import static it.unitn.ds1.SystemConstants.READ_REPAIR_MAX_PER_SECOND;
+import static it.unitn.ds1.SystemConstants.REPLICA_SCORE_ALPHA;
+import static it.unitn.ds1.SystemConstants.REPLICA_SCORE_CROSS_ZONE_PENALTY_MILLISECONDS;
+import static it.unitn.ds1.SystemConstants.REPLICA_SCORE_HALF_LIFE_MILLISECONDS;
+import static it.unitn.ds1.SystemConstants.RECOVERY_CLOCK_SKEW_MILLISECONDS;
+import static it.unitn.ds1.SystemConstants.SCALE_OUT_ADMISSION_MILLISECONDS;
+import static it.unitn.ds1.SystemConstants.STREAM_CHUNK_BYTES;
+import static it.unitn.ds1.SystemConstants.STREAM_RATE_MB_PER_SECOND;
+import static it.unitn.ds1.SystemConstants.STREAM_STALL_TIMEOUT_SECONDS;
+import static it.unitn.ds1.SystemConstants.STREAM_WINDOW_CHUNKS;
 
 
 public final class NodeActor extends UntypedActor {
@@ -40,6 +85,12 @@ public final class NodeActor extends UntypedActor {
 	private final int id;
 	private final String rawId;
 
+	// Weight of this node, i.e. number of tokens owned on the ring
+	private final int weight;
+
+	// Zone of this node (eg. rack), used to spread replicas and to prefer close replicas
+	private final String zone;
+
 	// Storage Manager that helps read and write records into persistent storage.
 	private final StorageManager storageManager;
 
@@ -48,7 +99,7 @@ public final class NodeActor extends UntypedActor {
 	private final StartupCommand startupCommand;
 
 	// Akka remote path to contact another node.
-	// This is used to make the node leave an existing system.
+	// This is used to join an existing system, or to recover when no membership snapshot is stored.
 	private final String remote;
 
 	// Logger, used for debug proposes.
@@ -60,12 +111,17 @@ public final class NodeActor extends UntypedActor {
 
 	// Keep the data store in memory for higher efficiency.
 	// This cache will use a write-through strategy for simplicity and reliability.
-	private final Map<Integer, VersionedItem> cache;
+	// The cache also indexes the keys by their position on the ring.
+	private final RecordCache cache;
 
 	// Read requests the node is responsible for
 	// Maps the requestID to the request status
 	private final Map<Integer, ReadRequestStatus> readRequests;
 
+	// Reads in flight that other reads of the same key can join
+	// Maps the key to the requestID
+	private final Map<Integer, Integer> inFlightReads;
+
 	// Write progress for a future write request the node is responsible for
 	// Maps the requestID to the request status
 	private final Map<Integer, UpdateRequestStatus> writeRequests;
@@ -74,6 +130,70 @@ public final class NodeActor extends UntypedActor {
 	// Maps the requestID to the response status
 	private final Map<Integer, UpdateResponseStatus> writeResponses;
 
+	// Reads already answered, kept until their timeout to repair the replicas that answer late
+	// Maps the requestID to the request status
+	private final Map<Integer, ReadRequestStatus> readRepairs;
+
+	// Used to choose which reads are repaired
+	private final Random random;
+
+	// Rate limit for the read repair: start of the current 1 second window and repairs sent in it
+	private long repairWindowStart;
+	private int repairsInWindow;
+
+	// Replicas that did not answer yet to some request, used to find out unreachable nodes
+	// Maps the requestID to the IDs of the nodes and the time the request was sent to them
+	private final Map<Integer, Map<Integer, Long>> awaitedReplicas;
+
+	// Recent response times of the other nodes
+	private final LatencyTracker latencies;
+
+	// Moving average of the response times and outstanding requests of the other nodes,
+	// used to choose the replicas that receive the reads
+	private final ReplicaScores replicaScores;
+
+	// Timeouts of the requests, computed from the time the recent requests took to reach the quorum
+	private final QuorumTimeouts quorumTimeouts;
+
+	// Replicas not contacted yet by some hedged read, in order of preference
+	// Maps the requestID to the IDs of the nodes
+	private final Map<Integer, Deque<Integer>> spareReplicas;
+
+	// Nodes that did not answer to some request before its timeout, or whose connection was lost.
+	// Writes for these nodes are sent to other nodes as hints, until they are seen again.
+	private final Set<Integer> suspectedNodes;
+
+	// Writes stored on behalf of unreachable nodes
+	private final HintStore hintStore;
+
+	// Nodes to which a batch of hints is being delivered
+	private final Set<Integer> replayingHints;
+
+	// Merkle trees of the ranges I replicate, valid until the cache changes
+	private final Map<TokenRange, MerkleTree> merkleTrees;
+	private long merkleTreesVersion;
+
+	// Periodic timer for the anti-entropy rounds
+	private Cancellable antiEntropyTimer;
+
+	// Most recent heartbeat known for each node of the ring, including mine
+	private final Map<Integer, Heartbeat> heartbeats;
+
+	// Failure detector, fed with the heartbeats received by gossip
+	private final PhiAccrualFailureDetector failureDetector;
+
+	// Nodes marked as down by the failure detector, until a newer heartbeat arrives
+	private final Set<Integer> downNodes;
+
+	// Periodic timer for the gossip rounds
+	private Cancellable gossipTimer;
+
+	// Changes of the membership known by this node
+	private final MembershipLog membership;
+
+	// Snapshot of the membership, used to restart without contacting other nodes
+	private final MembershipStore membershipStore;
+
 	// Timers for read or write requests
 	// Every timer is responsible for delivering a timeout message to node is responsible for the request.
 	// Maps the requestID to the timer
@@ -83,10 +203,14 @@ public final class NodeActor extends UntypedActor {
 	private final int readQuorum;
 	private final int writeQuorum;
 	private final int replication;
+	private final ReadOptions readOptions;
 
 	// used for tests: should the node terminate Akka on leave?
 	private final boolean terminateSystemOnLeave;
 
+	// Clock used to stamp the versions of the writes when HLC_WRITES is enabled
+	private final HybridLogicalClock clock;
+
 	// Unique incremental identifier for each client request
 	// The counter is to be considered unique only inside the same node
 	private int requestCount;
@@ -94,48 +218,128 @@ public final class NodeActor extends UntypedActor {
 	// Internal variable used to store the current state of the node.
 	private State state;
 
-	private NodeActor(int id, @NotNull String rawId, @NotNull String storagePath, @NotNull StartupCommand startupCommand, @Nullable String remote,
-					  int readQuorum, int writeQuorum, int replication, boolean terminateSystemOnLeave) throws IOException {
+	// Nodes from which the data is still expected during the recovery
+	private final Set<Integer> pendingDataSources;
+
+	// Streams of records I am sending, by receiver and stream ID
+	private final Map<Integer, Map<Integer, OutgoingStream>> outgoingStreams;
+
+	// Streams of records I am receiving (eg. during the join), by stream ID
+	private final Map<Integer, IncomingStream> incomingStreams;
+
+	// Ring before my join, used to find the nodes that can send me the records
+	private Ring joinSources;
+
+	// Node that admitted me to the ring, while joining
+	private ActorRef joinCoordinator;
+
+	// Nodes that asked to join and wait to be admitted, null if none
+	private ScaleOutPlan admitting;
+
+	// Nodes admitted by me that are still receiving their ranges, null if none
+	private ScaleOutPlan scaleOut;
+
+	// Ring with the nodes admitted by some node that are still receiving their ranges, null if none:
+	// until their join is announced, I forward them the writes of the ranges they will replicate
+	private Ring scaleOutRing;
+
+	// Unique incremental identifier for the streams I request
+	private int streamCount;
+
+	// Periodic timer that resumes the incoming streams that stalled
+	private Cancellable streamTimer;
+
+	// Used to compute the repartitioning of the keys in parallel, outside the actor thread
+	private final Repartitioner repartitioner;
+
+	// Last change of the storage before a recovery: the records changed
+	// on the other replicas after this time were missed while the node was down
+	private long recoveryWatermark;
+
+	// Client that asked this node to leave, if any
+	private ActorRef leaveRequester;
+
+	// Ring after my leave, used to find the new replicas of my ranges
+	private Ring leaveRing;
+
+	// Ranges not yet stored by their new replicas during the leave, by new replica
+	private final Map<Integer, List<TokenRange>> pendingHandoffs;
+
+	private NodeActor(int id, @NotNull String rawId, @NotNull String storagePath, int weight, @NotNull String zone, @NotNull StartupCommand startupCommand, @Nullable String remote,
+					  int readQuorum, int writeQuorum, int replication, @NotNull ReadOptions readOptions, boolean terminateSystemOnLeave) throws IOException {
 
 		// at start, check that the constants R, W and N are correct
 		assert readQuorum > 0 : "Read Quorum must be positive";
 		assert writeQuorum > 0 : "Write Quorum must be positive";
 		assert replication > 0 : "Replication factor must be positive";
 		assert readQuorum + writeQuorum > replication : "Condition R + W > N must hold to guarantee consistency in the system";
+		assert weight > 0 : "Weight must be positive";
 
 		this.readQuorum = readQuorum;
 		this.writeQuorum = writeQuorum;
 		this.replication = replication;
+		this.readOptions = readOptions;
 
 		// initialize values
 		this.id = id;
 		this.rawId = rawId;
+		this.weight = weight;
+		this.zone = zone;
 		this.startupCommand = startupCommand;
 
 		this.logger = Logging.getLogger(this);
     	this.logger.info("Node starting: ID={} (mode={}) storage='{}'",
         id, startupCommand, storagePath);
+    	this.logger.info("Node placement: weight={} zone={}", weight, zone);
 
 		this.remote = remote;
 		this.terminateSystemOnLeave = terminateSystemOnLeave;
 
 		// initialize storage manager
 		this.storageManager = new FileStorageManager(storagePath, id);
+		this.hintStore = new HintStore(storagePath, id);
+		this.membershipStore = new MembershipStore(storagePath, id);
 
 		// initialize the ring
 		this.ring = new Ring(replication, id);
-		this.ring.addNode(id, getSelf());
+		this.ring.addNode(id, getSelf(), weight, zone);
 		this.logger.info("Initial ring membership: {}", new TreeSet<>(ring.getNodeIDs()));
 
 		// create empty cache
-		this.cache = new HashMap<>();
+		this.cache = new RecordCache();
 
 		// initialize other variables
 		this.readRequests = new HashMap<>();
+		this.inFlightReads = new HashMap<>();
 		this.writeRequests = new HashMap<>();
 		this.writeResponses = new HashMap<>();
 		this.requestsTimers = new HashMap<>();
+		this.readRepairs = new HashMap<>();
+		this.awaitedReplicas = new HashMap<>();
+		this.latencies = new LatencyTracker();
+		this.replicaScores = new ReplicaScores(REPLICA_SCORE_ALPHA, TimeUnit.MILLISECONDS.toNanos(REPLICA_SCORE_HALF_LIFE_MILLISECONDS),
+			TimeUnit.MILLISECONDS.toNanos(REPLICA_SCORE_CROSS_ZONE_PENALTY_MILLISECONDS));
+		this.quorumTimeouts = new QuorumTimeouts(QUORUM_TIMEOUT_PERCENTILE, QUORUM_TIMEOUT_FACTOR,
+			QUORUM_TIMEOUT_MIN_MILLISECONDS, QUORUM_TIMEOUT_MAX_MILLISECONDS, TimeUnit.SECONDS.toMillis(QUORUM_TIMEOUT_SECONDS));
+		this.spareReplicas = new HashMap<>();
+		this.suspectedNodes = new HashSet<>();
+		this.replayingHints = new HashSet<>();
+		this.merkleTrees = new HashMap<>();
+		this.merkleTreesVersion = -1;
+		this.heartbeats = new HashMap<>();
+		this.heartbeats.put(id, new Heartbeat(System.currentTimeMillis(), 0));
+		this.failureDetector = new PhiAccrualFailureDetector(GOSSIP_INTERVAL_MILLISECONDS, PHI_MIN_STD_DEVIATION_MILLISECONDS);
+		this.downNodes = new HashSet<>();
+		this.membership = new MembershipLog();
+		this.random = new Random();
 		this.requestCount = 0;
+		this.clock = new HybridLogicalClock();
+		this.pendingDataSources = new HashSet<>();
+		this.outgoingStreams = new HashMap<>();
+		this.incomingStreams = new HashMap<>();
+		this.streamCount = 0;
+		this.pendingHandoffs = new HashMap<>();
+		this.repartitioner = new Repartitioner(ForkJoinPool.commonPool());
 
 		// setup logger context
         Map<String,Object> mdc = new HashMap<>();
@@ -148,14 +352,28 @@ public final class NodeActor extends UntypedActor {
 	public static Props bootstrap(final int hashedId,
                                   @NotNull final String rawId,
                                   @NotNull final String storagePath,
+                                  final int weight,
+                                  @NotNull final String zone,
                                   int readQ, int writeQ, int rep,
                                   boolean terminateOnLeave) {
+        return bootstrap(hashedId, rawId, storagePath, weight, zone, readQ, writeQ, rep, ReadOptions.DEFAULT, terminateOnLeave);
+    }
+
+    // used for tests: bootstrap a node that serves the reads with the given strategies
+    static Props bootstrap(final int hashedId,
+                           @NotNull final String rawId,
+                           @NotNull final String storagePath,
+                           final int weight,
+                           @NotNull final String zone,
+                           int readQ, int writeQ, int rep,
+                           @NotNull final ReadOptions readOptions,
+                           boolean terminateOnLeave) {
         return Props.create(new Creator<NodeActor>() {
             public NodeActor create() throws Exception {
                 return new NodeActor(
-                    hashedId, rawId, storagePath,
+                    hashedId, rawId, storagePath, weight, zone,
                     StartupCommand.BOOTSTRAP, null,
-                    readQ, writeQ, rep, terminateOnLeave
+                    readQ, writeQ, rep, readOptions, terminateOnLeave
                 );
             }
         });
@@ -164,15 +382,17 @@ public final class NodeActor extends UntypedActor {
     public static Props join(final int hashedId,
                              @NotNull final String rawId,
                              @NotNull final String storagePath,
+                             final int weight,
+                             @NotNull final String zone,
                              @NotNull final String remote,
                              int readQ, int writeQ, int rep,
                              boolean terminateOnLeave) {
         return Props.create(new Creator<NodeActor>() {
             public NodeActor create() throws Exception {
                 return new NodeActor(
-                    hashedId, rawId, storagePath,
+                    hashedId, rawId, storagePath, weight, zone,
                     StartupCommand.JOIN, remote,
-                    readQ, writeQ, rep, terminateOnLeave
+                    readQ, writeQ, rep, ReadOptions.DEFAULT, terminateOnLeave
                 );
             }
         });
@@ -181,15 +401,17 @@ public final class NodeActor extends UntypedActor {
 	public static Props recover(final int hashedId,
                                 @NotNull final String rawId,
                                 @NotNull final String storagePath,
-                                @NotNull final String remote,
+                                final int weight,
+                                @NotNull final String zone,
+                                @Nullable final String remote,
                                 int readQ, int writeQ, int rep,
                                 boolean terminateOnLeave) {
         return Props.create(new Creator<NodeActor>() {
             public NodeActor create() throws Exception {
                 return new NodeActor(
-                    hashedId, rawId, storagePath,
+                    hashedId, rawId, storagePath, weight, zone,
                     StartupCommand.RECOVER, remote,
-                    readQ, writeQ, rep, terminateOnLeave
+                    readQ, writeQ, rep, ReadOptions.DEFAULT, terminateOnLeave
                 );
             }
         });
@@ -199,6 +421,8 @@ public final class NodeActor extends UntypedActor {
         switch (startupCommand) {
             case BOOTSTRAP:
                 storageManager.clearStorage();
+                membership.apply(new MembershipDelta(membership.nextEpoch(), MembershipDelta.Type.JOIN, id, getSelf(), weight, zone));
+                saveMembership();
                 this.state = State.READY;
                 // elevated to INFO
                 logger.info("BOOTSTRAP complete: storage cleared, state={}", state);
@@ -206,29 +430,101 @@ public final class NodeActor extends UntypedActor {
 
             case JOIN:
                 storageManager.clearStorage();
+                membershipStore.delete();
                 getContext().actorSelection(remote)
-                            .tell(new JoinRequestMessage(id), getSelf());
+                            .tell(new JoinRequestMessage(id, weight, zone, membership.epoch()), getSelf());
                 this.state = State.JOINING_WAITING_NODES;
                 logger.info("JOIN requested: contacting bootstrap [{}], state={}", remote, state);
                 break;
 
             case RECOVER:
+                recoveryWatermark = storageManager.lastModified();
+                final List<MembershipDelta> snapshot = membershipStore.load(this::resolveNode);
+                if (!snapshot.isEmpty()) {
+                    // Rebuild the ring I knew before the crash and recover right away:
+                    // the changes I missed arrive by gossip once I am ready
+                    restoreMembership(snapshot);
+                    logger.info("RECOVER from membership snapshot: epoch={}, members={}",
+                        membership.epoch(), new TreeSet<>(ring.getNodeIDs()));
+                    startRecovery();
+                    break;
+                }
+                if (remote == null) {
+                    throw new IllegalStateException("No membership snapshot found, the address of a node in the system is needed to recover");
+                }
                 getContext().actorSelection(remote)
-                            .tell(new JoinRequestMessage(id), getSelf());
+                            .tell(new JoinRequestMessage(id, weight, zone, membership.epoch()), getSelf());
                 this.state = State.RECOVERING_WAITING_NODES;
                 logger.info("RECOVER requested: contacting [{}], state={}", remote, state);
                 break;
         }
         assert this.state != null;
+
+        // Periodically reconcile my ranges with the other replicas
+        antiEntropyTimer = getContext().system().scheduler().schedule(
+            Duration.create(ANTI_ENTROPY_INTERVAL_SECONDS, TimeUnit.SECONDS),
+            Duration.create(ANTI_ENTROPY_INTERVAL_SECONDS, TimeUnit.SECONDS),
+            getSelf(), new AntiEntropyTickMessage(id),
+            getContext().system().dispatcher(), getSelf()
+        );
+
+        // Periodically spread my heartbeat and check the ones of the other nodes
+        gossipTimer = getContext().system().scheduler().schedule(
+            Duration.create(GOSSIP_INTERVAL_MILLISECONDS, TimeUnit.MILLISECONDS),
+            Duration.create(GOSSIP_INTERVAL_MILLISECONDS, TimeUnit.MILLISECONDS),
+            getSelf(), new GossipTickMessage(id),
+            getContext().system().dispatcher(), getSelf()
+        );
+
+        // Learn immediately when the connection to another node is lost
+        getContext().system().eventStream().subscribe(getSelf(), DisassociatedEvent.class);
+        getContext().system().eventStream().subscribe(getSelf(), QuarantinedEvent.class);
+    }
+
+    @Override
+    public void postStop() {
+        if (antiEntropyTimer != null) {
+            antiEntropyTimer.cancel();
+        }
+        if (streamTimer != null) {
+            streamTimer.cancel();
+        }
+        if (gossipTimer != null) {
+            gossipTimer.cancel();
+        }
+        getContext().system().eventStream().unsubscribe(getSelf());
     }
 
 	public void onReceive(Object message) {
+		// NB: a node that is recovering uses a new reference and is not ready yet,
+		// it will be handled when its ReJoin updates the ring
+		if (message instanceof BaseMessage) {
+			final int senderId = ((BaseMessage) message).getSenderID();
+			if (getSender().equals(ring.getNode(senderId))) {
+				onNodeSeen(senderId);
+			}
+		}
+
 		if (message instanceof JoinRequestMessage) {
 			onJoinRequest((JoinRequestMessage) message);
-		} else if (message instanceof DataRequestMessage) {
-			onDataRequest((DataRequestMessage) message);
+		} else if (message instanceof StreamRequestMessage) {
+			onStreamRequest((StreamRequestMessage) message);
+		} else if (message instanceof StreamChunkMessage) {
+			onStreamChunk((StreamChunkMessage) message);
+		} else if (message instanceof StreamAckMessage) {
+			onStreamAck((StreamAckMessage) message);
+		} else if (message instanceof StreamPumpMessage) {
+			onStreamPump((StreamPumpMessage) message);
+		} else if (message instanceof StreamTickMessage) {
+			onStreamTick();
 		} else if (message instanceof NodesListMessage) {
 			onNodesList((NodesListMessage) message);
+		} else if (message instanceof ScaleOutAdmitMessage) {
+			onScaleOutAdmit();
+		} else if (message instanceof ScaleOutAdmittedMessage) {
+			onScaleOutAdmitted((ScaleOutAdmittedMessage) message);
+		} else if (message instanceof JoinCompletedMessage) {
+			onJoinCompleted((JoinCompletedMessage) message);
 		} else if (message instanceof ClientLeaveRequest) {
 			onLeaveRequest();
 		} else if (message instanceof ClientReadRequest) {
@@ -243,18 +539,44 @@ public final class NodeActor extends UntypedActor {
 			onWriteResponse((WriteResponse) message);
 		} else if (message instanceof ReadResponse) {
 			onReadResponse((ReadResponse) message);
-		} else if (message instanceof JoinDataMessage) {
-			onJoinData((JoinDataMessage) message);
-		} else if (message instanceof JoinMessage) {
-			onJoin((JoinMessage) message);
-		} else if (message instanceof ReJoinMessage) {
-			onReJoin((ReJoinMessage) message);
-		} else if (message instanceof LeaveMessage) {
-			onLeave((LeaveMessage) message);
-		} else if (message instanceof LeaveDataMessage) {
-			onLeaveData((LeaveDataMessage) message);
+		} else if (message instanceof HedgeMessage) {
+			onHedge((HedgeMessage) message);
+		} else if (message instanceof MembershipDeltaMessage) {
+			onMembershipDelta((MembershipDeltaMessage) message);
+		} else if (message instanceof LeaveOfferMessage) {
+			onLeaveOffer((LeaveOfferMessage) message);
+		} else if (message instanceof RebalanceDataMessage) {
+			onRebalanceData((RebalanceDataMessage) message);
+		} else if (message instanceof HintReplayMessage) {
+			onHintReplay((HintReplayMessage) message);
+		} else if (message instanceof HintReplayAckMessage) {
+			onHintReplayAck((HintReplayAckMessage) message);
+		} else if (message instanceof AntiEntropyTickMessage) {
+			onAntiEntropyTick();
+		} else if (message instanceof MerkleDigestMessage) {
+			onMerkleDigest((MerkleDigestMessage) message);
+		} else if (message instanceof AntiEntropyDataMessage) {
+			onAntiEntropyData((AntiEntropyDataMessage) message);
+		} else if (message instanceof CatchUpRequestMessage) {
+			onCatchUpRequest((CatchUpRequestMessage) message);
+		} else if (message instanceof CatchUpDataMessage) {
+			onCatchUpData((CatchUpDataMessage) message);
+		} else if (message instanceof CatchUpTimeoutMessage) {
+			onCatchUpTimeout();
+		} else if (message instanceof GossipTickMessage) {
+			onGossipTick();
+		} else if (message instanceof GossipMessage) {
+			onGossip((GossipMessage) message);
 		} else if (message instanceof TimeoutMessage) {
 			onRequestTimeout((TimeoutMessage) message);
+		} else if (message instanceof Repartitioner.Completed) {
+			completeRecovery((Repartitioner.Completed) message);
+		} else if (message instanceof DisassociatedEvent) {
+			onConnectionLost(((DisassociatedEvent) message).getRemoteAddress());
+		} else if (message instanceof QuarantinedEvent) {
+			onConnectionLost(((QuarantinedEvent) message).address());
+		} else if (message instanceof ActorIdentity) {
+			onProbeAnswer((ActorIdentity) message);
 		} else {
 			unhandled(message);
 		}
@@ -262,60 +584,235 @@ public final class NodeActor extends UntypedActor {
 
 	private void onJoinRequest(@NotNull JoinRequestMessage msg) {
 		int sender = msg.getSenderID();
-		if (state != State.JOINING_WAITING_NODES && state != State.RECOVERING_WAITING_NODES) {
-			// Informative INFO-level log
-			logger.info("Received JOIN request from node {}. Current ring members: {}",
-				sender, new TreeSet<>(ring.getNodeIDs()));
+		if (state != State.READY && !(state == State.LEAVING && ring.contains(sender))) {
+			logger.warning("JOIN request from node {} ignored (state = {})", sender, state);
+			return;
+		}
 
-			// Reply with the full membership
-			reply(new NodesListMessage(id, ring.getNodes()));
+		// Informative INFO-level log
+		logger.info(String.format("Received JOIN request from node %d (weight=%d, zone=%s, epoch=%d). Current ring members: %s",
+			sender, msg.getWeight(), msg.getZone(), msg.getEpoch(), new TreeSet<>(ring.getNodeIDs())));
+
+		if (ring.contains(sender)) {
+			// A node that recovers: reply with the changes of the membership it does not know
+			reply(new NodesListMessage(id, membership.since(msg.getEpoch()), Collections.emptyList()));
+		} else if (scaleOut != null && scaleOut.contains(sender)) {
+			// The node restarted while receiving its ranges, admit it again
+			scaleOut.admit(sender, getSender(), msg.getWeight(), msg.getZone(), msg.getEpoch());
+			notifyAdmission();
+			reply(new NodesListMessage(id, membership.since(msg.getEpoch()), scaleOut.getJoins()));
+		} else if (!msg.isForwarded() && scaleOutCoordinator() != id) {
+			// Only one node admits new nodes, so that the concurrent joins are admitted together
+			final int coordinator = scaleOutCoordinator();
+			logger.info("Forwarding JOIN request of node {} to node {}", sender, coordinator);
+			ring.getNode(coordinator).forward(msg.forwarded(), getContext());
 		} else {
-			logger.warning("JOIN request from node {} ignored (state = {})", sender, state);
+			// Admit together all the nodes that ask to join in the admission window
+			if (admitting == null) {
+				admitting = new ScaleOutPlan();
+				if (scaleOut == null) {
+					scheduleAdmission();
+				}
+			}
+			admitting.admit(sender, getSender(), msg.getWeight(), msg.getZone(), msg.getEpoch());
 		}
 	}
 
-	private void onDataRequest(@NotNull DataRequestMessage msg) {
-		int sender = msg.getSenderID();
-		if (state == State.READY) {
-			Map<Integer, VersionedItem> records = storageManager.readRecords();
-			logger.info("Received DATA request from node {}. Sending {} records: {}",
-				sender, records.size(), records.keySet());
+	/**
+	 * @return ID of the node that admits the new nodes:
+	 * the node with the lowest ID that is not suspected to be down.
+	 */
+	private int scaleOutCoordinator() {
+		return ring.getNodeIDs().stream()
+			.filter(nodeId -> nodeId == id || !suspectedNodes.contains(nodeId))
+			.min(Integer::compare)
+			.orElse(id);
+	}
 
-			reply(new JoinDataMessage(id, records));
-		} else {
-			logger.warning("DATA request from node {} ignored (state = {})", sender, state);
+	private void scheduleAdmission() {
+		getContext().system().scheduler().scheduleOnce(
+			Duration.create(SCALE_OUT_ADMISSION_MILLISECONDS, TimeUnit.MILLISECONDS),
+			getSelf(), new ScaleOutAdmitMessage(id),
+			getContext().system().dispatcher(), getSelf()
+		);
+	}
+
+	/**
+	 * Admit all the nodes that asked to join in the admission window.
+	 * They compute their ranges on the ring that contains all of them
+	 * and stream them from the current replicas in parallel.
+	 */
+	private void onScaleOutAdmit() {
+		if (admitting == null || scaleOut != null) {
+			return;
+		}
+		scaleOut = admitting;
+		admitting = null;
+		logger.info("Admitting nodes {} to the ring", scaleOut.getNodeIDs());
+		notifyAdmission();
+		final List<MembershipDelta> joins = scaleOut.getJoins();
+		for (MembershipDelta join : joins) {
+			join.getNode().tell(new NodesListMessage(id,
+				membership.since(scaleOut.getKnownEpoch(join.getNodeID())), joins), getSelf());
+		}
+	}
+
+	/**
+	 * Tell the members of the ring which nodes I admitted, before the nodes start to stream their ranges.
+	 * The writes stored after a range was streamed reach the new nodes only if the members forward them.
+	 */
+	private void notifyAdmission() {
+		final ScaleOutAdmittedMessage admission = new ScaleOutAdmittedMessage(id, scaleOut.getJoins());
+		onScaleOutAdmitted(admission);
+		ring.getNodeIDs().stream()
+			.filter(nodeId -> nodeId != id)
+			.forEach(nodeId -> ring.getNode(nodeId).tell(admission, getSelf()));
+	}
+
+	private void onScaleOutAdmitted(@NotNull ScaleOutAdmittedMessage msg) {
+		if (state != State.READY && state != State.LEAVING) {
+			logger.debug("Admission of nodes from node {} ignored (state = {})", msg.getSenderID(), state);
+			return;
+		}
+		scaleOutRing = ring.copy();
+		for (MembershipDelta join : msg.getAdmitted()) {
+			scaleOutRing.addNode(join.getNodeID(), join.getNode(), join.getWeight(), join.getZone());
+		}
+		logger.info("Node {} admitted nodes {}, forwarding them the writes of their ranges until their join",
+			msg.getSenderID(), msg.getAdmitted().stream().map(MembershipDelta::getNodeID).collect(Collectors.toList()));
+	}
+
+	/**
+	 * Called when a node I admitted received all its ranges.
+	 * When all the nodes of the batch did, the joins are announced together,
+	 * so that every node repartitions its records once.
+	 *
+	 * @param msg Message from the joining node.
+	 */
+	private void onJoinCompleted(@NotNull JoinCompletedMessage msg) {
+		final int sender = msg.getSenderID();
+		if (scaleOut == null || !scaleOut.contains(sender)) {
+			// The batch was already announced, but the node did not receive the announcement
+			final MembershipDelta join = membership.get(sender);
+			if (join != null && join.getType() == MembershipDelta.Type.JOIN) {
+				reply(new MembershipDeltaMessage(id, Collections.singletonList(join)));
+			}
+			return;
+		}
+		if (!scaleOut.complete(sender)) {
+			return;
+		}
+		if (!scaleOut.isCompleted()) {
+			logger.info("Node {} received its ranges, still waiting nodes {}", sender, scaleOut.getPending());
+			return;
+		}
+
+		// Announce the whole batch
+		final List<MembershipDelta> joins = scaleOut.announce(membership.nextEpoch());
+		logger.info("Nodes {} received their ranges, announcing their join", scaleOut.getNodeIDs());
+		scaleOut = null;
+		joins.forEach(membership::apply);
+		saveMembership();
+		onJoin(joins);
+		final MembershipDeltaMessage announcement = new MembershipDeltaMessage(id, joins);
+		joins.forEach(join -> join.getNode().tell(announcement, getSelf()));
+		spread(joins, id);
+
+		// Admit the nodes that asked to join in the meantime
+		if (admitting != null) {
+			scheduleAdmission();
 		}
 	}
 
 	private void onLeaveRequest() {
-		logger.info("Client requested LEAVE. Handing off data and exiting.");
-
-		// Prepare data handoff
-		Map<Integer, Map<Integer, VersionedItem>> handoffs = new HashMap<>();
-		Map<Integer, VersionedItem> allRecords = storageManager.readRecords();
-
-		// Partition records among next replicas
-		allRecords.forEach((key, value) -> {
-			Set<Integer> successors = ring.nextResponsibleReplicasForLeaving(key);
-			successors.forEach(replicaId ->
-				handoffs
-				.computeIfAbsent(replicaId, id -> new HashMap<>())
-				.put(key, value)
-			);
-		});
+		if (state == State.LEAVING) {
+			logger.warning("LEAVE already in progress, ignoring request");
+			return;
+		}
+		state = State.LEAVING;
+		leaveRequester = getSender();
+
+		// Find the nodes that will replicate my ranges after the leave
+		leaveRing = ring.copy();
+		leaveRing.removeNode(id);
+		pendingHandoffs.clear();
+		for (TokenRange range : leaveRing.changedRanges(ring)) {
+			final Set<Integer> before = ring.responsibleForPosition(range.getEnd());
+			if (!before.contains(id)) continue;
+			for (Integer nodeId : leaveRing.responsibleForPosition(range.getEnd())) {
+				if (!before.contains(nodeId)) {
+					pendingHandoffs.computeIfAbsent(nodeId, k -> new ArrayList<>()).add(range);
+				}
+			}
+		}
+		if (pendingHandoffs.isEmpty()) {
+			completeLeave();
+			return;
+		}
 
-		// Send handoff data
-		handoffs.forEach((replicaId, recs) -> {
-			logger.info("Sending {} records to successor node {}", recs.size(), replicaId);
-			ring.getNode(replicaId).tell(new LeaveDataMessage(id, recs), getSelf());
-		});
+		// They pull the records as streams, I keep serving requests until they acknowledge them
+		logger.info("Client requested LEAVE. Handing off ranges to nodes {}", pendingHandoffs.keySet());
+		pendingHandoffs.forEach((nodeId, ranges) ->
+			ring.getNode(nodeId).tell(new LeaveOfferMessage(id, ranges), getSelf()));
+		startStreamTimer();
+	}
+
+	private void onLeaveOffer(@NotNull LeaveOfferMessage msg) {
+		final int sender = msg.getSenderID();
+		if (state != State.READY) {
+			logger.warning("LEAVE offer from node {} ignored (state = {})", sender, state);
+			return;
+		}
+		if (incomingStreams.values().stream().anyMatch(stream -> stream.getSource() == sender)) {
+			logger.debug("Already receiving the ranges of node {}", sender);
+			return;
+		}
+		if (!ring.contains(sender)) {
+			// its join did not reach me yet, it offers the ranges again later
+			logger.warning("LEAVE offer from unknown node {} ignored", sender);
+			return;
+		}
+		logger.info("Node {} is leaving, receiving ranges {}", sender, msg.getRanges());
+		requestStream(sender, msg.getRanges());
+		startStreamTimer();
+	}
+
+	/**
+	 * Called when a new replica acknowledged all the ranges I offered to it during the leave.
+	 * When all the new replicas did, I can leave.
+	 *
+	 * @param nodeId ID of the new replica.
+	 */
+	private void onHandoffCompleted(int nodeId) {
+		if (pendingHandoffs.remove(nodeId) == null) {
+			return;
+		}
+		logger.info("Node {} stored my ranges, still waiting nodes {}", nodeId, pendingHandoffs.keySet());
+		if (pendingHandoffs.isEmpty()) {
+			completeLeave();
+		}
+	}
+
+	private void completeLeave() {
+		stopStreamTimer();
 
 		// Notify remaining nodes of departure
-		multicast(new LeaveMessage(id));
-		reply(new ClientLeaveResponse(id));
+		announce(new MembershipDelta(membership.nextEpoch(), MembershipDelta.Type.LEAVE, id, null, weight, zone));
+		leaveRequester.tell(new ClientLeaveResponse(id), getSelf());
+
+		// Deliver the hints I am storing to their owners, if possible
+		for (Integer owner : new ArrayList<>(hintStore.owners())) {
+			final Map<Integer, VersionedItem> hints = hintStore.removeAll(owner);
+			if (ring.contains(owner) && owner != id) {
+				logger.info("Sending {} hinted writes to node {} before leaving", hints.size(), owner);
+				ring.getNode(owner).tell(new HintReplayMessage(id, hints), getSelf());
+			}
+		}
 
-		// Clean up storage
+		// Clean up storage, every range is stored by its new replicas
 		storageManager.deleteStorage();
+		hintStore.deleteStorage();
+		membershipStore.delete();
 
 		if (terminateSystemOnLeave) {
 			logger.info("Terminating actor system on leave.");
@@ -328,30 +825,34 @@ public final class NodeActor extends UntypedActor {
 
 	private void onNodesList(@NotNull NodesListMessage msg) {
 		int sender = msg.getSenderID();
-		Set<Integer> newMembers = msg.getNodes().keySet();
-		logger.info("Received NODES_LIST from {}: {}", sender, newMembers);
-
-		// Update ring membership
-		ring.addNodes(msg.getNodes());
+		logger.info("Received NODES_LIST from {}: {}", sender, msg.getDeltas());
 
 		switch (state) {
 			case JOINING_WAITING_NODES:
-				// Fetch data from predecessor
-				ActorRef pred = ring.nextNodeInTheRing();
-				logger.info("Requesting join data from predecessor node {}", ring.nextIDInTheRing());
-				pred.tell(new DataRequestMessage(id), getSelf());
+				restoreMembership(msg.getDeltas());
+
+				// Stream the ranges I will replicate, in the ring with all the nodes admitted with me,
+				// directly from all their current replicas
+				joinCoordinator = getSender();
+				joinSources = ring.copy();
+				joinSources.removeNode(id);
+				for (MembershipDelta join : msg.getAdmitted()) {
+					ring.addNode(join.getNodeID(), join.getNode(), join.getWeight(), join.getZone());
+				}
+				ring.addNode(id, getSelf(), weight, zone);
 				state = State.JOINING_WAITING_DATA;
-				logger.info("State -> {}", state);
+				logger.info("Admitted together with nodes {}. State -> {}",
+					msg.getAdmitted().stream().map(MembershipDelta::getNodeID).collect(Collectors.toList()), state);
+				requestRanges(ring.rangesOf(id), Collections.emptySet());
+				startStreamTimer();
+				if (incomingStreams.isEmpty()) {
+					finishJoinData();
+				}
 				break;
 
 			case RECOVERING_WAITING_NODES:
-				// Clean up old records, rejoin
-				dropOldKeys();
-				ring.addNode(id, getSelf());
-				logger.info("Re‐joining after crash: re‐announcing to all nodes");
-				multicast(new ReJoinMessage(id));
-				state = State.READY;
-				logger.info("Recovery complete. State -> {}. Members = {}", state, new TreeSet<>(ring.getNodeIDs()));
+				restoreMembership(msg.getDeltas());
+				startRecovery();
 				break;
 
 			default:
@@ -359,10 +860,548 @@ public final class NodeActor extends UntypedActor {
 		}
 	}
 
+	/**
+	 * Update the membership log and the ring with the changes received at startup,
+	 * either from another node or from my snapshot.
+	 *
+	 * @param deltas Changes of the membership, sorted by epoch.
+	 */
+	private void restoreMembership(@NotNull List<MembershipDelta> deltas) {
+		for (MembershipDelta delta : deltas) {
+			if (!membership.apply(delta)) continue;
+			if (delta.getType() == MembershipDelta.Type.LEAVE) {
+				ring.removeNode(delta.getNodeID());
+			} else {
+				ring.addNode(delta.getNodeID(), delta.getNode(), delta.getWeight(), delta.getZone());
+			}
+		}
+		saveMembership();
+	}
+
+	private void startRecovery() {
+		// Load the storage and clean up old records, in background
+		final Ring snapshot = ring.copy();
+		final Set<Integer> self = Collections.singleton(id);
+		repartition(storageManager.readRecords(),
+			key -> snapshot.responsibleForKey(key).contains(id) ? self : Collections.emptySet(),
+			key -> snapshot.responsibleForKey(key).contains(id));
+		state = State.RECOVERING_LOADING;
+		logger.info("State -> {}", state);
+	}
+
+	private void completeRecovery(@NotNull Repartitioner.Completed msg) {
+		final Repartitioner.Plan plan = msg.getPlan();
+		if (plan == null) {
+			logger.error(msg.getFailure(), "Repartitioning of the storage failed, recovery aborted");
+			return;
+		}
+
+		// Persist only the kept keys
+		final Map<Integer, VersionedItem> kept = plan.getBatches().getOrDefault(id, Collections.emptyMap());
+		logger.info(
+			"Repartitioning storage: keeping {} keys, removing {} keys",
+			kept.size(), plan.getRemoved().size()
+		);
+		if (!plan.getRemoved().isEmpty()) {
+			storageManager.removeRecords(plan.getRemoved());
+		}
+		cache.mergeAll(kept);
+
+		// the node may have been restarted with a different weight or zone
+		final Ring previous = ring.copy();
+		ring.addNode(id, getSelf(), weight, zone);
+		if (previous.getWeight(id) != weight || !previous.getZone(id).equals(zone)) {
+			logger.info("Placement changed during recovery: weight {} -> {}, zone {} -> {}",
+				previous.getWeight(id), weight, previous.getZone(id), zone);
+			rebalance(previous, true);
+		}
+
+		// Fetch the records changed while I was down
+		final long since = recoveryWatermark - RECOVERY_CLOCK_SKEW_MILLISECONDS;
+		final Map<Integer, Map<TokenRange, Long>> requests = new HashMap<>();
+		for (TokenRange range : ring.rangesOf(id)) {
+			for (Integer peer : ring.responsibleForPosition(range.getEnd())) {
+				if (peer != id) {
+					requests.computeIfAbsent(peer, p -> new HashMap<>()).put(range, since);
+				}
+			}
+		}
+		if (requests.isEmpty()) {
+			finishRecovery();
+			return;
+		}
+		logger.info("Asking nodes {} for the changes since {}", requests.keySet(), since);
+		pendingDataSources.clear();
+		pendingDataSources.addAll(requests.keySet());
+		requests.forEach((peer, watermarks) ->
+			ring.getNode(peer).tell(new CatchUpRequestMessage(id, watermarks), getSelf()));
+		state = State.RECOVERING_CATCHING_UP;
+		logger.info("State -> {}", state);
+
+		// Do not wait forever for a replica that is down
+		getContext().system().scheduler().scheduleOnce(
+			Duration.create(QUORUM_TIMEOUT_SECONDS, TimeUnit.SECONDS),
+			getSelf(), new CatchUpTimeoutMessage(id),
+			getContext().system().dispatcher(), getSelf()
+		);
+	}
+
+	private void finishRecovery() {
+		logger.info("Re‐joining after crash: re‐announcing to the other nodes");
+		announce(new MembershipDelta(membership.nextEpoch(), MembershipDelta.Type.REJOIN, id, getSelf(), weight, zone));
+		state = State.READY;
+		logger.info("Recovery complete. State -> {}. Members = {}", state, new TreeSet<>(ring.getNodeIDs()));
+	}
+
+	private void onCatchUpRequest(@NotNull CatchUpRequestMessage msg) {
+		final Map<Integer, VersionedItem> records = new HashMap<>();
+		msg.getWatermarks().forEach((range, since) -> records.putAll(cache.changedSince(range, since)));
+		logger.info("Sending {} changed records to recovering node {}", records.size(), msg.getSenderID());
+
+		// Split the records in batches, so that no message exceeds the size of a stream chunk
+		Map<Integer, VersionedItem> batch = new HashMap<>();
+		int size = 0;
+		for (Map.Entry<Integer, VersionedItem> entry : records.entrySet()) {
+			final int recordSize = Segment.recordSize(entry.getValue().getValue());
+			if (!batch.isEmpty() && size + recordSize > STREAM_CHUNK_BYTES) {
+				reply(new CatchUpDataMessage(id, batch, false));
+				batch = new HashMap<>();
+				size = 0;
+			}
+			batch.put(entry.getKey(), entry.getValue());
+			size += recordSize;
+		}
+		reply(new CatchUpDataMessage(id, batch, true));
+	}
+
+	private void onCatchUpData(@NotNull CatchUpDataMessage msg) {
+		final int repaired = mergeNewer(msg.getRecords());
+		logger.info("Received {} changed records from node {} ({} newer than mine)",
+			msg.getRecords().size(), msg.getSenderID(), repaired);
+
+		// The batches of a node arrive in order, the last one completes its reply
+		if (!msg.isLast()) {
+			return;
+		}
+		pendingDataSources.remove(msg.getSenderID());
+		if (state == State.RECOVERING_CATCHING_UP && pendingDataSources.isEmpty()) {
+			finishRecovery();
+		}
+	}
+
+	private void onCatchUpTimeout() {
+		if (state == State.RECOVERING_CATCHING_UP) {
+			logger.warning("Nodes {} did not send the changed records in time, completing the recovery anyway", pendingDataSources);
+			pendingDataSources.clear();
+			finishRecovery();
+		}
+	}
+
+	/**
+	 * Called when I received all my ranges: the node that admitted me
+	 * announces my join when all the nodes admitted with me received theirs.
+	 * NB: the stream timer keeps running, to notify it again if the announcement does not arrive.
+	 */
+	private void finishJoinData() {
+		joinSources = null;
+		state = State.JOINING_WAITING_BATCH;
+		logger.info("Received all my ranges, waiting for the other admitted nodes. State -> {}", state);
+		joinCoordinator.tell(new JoinCompletedMessage(id), getSelf());
+	}
+
+	private void finishJoin() {
+		stopStreamTimer();
+		joinCoordinator = null;
+		state = State.READY;
+		logger.info("Join complete: now READY. Ring members = {}", new TreeSet<>(ring.getNodeIDs()));
+	}
+
+	/**
+	 * Ask the nodes that replicated the given ranges before my join to stream them to me.
+	 * Each range is split evenly among all its replicas, which send their parts in parallel.
+	 *
+	 * @param ranges   Ranges to receive.
+	 * @param excluded Nodes that must not be used as sources, unless they are the only ones available.
+	 */
+	private void requestRanges(@NotNull List<TokenRange> ranges, @NotNull Set<Integer> excluded) {
+		final Map<Integer, List<TokenRange>> assignments = new HashMap<>();
+		int rotation = 0;
+		for (TokenRange range : ranges) {
+			final List<Integer> replicas = joinSources.responsibleForPosition(range.getEnd()).stream()
+				.filter(ring::contains)
+				.collect(Collectors.toList());
+			List<Integer> sources = replicas.stream()
+				.filter(nodeId -> !excluded.contains(nodeId) && !suspectedNodes.contains(nodeId))
+				.collect(Collectors.toList());
+			if (sources.isEmpty()) {
+				sources = replicas;
+			}
+			if (sources.isEmpty()) {
+				logger.error("No node can send the records in range {}", range);
+				continue;
+			}
+
+			// rotate the sources, so that each one gets the same share of the ranges
+			final List<TokenRange> parts = range.split(sources.size());
+			for (int i = 0; i < parts.size(); i++) {
+				final Integer source = sources.get((i + rotation) % sources.size());
+				assignments.computeIfAbsent(source, nodeId -> new ArrayList<>()).add(parts.get(i));
+			}
+			rotation++;
+		}
+		assignments.forEach(this::requestStream);
+	}
+
+	/**
+	 * Ask some node to stream the records in the given ranges to me.
+	 *
+	 * @param source ID of the node that sends the records.
+	 * @param ranges Ranges to receive, in order.
+	 */
+	private void requestStream(int source, @NotNull List<TokenRange> ranges) {
+		final int streamID = ++streamCount;
+		incomingStreams.put(streamID, new IncomingStream(source, streamID, ranges, System.currentTimeMillis()));
+		logger.info("Requesting stream {} of ranges {} from node {}", streamID, ranges, source);
+		ring.getNode(source).tell(new StreamRequestMessage(id, streamID, ranges, STREAM_WINDOW_CHUNKS), getSelf());
+	}
+
+	private void onStreamRequest(@NotNull StreamRequestMessage msg) {
+		final int sender = msg.getSenderID();
+		if (state != State.READY && state != State.LEAVING) {
+			logger.warning("STREAM request from node {} ignored (state = {})", sender, state);
+			return;
+		}
+		logger.info("Streaming ranges {} to node {} (stream {})", msg.getRanges(), sender, msg.getStreamID());
+		final OutgoingStream stream = new OutgoingStream(sender, getSender(), msg.getStreamID(), msg.getRanges(), msg.getCredits());
+		outgoingStreams.computeIfAbsent(sender, nodeId -> new HashMap<>()).put(msg.getStreamID(), stream);
+		pumpStream(stream);
+	}
+
+	private void onStreamAck(@NotNull StreamAckMessage msg) {
+		final OutgoingStream stream = outgoingStreams.getOrDefault(msg.getSenderID(), Collections.emptyMap()).get(msg.getStreamID());
+		if (stream == null) {
+			return;
+		}
+		stream.acknowledge();
+		pumpStream(stream);
+		if (stream.isAcknowledged()) {
+			logger.info("Stream {} to node {} completed", stream.getStreamID(), stream.getTarget());
+			final Map<Integer, OutgoingStream> streams = outgoingStreams.get(stream.getTarget());
+			streams.remove(stream.getStreamID());
+			if (streams.isEmpty()) {
+				outgoingStreams.remove(stream.getTarget());
+			}
+			if (state == State.LEAVING) {
+				onHandoffCompleted(stream.getTarget());
+			}
+		}
+	}
+
+	private void onStreamPump(@NotNull StreamPumpMessage msg) {
+		final OutgoingStream stream = outgoingStreams.getOrDefault(msg.getTarget(), Collections.emptyMap()).get(msg.getStreamID());
+		if (stream != null) {
+			stream.setPumpScheduled(false);
+			pumpStream(stream);
+		}
+	}
+
+	/**
+	 * Send the next chunks of a stream, as long as the receiver granted credits
+	 * and the transfer rate stays below STREAM_RATE_MB_PER_SECOND.
+	 *
+	 * @param stream Stream to send.
+	 */
+	private void pumpStream(@NotNull OutgoingStream stream) {
+		final double bytesPerNano = STREAM_RATE_MB_PER_SECOND * 1024.0 * 1024.0 / TimeUnit.SECONDS.toNanos(1);
+		while (stream.canSend()) {
+			final long delay = stream.delay(System.nanoTime());
+			if (delay > 0) {
+				if (!stream.isPumpScheduled()) {
+					stream.setPumpScheduled(true);
+					getContext().system().scheduler().scheduleOnce(
+						Duration.create(delay, TimeUnit.NANOSECONDS),
+						getSelf(), new StreamPumpMessage(id, stream.getTarget(), stream.getStreamID()),
+						getContext().system().dispatcher(), getSelf()
+					);
+				}
+				return;
+			}
+			final StreamChunkMessage chunk = stream.nextChunk(id, cache, STREAM_CHUNK_BYTES, System.nanoTime(), bytesPerNano);
+			logger.debug("Sending chunk {} of stream {} to node {}: {} bytes",
+				chunk.getSequence(), chunk.getStreamID(), stream.getTarget(), chunk.getSegment().length);
+			stream.getReceiver().tell(chunk, getSelf());
+		}
+	}
+
+	private void onStreamChunk(@NotNull StreamChunkMessage msg) {
+		final int sender = msg.getSenderID();
+		final IncomingStream stream = incomingStreams.get(msg.getStreamID());
+		if (stream == null || stream.getSource() != sender) {
+			logger.debug("Ignoring chunk {} of stream {} from node {}", msg.getSequence(), msg.getStreamID(), sender);
+			return;
+		}
+
+		// A corrupted chunk is not acknowledged: the stream stalls and it is resumed after the last good chunk
+		final Map<Integer, VersionedItem> records;
+		try {
+			records = Segment.decode(msg.getSegment());
+		} catch (ReadException e) {
+			logger.error(e, "Discarding chunk {} of stream {} from node {}", msg.getSequence(), msg.getStreamID(), sender);
+			return;
+		}
+		if (!stream.advance(msg, System.currentTimeMillis())) {
+			logger.debug("Ignoring chunk {} of stream {} from node {}", msg.getSequence(), msg.getStreamID(), sender);
+			return;
+		}
+
+		// Persist before acknowledging, so that at most STREAM_WINDOW_CHUNKS chunks are pending
+		mergeNewer(records);
+		reply(new StreamAckMessage(id, msg.getStreamID(), msg.getSequence()));
+		logger.debug("Received chunk {} of stream {} from node {}: {} records",
+			msg.getSequence(), msg.getStreamID(), sender, records.size());
+
+		if (!stream.isCompleted()) {
+			return;
+		}
+		incomingStreams.remove(msg.getStreamID());
+		logger.info("Stream {} from node {} completed", msg.getStreamID(), sender);
+		if (!incomingStreams.isEmpty()) {
+			logger.info("Still waiting streams {}", incomingStreams.keySet());
+		} else if (state == State.JOINING_WAITING_DATA) {
+			finishJoinData();
+		} else if (state != State.LEAVING) {
+			stopStreamTimer();
+		}
+	}
+
+	private void onStreamTick() {
+		final long now = System.currentTimeMillis();
+		for (IncomingStream stream : new ArrayList<>(incomingStreams.values())) {
+			final int source = stream.getSource();
+			if (ring.contains(source) && now - stream.getLastActivity() < TimeUnit.SECONDS.toMillis(STREAM_STALL_TIMEOUT_SECONDS)) {
+				continue;
+			}
+			incomingStreams.remove(stream.getStreamID());
+
+			if (state == State.JOINING_WAITING_DATA) {
+				// Move the rest of the stream to the other replicas
+				logger.warning("Stream {} from node {} stalled, moving the remaining ranges to other nodes", stream.getStreamID(), source);
+				suspectedNodes.add(source);
+				requestRanges(stream.remainingRanges(), Collections.singleton(source));
+			} else if (ring.contains(source)) {
+				// Only the leaving node has the records, resume from it
+				logger.warning("Stream {} from node {} stalled, resuming it", stream.getStreamID(), source);
+				requestStream(source, stream.remainingRanges());
+			} else {
+				logger.warning("Stream {} stalled and node {} is not in the ring anymore", stream.getStreamID(), source);
+			}
+		}
+
+		// Offer again my ranges to the new replicas that did not ask for them (eg. the offer was lost)
+		if (state == State.LEAVING) {
+			boolean dropped = false;
+			for (Integer nodeId : new ArrayList<>(pendingHandoffs.keySet())) {
+				if (!ring.contains(nodeId)) {
+					// it left too, the remaining replicas of the ranges restore it with anti-entropy
+					logger.warning("Node {} left before storing my ranges, not waiting for it", nodeId);
+					pendingHandoffs.remove(nodeId);
+					dropped = true;
+				} else if (!outgoingStreams.containsKey(nodeId)) {
+					logger.warning("Node {} did not ask for my ranges yet, offering them again", nodeId);
+					ring.getNode(nodeId).tell(new LeaveOfferMessage(id, pendingHandoffs.get(nodeId)), getSelf());
+				}
+			}
+			if (dropped && pendingHandoffs.isEmpty()) {
+				completeLeave();
+			}
+		} else if (incomingStreams.isEmpty()) {
+			if (state == State.JOINING_WAITING_DATA) {
+				finishJoinData();
+			} else if (state == State.JOINING_WAITING_BATCH) {
+				joinCoordinator.tell(new JoinCompletedMessage(id), getSelf());
+			} else {
+				stopStreamTimer();
+			}
+		}
+	}
+
+	private void startStreamTimer() {
+		if (streamTimer == null) {
+			streamTimer = getContext().system().scheduler().schedule(
+				Duration.create(STREAM_STALL_TIMEOUT_SECONDS, TimeUnit.SECONDS),
+				Duration.create(STREAM_STALL_TIMEOUT_SECONDS, TimeUnit.SECONDS),
+				getSelf(), new StreamTickMessage(id),
+				getContext().system().dispatcher(), getSelf()
+			);
+		}
+	}
+
+	private void stopStreamTimer() {
+		if (streamTimer != null) {
+			streamTimer.cancel();
+			streamTimer = null;
+		}
+	}
+
+	private void onGossipTick() {
+		if (state != State.READY && state != State.LEAVING) {
+			return;
+		}
+		final long now = System.currentTimeMillis();
+		heartbeats.put(id, heartbeats.get(id).next());
+
+		// Mark as down the nodes whose heartbeats stopped
+		for (Integer nodeId : ring.getNodeIDs()) {
+			if (nodeId == id || downNodes.contains(nodeId)) continue;
+			if (!failureDetector.isMonitoring(nodeId)) {
+				// start the clock, in case no heartbeat ever arrives
+				failureDetector.heartbeat(nodeId, now);
+				continue;
+			}
+			final double phi = failureDetector.phi(nodeId, now);
+			if (phi > PHI_THRESHOLD) {
+				logger.warning("Node {} is down (phi = {})", nodeId, String.format("%.1f", phi));
+				downNodes.add(nodeId);
+				suspectedNodes.add(nodeId);
+			}
+		}
+
+		// Probe the suspected nodes that are not down: they may have missed a response
+		// only because they were busy, or they may be reachable again
+		for (Integer nodeId : suspectedNodes) {
+			if (!downNodes.contains(nodeId) && ring.contains(nodeId)) {
+				ring.getNode(nodeId).tell(new Identify(nodeId), getSelf());
+			}
+		}
+
+		// Send the heartbeats of the nodes in the ring to some random nodes
+		final List<Integer> peers = ring.getNodeIDs().stream()
+			.filter(nodeId -> nodeId != id)
+			.collect(Collectors.toList());
+		Collections.shuffle(peers, random);
+		final Map<Integer, Heartbeat> digest = new HashMap<>();
+		heartbeats.forEach((nodeId, heartbeat) -> {
+			if (ring.contains(nodeId)) digest.put(nodeId, heartbeat);
+		});
+		for (Integer peer : peers.subList(0, Math.min(GOSSIP_FANOUT, peers.size()))) {
+			ring.getNode(peer).tell(new GossipMessage(id, digest, membership.epoch(), membership.checksum()), getSelf());
+		}
+	}
+
+	private void onGossip(@NotNull GossipMessage msg) {
+		final long now = System.currentTimeMillis();
+		msg.getHeartbeats().forEach((nodeId, heartbeat) -> {
+			if (nodeId == id || !ring.contains(nodeId)) {
+				return;
+			}
+			final Heartbeat known = heartbeats.get(nodeId);
+			if (known != null && known.compareTo(heartbeat) >= 0) {
+				return;
+			}
+			heartbeats.put(nodeId, heartbeat);
+			if (known != null && known.getGeneration() != heartbeat.getGeneration()) {
+				failureDetector.remove(nodeId);
+			}
+			failureDetector.heartbeat(nodeId, now);
+			if (downNodes.remove(nodeId)) {
+				logger.info("Node {} is up again", nodeId);
+				onNodeSeen(nodeId);
+			}
+		});
+
+		// Send the changes of the membership the node missed, if any
+		// NB: if the node knows more, it will send them when it receives my gossip
+		if (msg.getMembershipEpoch() < membership.epoch()) {
+			reply(new MembershipDeltaMessage(id, membership.since(msg.getMembershipEpoch())));
+		} else if (msg.getMembershipEpoch() == membership.epoch() && msg.getMembershipChecksum() != membership.checksum()) {
+			// concurrent changes with the same epoch: one of the two nodes missed some, send everything
+			reply(new MembershipDeltaMessage(id, membership.since(0)));
+		}
+	}
+
+	/**
+	 * Record a change of my membership and spread it to some random nodes,
+	 * which will forward it to the other nodes.
+	 *
+	 * @param delta Change about this node.
+	 */
+	private void announce(@NotNull MembershipDelta delta) {
+		membership.apply(delta);
+		saveMembership();
+		logger.info("Announcing {}", delta);
+		spread(Collections.singletonList(delta), id);
+	}
+
+	private void onMembershipDelta(@NotNull MembershipDeltaMessage msg) {
+		final List<MembershipDelta> fresh = new ArrayList<>();
+		final List<MembershipDelta> joins = new ArrayList<>();
+		for (MembershipDelta delta : msg.getDeltas()) {
+			if (!membership.apply(delta)) {
+				continue;
+			}
+			fresh.add(delta);
+			if (delta.getNodeID() == id) {
+				// my join was announced by the node that admitted me
+				if (delta.getType() == MembershipDelta.Type.JOIN && state == State.JOINING_WAITING_BATCH) {
+					finishJoin();
+				}
+			} else if (delta.getType() == MembershipDelta.Type.JOIN
+				|| (delta.getType() == MembershipDelta.Type.REJOIN && !ring.contains(delta.getNodeID()))) {
+				joins.add(delta);
+			} else if (delta.getType() == MembershipDelta.Type.REJOIN) {
+				onReJoin(delta);
+			} else if (ring.contains(delta.getNodeID())) {
+				onLeave(delta);
+			}
+		}
+
+		// The nodes admitted together join at once, so I repartition my records once
+		if (!joins.isEmpty()) {
+			onJoin(joins);
+		}
+		if (!fresh.isEmpty()) {
+			saveMembership();
+		}
+
+		// Forward only the changes I did not know, so that every node forwards each change once
+		if (!fresh.isEmpty()) {
+			logger.debug("Received new membership changes {} from node {}", fresh, msg.getSenderID());
+			spread(fresh, msg.getSenderID());
+		}
+	}
+
+	/**
+	 * Send some changes of the membership to GOSSIP_FANOUT random nodes.
+	 *
+	 * @param deltas   Changes.
+	 * @param excluded Node that does not need them.
+	 */
+	private void spread(@NotNull List<MembershipDelta> deltas, int excluded) {
+		final List<Integer> peers = ring.getNodeIDs().stream()
+			.filter(nodeId -> nodeId != id && nodeId != excluded)
+			.collect(Collectors.toList());
+		Collections.shuffle(peers, random);
+		final MembershipDeltaMessage message = new MembershipDeltaMessage(id, deltas);
+		for (Integer peer : peers.subList(0, Math.min(GOSSIP_FANOUT, peers.size()))) {
+			ring.getNode(peer).tell(message, getSelf());
+		}
+	}
+
 	public void onClientReadRequest(@NotNull ClientReadRequest message) {
 		final int key = message.getKey();
 		final int clusterSize = ring.size();
 
+		// Join the read of the same key already in flight, if any: no new requests to the replicas
+		if (readOptions.isCoalesce()) {
+			final Integer inFlight = inFlightReads.get(key);
+			final ReadRequestStatus pending = inFlight != null ? readRequests.get(inFlight) : null;
+			if (pending != null && pending.getKnownVersion() == message.getKnownVersion()) {
+				pending.attach(getSender());
+				logger.debug("Read request for key={} joins the read {} in flight", key, inFlight);
+				return;
+			}
+		}
+
 		// Check quorum viability
 		if (readQuorum > clusterSize) {
 			logger.warning(
@@ -376,13 +1415,21 @@ public final class NodeActor extends UntypedActor {
 			return;
 		}
 
-		// Register the pending read
-		requestCount++;
-		readRequests.put(requestCount, new ReadRequestStatus(key, getSender(), readQuorum));
-
 		// Compute placement
 		final int hashedKey = HashUtil.hash(key);
-		final Set<Integer> responsible = ring.responsibleForKey(key);
+		final List<Integer> responsible = reachableReplicas(ring.preferZone(ring.responsibleForKey(key), zone));
+		if (responsible.size() < readQuorum) {
+			logger.warning("Read request for key={} failed: only replicas {} are reachable", key, responsible);
+			reply(new ClientOperationErrorResponse(id, "Read failed: insufficient replicas reachable for quorum"));
+			return;
+		}
+
+		// Register the pending read
+		requestCount++;
+		readRequests.put(requestCount, new ReadRequestStatus(key, getSender(), readQuorum, message.getKnownVersion()));
+		if (readOptions.isCoalesce()) {
+			inFlightReads.put(key, requestCount);
+		}
 
 		// Debug‐level detail
 		logger.debug(
@@ -390,23 +1437,115 @@ public final class NodeActor extends UntypedActor {
 			key, hashedKey, responsible
 		);
 
-		// Kick off the read
-		responsible.forEach(nodeId ->
-			ring.getNode(nodeId).tell(new ReadRequest(id, requestCount, key), getSelf())
-		);
+		// Order the replicas by preference: me first (no message needed), then the ones that answer
+		// faster, the replicas in other zones are penalized. The preferred replicas are the ones
+		// contacted by hedged reads and the one that returns the value for digest reads.
+		final int requestId = requestCount;
+		final List<Integer> ordered = replicaScores.rank(responsible, nodeId -> !zone.equals(ring.getZone(nodeId)));
+		if (ordered.remove((Integer) id)) {
+			ordered.add(0, id);
+		}
+
+		// Contact only a quorum of replicas, the others are used if some answer is late
+		List<Integer> contacted = ordered;
+		if (readOptions.isHedged() && ordered.size() > readQuorum) {
+			contacted = new ArrayList<>(ordered.subList(0, readQuorum));
+			spareReplicas.put(requestId, new ArrayDeque<>(ordered.subList(readQuorum, ordered.size())));
+			scheduleHedge(requestId, contacted);
+		}
+
+		// Kick off the read, the local replica (if any) is served without a message
+		sendReads(requestId, contacted, key, message.getKnownVersion());
 		logger.info(
 			"Read request for key={} forwarded to nodes {} (out of {})",
-			key, responsible, ring.getNodeIDs()
+			key, contacted, ring.getNodeIDs()
 		);
 
 		// Schedule quorum timeout
-		final TimeoutMessage timeout = new TimeoutMessage(id, requestCount);
-		Cancellable timer = getContext().system().scheduler().scheduleOnce(
-			Duration.create(QUORUM_TIMEOUT_SECONDS, TimeUnit.SECONDS),
-			getSelf(), timeout,
+		scheduleQuorumTimeout(requestId, QuorumTimeouts.Operation.READ);
+
+		// My own vote may already be enough to reach the quorum
+		if (contacted.contains(id)) {
+			onReadVote(requestId, id, read(key), false);
+		}
+	}
+
+	/**
+	 * Send a read to the given replicas. With digest reads, only the first replica
+	 * (or none, if this node is one of the replicas) returns the value, the others return its version.
+	 * Replicas that store the version known by the client return only the version.
+	 *
+	 * @param requestId    ID of the read.
+	 * @param replicas     Replicas to contact, the preferred one first.
+	 * @param key          Key to read.
+	 * @param knownVersion Version of the key known by the client, or 0 if none.
+	 */
+	private void sendReads(int requestId, @NotNull List<Integer> replicas, int key, long knownVersion) {
+		if (!readOptions.isDigest() || replicas.isEmpty()) {
+			sendToReplicas(requestId, replicas, new ReadRequest(id, requestId, key, false, knownVersion));
+			return;
+		}
+		final int full = replicas.contains(id) ? id : replicas.get(0);
+		sendToReplicas(requestId, Collections.singleton(full), new ReadRequest(id, requestId, key, false, knownVersion));
+		sendToReplicas(requestId, replicas.stream().filter(nodeId -> nodeId != full).collect(Collectors.toList()),
+			new ReadRequest(id, requestId, key, true));
+	}
+
+	/**
+	 * Schedule a speculative request for a read, after the time in which
+	 * the contacted replicas usually answer (HEDGE_PERCENTILE of their response times).
+	 *
+	 * @param requestId ID of the read.
+	 * @param contacted Replicas contacted.
+	 */
+	private void scheduleHedge(int requestId, @NotNull Collection<Integer> contacted) {
+		long delay = -1;
+		for (Integer nodeId : contacted) {
+			if (nodeId == id) continue;
+			final long percentile = latencies.percentile(nodeId, HEDGE_PERCENTILE);
+			delay = Math.max(delay, percentile >= 0 ? percentile : TimeUnit.MILLISECONDS.toNanos(HEDGE_DEFAULT_DELAY_MILLISECONDS));
+		}
+		if (delay < 0) {
+			// only my vote is needed, it is never late
+			return;
+		}
+		getContext().system().scheduler().scheduleOnce(
+			Duration.create(Math.max(delay, TimeUnit.MILLISECONDS.toNanos(1)), TimeUnit.NANOSECONDS),
+			getSelf(), new HedgeMessage(id, requestId),
 			getContext().system().dispatcher(), getSelf()
 		);
-		requestsTimers.put(requestCount, timer);
+	}
+
+	/**
+	 * Called when the answers to a read are late: one more replica is contacted.
+	 * The read completes with the first answers that form the quorum, the others are ignored.
+	 *
+	 * @param msg Message with the ID of the read.
+	 */
+	private void onHedge(@NotNull HedgeMessage msg) {
+		final int requestId = msg.getRequestID();
+		final Deque<Integer> spares = spareReplicas.get(requestId);
+		final ReadRequestStatus status = readRequests.get(requestId);
+		if (spares == null || status == null) {
+			spareReplicas.remove(requestId);
+			return;
+		}
+
+		Integer spare = spares.poll();
+		while (spare != null && suspectedNodes.contains(spare)) {
+			spare = spares.poll();
+		}
+		if (spares.isEmpty()) {
+			spareReplicas.remove(requestId);
+		}
+		if (spare == null) {
+			return;
+		}
+		logger.debug("Read request {} is late, sending a speculative request to node {}", requestId, spare);
+		sendToReplicas(requestId, Collections.singleton(spare), new ReadRequest(id, requestId, status.getKey(), readOptions.isDigest()));
+		if (spareReplicas.containsKey(requestId)) {
+			scheduleHedge(requestId, Collections.singleton(spare));
+		}
 	}
 
 
@@ -428,6 +1567,21 @@ public final class NodeActor extends UntypedActor {
 			return;
 		}
 
+		// Single round trip: stamp the value with my clock and write it immediately
+		if (HLC_WRITES) {
+			writeWithTimestamp(key, value);
+			return;
+		}
+
+		// Compute placement, replicas in my zone first
+		final int hashedKey = HashUtil.hash(key);
+		final List<Integer> responsible = reachableReplicas(ring.preferZone(ring.responsibleForKey(key), zone));
+		if (responsible.size() < readQuorum || reachableWriteTargets(key) < writeQuorum) {
+			logger.warning("Update request for key={} failed: only replicas {} are reachable", key, responsible);
+			reply(new ClientOperationErrorResponse(id, "Update failed: insufficient replicas reachable for quorum"));
+			return;
+		}
+
 		// Register the pending update (gather phase)
 		requestCount++;
 		writeRequests.put(
@@ -435,10 +1589,6 @@ public final class NodeActor extends UntypedActor {
 			new UpdateRequestStatus(key, value, getSender(), readQuorum, writeQuorum)
 		);
 
-		// Compute placement
-		final int hashedKey = HashUtil.hash(key);
-		final Set<Integer> responsible = ring.responsibleForKey(key);
-
 		// Debug‐level detail
 		logger.debug(
 			"Key placement for update: rawKey={} → hashedKey={} → replicas={}",
@@ -446,22 +1596,257 @@ public final class NodeActor extends UntypedActor {
 		);
 
 		// Start by reading current versions from replicas
-		responsible.forEach(nodeId ->
-			ring.getNode(nodeId).tell(new ReadRequest(id, requestCount, key), getSelf())
-		);
+		final int requestId = requestCount;
+		sendToReplicas(requestId, responsible, new ReadRequest(id, requestId, key, readOptions.isDigest()));
 		logger.info(
 			"Update request for key={} initiated, asking current versions from nodes {}",
 			key, responsible
 		);
 
 		// Schedule quorum timeout
-		final TimeoutMessage timeout = new TimeoutMessage(id, requestCount);
-		Cancellable timer = getContext().system().scheduler().scheduleOnce(
-			Duration.create(QUORUM_TIMEOUT_SECONDS, TimeUnit.SECONDS),
+		scheduleQuorumTimeout(requestId, QuorumTimeouts.Operation.READ);
+
+		// Use my local version directly, if I am one of the replicas
+		if (responsible.contains(id)) {
+			onReadVote(requestId, id, read(key), false);
+		}
+	}
+
+	/**
+	 * Coordinate an update in a single round trip: the new value is versioned
+	 * with a hybrid logical clock timestamp and sent to all replicas without reading
+	 * the current version first. Replicas keep the value with the highest version.
+	 *
+	 * @param key   Key to update.
+	 * @param value New value for the key.
+	 */
+	private void writeWithTimestamp(int key, @NotNull String value) {
+		if (reachableWriteTargets(key) < writeQuorum) {
+			logger.warning("Update request for key={} failed: not enough reachable nodes to store it", key);
+			reply(new ClientOperationErrorResponse(id, "Update failed: insufficient replicas reachable for quorum"));
+			return;
+		}
+		requestCount++;
+		final int requestId = requestCount;
+		final VersionedItem item = new VersionedItem(value, clock.now());
+		writeResponses.put(requestId, new UpdateResponseStatus(key, item, getSender(), readQuorum, writeQuorum));
+
+		logger.info("Update request for key={} stamped with timestamp {}", key, item.getVersion());
+
+		// Schedule quorum timeout, then write
+		scheduleQuorumTimeout(requestId, QuorumTimeouts.Operation.WRITE);
+		sendWrite(requestId, key, item);
+	}
+
+	/**
+	 * Send a write to the replicas of the key. Replicas believed to be unreachable
+	 * are substituted by the next healthy nodes on the ring, which store the write
+	 * as a hint for them (sloppy quorum). If this node is one of the targets,
+	 * the write is applied locally and acknowledged directly.
+	 *
+	 * @param requestId ID of the request.
+	 * @param key       Key to write.
+	 * @param item      Record to write.
+	 */
+	private void sendWrite(int requestId, int key, @NotNull VersionedItem item) {
+		final Map<Integer, Integer> targets = ring.sloppyReplicasForKey(key, nodeId -> !suspectedNodes.contains(nodeId));
+		awaitReplicas(requestId, targets.keySet());
+		targets.forEach((target, owner) -> {
+			if (target != id) {
+				final Integer hintFor = target.equals(owner) ? null : owner;
+				ring.getNode(target).tell(new WriteRequest(id, requestId, key, item, hintFor), getSelf());
+			}
+		});
+		logger.info("Sent WriteRequest[{}] for key={} to nodes {} (node -> intended replica)", requestId, key, targets);
+
+		// Apply the write locally and count my own ack
+		final Integer myOwner = targets.get(id);
+		if (myOwner != null) {
+			storeWrite(key, item, myOwner == id ? null : myOwner);
+			onWriteAck(requestId, id);
+		}
+	}
+	/**
+	 * Send a request to every replica in the list except this node:
+	 * the local replica is served directly by the coordinator.
+	 *
+	 * @param requestId ID of the request.
+	 * @param replicas  Replicas to contact.
+	 * @param request   Request to send.
+	 */
+	private void sendToReplicas(int requestId, @NotNull Collection<Integer> replicas, @NotNull Serializable request) {
+		awaitReplicas(requestId, replicas);
+		for (Integer nodeId : replicas) {
+			if (nodeId != id) {
+				ring.getNode(nodeId).tell(request, getSelf());
+			}
+		}
+	}
+
+	/**
+	 * Remove the replicas that are suspected to be unreachable, so that the coordinator
+	 * does not send them requests. If the remaining ones are not enough for the quorum,
+	 * the request fails immediately instead of waiting for the timeout:
+	 * suspects that are wrong are cleared by the probes sent at every gossip round.
+	 *
+	 * @param replicas Replicas of a key.
+	 * @return The replicas to contact.
+	 */
+	@NotNull
+	private List<Integer> reachableReplicas(@NotNull List<Integer> replicas) {
+		return replicas.stream()
+			.filter(nodeId -> !suspectedNodes.contains(nodeId))
+			.collect(Collectors.toList());
+	}
+
+	/**
+	 * @param key Key to write.
+	 * @return Number of reachable nodes that would receive a write of the key,
+	 * i.e. the reachable replicas plus the next healthy nodes that substitute the other ones.
+	 */
+	private int reachableWriteTargets(int key) {
+		return (int) ring.sloppyReplicasForKey(key, nodeId -> !suspectedNodes.contains(nodeId)).keySet().stream()
+			.filter(nodeId -> !suspectedNodes.contains(nodeId))
+			.count();
+	}
+
+	/**
+	 * Called when the connection to a remote actor system is lost:
+	 * the nodes in that system are suspected immediately, without waiting for a request to time out.
+	 *
+	 * @param address Address of the remote actor system.
+	 */
+	private void onConnectionLost(@NotNull Address address) {
+		for (Integer nodeId : ring.getNodeIDs()) {
+			if (nodeId != id && address.equals(ring.getNode(nodeId).path().address()) && suspectedNodes.add(nodeId)) {
+				logger.warning("Lost connection to node {} ({}), suspecting it", nodeId, address);
+			}
+		}
+	}
+
+	/**
+	 * Called when a suspected node answers to a probe: it is reachable again.
+	 *
+	 * @param identity Answer to the probe.
+	 */
+	private void onProbeAnswer(@NotNull ActorIdentity identity) {
+		if (identity.getRef() != null && identity.correlationId() instanceof Integer) {
+			final int nodeId = (Integer) identity.correlationId();
+			if (identity.getRef().equals(ring.getNode(nodeId))) {
+				onNodeSeen(nodeId);
+			}
+		}
+	}
+
+	/**
+	 * Remember that the given nodes have to answer to some request.
+	 * Nodes that do not answer within QUORUM_TIMEOUT_SECONDS are suspected to be unreachable.
+	 *
+	 * @param requestId ID of the request.
+	 * @param nodes     Nodes contacted.
+	 */
+	private void awaitReplicas(int requestId, @NotNull Collection<Integer> nodes) {
+		final Map<Integer, Long> awaited = awaitedReplicas.computeIfAbsent(requestId, r -> new HashMap<>());
+		final long now = System.nanoTime();
+		for (Integer nodeId : nodes) {
+			if (nodeId != id && awaited.put(nodeId, now) == null) {
+				replicaScores.sent(nodeId);
+			}
+		}
+	}
+
+	/**
+	 * Remember that a node answered to some request, and how long it took.
+	 *
+	 * @param requestId ID of the request.
+	 * @param nodeId    Node that answered.
+	 */
+	private void onReplicaAnswer(int requestId, int nodeId) {
+		final Map<Integer, Long> awaited = awaitedReplicas.get(requestId);
+		final Long sentAt = awaited != null ? awaited.remove(nodeId) : null;
+		if (sentAt != null) {
+			final long elapsed = System.nanoTime() - sentAt;
+			latencies.record(nodeId, elapsed);
+			replicaScores.answered(nodeId, elapsed);
+		}
+	}
+
+	/**
+	 * Stop waiting for the answers to some request.
+	 *
+	 * @param requestId ID of the request.
+	 * @return The nodes that did not answer, with the time the request was sent to them, or null.
+	 */
+	@Nullable
+	private Map<Integer, Long> stopAwaiting(int requestId) {
+		final Map<Integer, Long> silent = awaitedReplicas.remove(requestId);
+		if (silent != null) {
+			silent.keySet().forEach(replicaScores::abandoned);
+		}
+		return silent;
+	}
+
+	/**
+	 * Stop the timer of a request that reached its quorum, unless some
+	 * replica did not answer yet: in this case, the timer is used to close the read repair
+	 * and then to find out if the replica is unreachable.
+	 *
+	 * @param requestId ID of the request.
+	 */
+	private void completeRequest(int requestId) {
+		final Map<Integer, Long> awaited = awaitedReplicas.get(requestId);
+		if (awaited == null || awaited.isEmpty()) {
+			awaitedReplicas.remove(requestId);
+			final Cancellable timer = requestsTimers.remove(requestId);
+			if (timer != null) timer.cancel();
+		}
+	}
+
+	/**
+	 * Called for every message received from another node:
+	 * the node is reachable, so it is not suspected anymore.
+	 * If some writes were stored for it, they are delivered.
+	 *
+	 * @param nodeId ID of the node.
+	 */
+	private void onNodeSeen(int nodeId) {
+		if (suspectedNodes.remove(nodeId)) {
+			logger.info("Node {} is reachable again", nodeId);
+			replayHints(nodeId);
+		}
+	}
+
+	/**
+	 * Schedule the timeout for a request waiting for a quorum.
+	 * The timeout depends on how long the recent requests of the same type took to reach the quorum.
+	 *
+	 * @param requestId ID of the request.
+	 * @param operation Type of the request.
+	 */
+	private void scheduleQuorumTimeout(int requestId, @NotNull QuorumTimeouts.Operation operation) {
+		final TimeoutMessage timeout = new TimeoutMessage(id, requestId);
+		final Cancellable timer = getContext().system().scheduler().scheduleOnce(
+			Duration.create(quorumTimeouts.start(requestId, operation), TimeUnit.MILLISECONDS),
 			getSelf(), timeout,
 			getContext().system().dispatcher(), getSelf()
 		);
-		requestsTimers.put(requestCount, timer);
+		requestsTimers.put(requestId, timer);
+	}
+
+	/**
+	 * Schedule a new timeout for a request whose timeout expired while some replicas were still
+	 * awaited but not yet suspected, to check them again once they had QUORUM_TIMEOUT_SECONDS to answer.
+	 *
+	 * @param requestId ID of the request.
+	 * @param delay     Time until the replicas are suspected, in nanoseconds.
+	 */
+	private void scheduleStragglersTimeout(int requestId, long delay) {
+		final Cancellable timer = getContext().system().scheduler().scheduleOnce(
+			Duration.create(delay, TimeUnit.NANOSECONDS),
+			getSelf(), new TimeoutMessage(id, requestId),
+			getContext().system().dispatcher(), getSelf()
+		);
+		requestsTimers.put(requestId, timer);
 	}
 
 
@@ -480,8 +1865,13 @@ protected void onReadRequest(ReadRequest message) {
     // Debug‐level detail
     logger.debug("Lookup result for key {}: {}", key, value);
 
-    // Reply with the versioned item or null
-    reply(new ReadResponse(id, requestId, key, item));
+    // Reply with the versioned item or null, without the value if only the version is needed
+    // or if the coordinator already knows it
+    if (message.isDigest() || (item != null && item.getVersion() == message.getKnownVersion())) {
+        reply(new ReadResponse(id, requestId, key, item != null ? new VersionedItem(null, item.getVersion()) : null, true));
+    } else {
+        reply(new ReadResponse(id, requestId, key, item));
+    }
 }
 
 protected void onWriteRequest(WriteRequest message) {
@@ -498,17 +1888,27 @@ protected void onWriteRequest(WriteRequest message) {
     )
 );
 
-    // Perform the write (write‐through cache + persistent storage)
-    write(key, newItem);
+    // Perform the write (write‐through cache + persistent storage),
+    // or keep it as a hint if I am storing it for an unreachable replica
+    clock.update(newItem.getVersion());
+    Integer hintFor = message.getHintFor();
+    storeWrite(key, newItem, hintFor != null && hintFor != id ? hintFor : null);
 
-    // Acknowledge back to the coordinator
-    ring.getNode(senderId).tell(new WriteResponse(id, requestId), getSelf());
+    // Acknowledge back to the coordinator (it may not be in my ring yet, if its join did not reach me)
+    reply(new WriteResponse(id, requestId));
     logger.debug("Sent WriteResponse[{}] ack to node {}", requestId, senderId);
 }
 
 protected void onWriteResponse(WriteResponse message) {
-    int requestId = message.getRequestID();
-    int senderId  = message.getSenderID();
+    onWriteAck(message.getRequestID(), message.getSenderID());
+}
+
+/**
+ * Count a write acknowledgement, either received from a replica
+ * or produced locally when this node is one of the replicas.
+ */
+private void onWriteAck(int requestId, int senderId) {
+    onReplicaAnswer(requestId, senderId);
 
     // Grab the pending status, or ignore if stale
     UpdateResponseStatus status = writeResponses.get(requestId);
@@ -530,13 +1930,18 @@ protected void onWriteResponse(WriteResponse message) {
         );
 
         // Send final success to the original client
+        quorumTimeouts.complete(requestId);
         status.getSender().tell(
             new ClientUpdateResponse(id, status.getKey(), status.getVersionedItem()),
             getSelf()
         );
 
+        // Reads that arrive from now on must see this write: do not join a read already in flight
+        inFlightReads.remove(status.getKey());
+
         // Cleanup
         writeResponses.remove(requestId);
+        completeRequest(requestId);
     } else {
         Set<Integer> acks = status.getNodeThatAcknowledged();
         logger.debug(
@@ -547,9 +1952,31 @@ protected void onWriteResponse(WriteResponse message) {
 }
 
 protected void onReadResponse(ReadResponse message) {
-    int requestId = message.getRequestID();
-    int senderId  = message.getSenderID();
-    VersionedItem item = message.getValue();
+    onReadVote(message.getRequestID(), message.getSenderID(), message.getValue(), message.isDigest());
+}
+
+/**
+ * Count a read vote, either received from a replica
+ * or produced locally when this node is one of the replicas.
+ * A digest vote carries only the version of the value.
+ */
+private void onReadVote(int requestId, int senderId, VersionedItem item, boolean digest) {
+    onReplicaAnswer(requestId, senderId);
+
+    // Keep my clock ahead of every version I see
+    if (item != null) clock.update(item.getVersion());
+
+    // Late vote for a read already answered: only used to repair stale replicas
+    ReadRequestStatus repairing = readRepairs.get(requestId);
+    if (repairing != null) {
+        if (digest) {
+            repairing.addDigest(senderId, item);
+        } else {
+            repairing.addVote(senderId, item);
+        }
+        repairStaleReplicas(requestId, repairing);
+        return;
+    }
 
     // Stale or unknown request?
     boolean isReadPending   = readRequests.containsKey(requestId);
@@ -562,29 +1989,67 @@ protected void onReadResponse(ReadResponse message) {
     // If this was a client‐read operation
     if (isReadPending) {
         ReadRequestStatus status = readRequests.get(requestId);
-        status.addVote(item);
+        if (digest) {
+            status.addDigest(senderId, item);
+        } else {
+            status.addVote(senderId, item);
+        }
 
         logger.debug(
-            "Received read vote for request {} from node {}: value={}",
-            requestId, senderId,
-            (item != null ? item.getValue() : "NULL")
+            "Received read vote for request {} from node {}: {}={}",
+            requestId, senderId, digest ? "version" : "value",
+            (item != null ? (digest ? item.getVersion() : item.getValue()) : "NULL")
         );
 
-        if (status.isQuorumReached()) {
+        if (status.isQuorumReached() && !status.isNotModified() && !status.isResolved()) {
+            // Some replica has a more recent version than the values received: fetch it
+            Integer source = status.nextFetch();
+            if (source != null) {
+                logger.info("Read request {}: node {} has a more recent version (v{}), fetching its value",
+                    requestId, source, status.getLatestVersion());
+                sendToReplicas(requestId, Collections.singleton(source), new ReadRequest(id, requestId, status.getKey()));
+            }
+        } else if (status.isQuorumReached() && status.isNotModified()) {
+            logger.info("Read quorum achieved for request {}: version {} NOT_MODIFIED", requestId, status.getKnownVersion());
+
+            quorumTimeouts.complete(requestId);
+            ClientReadResponse response = new ClientReadResponse(id, status.getKey(), null, status.getKnownVersion(), true);
+            for (ActorRef client : status.getSenders()) {
+                client.tell(response, getSelf());
+            }
+
+            readRequests.remove(requestId);
+            inFlightReads.remove(status.getKey(), requestId);
+            spareReplicas.remove(requestId);
+            completeRequest(requestId);
+        } else if (status.isQuorumReached()) {
+            VersionedItem latestItem = status.getLatestItem();
             String latest = status.getLatestValue();
             logger.info(
                 "Read quorum achieved for request {}: returning '{}'",
                 requestId, (latest != null ? latest : "NOT_FOUND")
             );
 
-            status.getSender().tell(
-                new ClientReadResponse(id, status.getKey(), latest),
-                getSelf()
-            );
+            quorumTimeouts.complete(requestId);
+            ClientReadResponse response = new ClientReadResponse(id, status.getKey(), latest, latestItem != null ? latestItem.getVersion() : 0, false);
+            for (ActorRef client : status.getSenders()) {
+                client.tell(response, getSelf());
+            }
+            if (status.getSenders().size() > 1) {
+                logger.info("Read request {} answered to {} coalesced clients", requestId, status.getSenders().size());
+            }
 
-            // Cancel timer and clean up
-            requestsTimers.remove(requestId).cancel();
+            // Clean up; if this read is chosen for repair,
+            // keep the status (and the timer) to collect the late responses
             readRequests.remove(requestId);
+            inFlightReads.remove(status.getKey(), requestId);
+            spareReplicas.remove(requestId);
+            if (random.nextDouble() < READ_REPAIR_CHANCE) {
+                readRepairs.put(requestId, status);
+                repairStaleReplicas(requestId, status);
+            } else {
+                completeRequest(requestId);
+            }
         } else {
             logger.debug(
                 "Read quorum not yet reached for request {}: have {}/{} votes", 
@@ -613,26 +2078,31 @@ protected void onReadResponse(ReadResponse message) {
                 requestId, updated.getValue(), updated.getVersion()
             );
 
+            // Restart the timer for the second phase and clean up the first one
+            quorumTimeouts.complete(requestId);
+            requestsTimers.remove(requestId).cancel();
+            writeRequests.remove(requestId);
+
+            // Some replica may have become unreachable in the meantime
+            if (reachableWriteTargets(status.getKey()) < writeQuorum) {
+                logger.warning("Update request {} failed: not enough reachable nodes to store it", requestId);
+                stopAwaiting(requestId);
+                status.getSender().tell(
+                    new ClientOperationErrorResponse(id, "Update failed: insufficient replicas reachable for quorum"),
+                    getSelf()
+                );
+                return;
+            }
+
             // Move to second phase: send WriteRequests
             UpdateResponseStatus respStatus = new UpdateResponseStatus(
                 status.getKey(), updated, status.getSender(),
                 readQuorum, writeQuorum
             );
             writeResponses.put(requestId, respStatus);
+            scheduleQuorumTimeout(requestId, QuorumTimeouts.Operation.WRITE);
 
-            Set<Integer> replicas = ring.responsibleForKey(status.getKey());
-            replicas.forEach(nodeId -> 
-                ring.getNode(nodeId).tell(
-                    new WriteRequest(id, requestId, status.getKey(), updated),
-                    getSelf()
-                )
-            );
-            logger.info("Sent WriteRequest[{}] for key={} to replicas {}", 
-                requestId, status.getKey(), replicas);
-
-            // Cancel timer and clean up first phase
-            requestsTimers.remove(requestId).cancel();
-            writeRequests.remove(requestId);
+            sendWrite(requestId, status.getKey(), updated);
         } else {
             logger.debug(
                 "Update quorum not yet reached for request {}: have {}/{} votes", 
@@ -646,12 +2116,53 @@ protected void onReadResponse(ReadResponse message) {
 
 protected void onRequestTimeout(@NotNull TimeoutMessage msg) {
     int requestId = msg.getRequestID();
+    requestsTimers.remove(requestId);
+    quorumTimeouts.expire(requestId);
+
+    // Replicas that did not answer within the fixed timeout are probably unreachable.
+    // The timeout of the request adapts to the recent quorums and may be much shorter:
+    // the replicas that are only late keep being awaited until the fixed timeout.
+    Map<Integer, Long> silent = awaitedReplicas.remove(requestId);
+    spareReplicas.remove(requestId);
+    if (silent != null && !silent.isEmpty()) {
+        long now = System.nanoTime();
+        long limit = TimeUnit.SECONDS.toNanos(QUORUM_TIMEOUT_SECONDS);
+        Map<Integer, Long> late = new HashMap<>();
+        Set<Integer> unreachable = new HashSet<>();
+        long delay = 0;
+        for (Map.Entry<Integer, Long> entry : silent.entrySet()) {
+            long waited = now - entry.getValue();
+            if (waited >= limit) {
+                // Count the timeout as a (very slow) answer, so the node is not preferred anymore
+                replicaScores.answered(entry.getKey(), waited);
+                unreachable.add(entry.getKey());
+            } else {
+                late.put(entry.getKey(), entry.getValue());
+                delay = Math.max(delay, limit - waited);
+            }
+        }
+        if (!unreachable.isEmpty()) {
+            logger.warning("Nodes {} did not answer to request {}, suspecting them", unreachable, requestId);
+            suspectedNodes.addAll(unreachable);
+        }
+        if (!late.isEmpty()) {
+            awaitedReplicas.put(requestId, late);
+            scheduleStragglersTimeout(requestId, delay);
+        }
+    }
+
+    // Read already answered, stop waiting for late responses
+    if (readRepairs.remove(requestId) != null) {
+        logger.debug("Read repair window closed for request {}", requestId);
+        return;
+    }
 
     ReadRequestStatus  readStatus   = readRequests.get(requestId);
     UpdateRequestStatus updateStatus = writeRequests.get(requestId);
+    UpdateResponseStatus writeStatus = writeResponses.get(requestId);
 
     // If neither a read nor update is pending, ignore
-    if (readStatus == null && updateStatus == null) {
+    if (readStatus == null && updateStatus == null && writeStatus == null) {
         logger.debug("Timeout for request {} ignored: no pending operation", requestId);
         return;
     }
@@ -659,87 +2170,248 @@ protected void onRequestTimeout(@NotNull TimeoutMessage msg) {
     // Otherwise, we’ve timed out waiting for quorum
     logger.warning("Operation timeout: request {} did not reach quorum, cancelling", requestId);
 
-    // Notify the original client
-    ActorRef client = (readStatus != null ? readStatus.getSender() : updateStatus.getSender());
-    client.tell(
-        new ClientOperationErrorResponse(id, "Operation timed out before quorum was reached"),
-        getSelf()
-    );
+    // Notify the original client (and the reads coalesced with it)
+    List<ActorRef> clients = (readStatus != null ? readStatus.getSenders()
+        : Collections.singletonList(updateStatus != null ? updateStatus.getSender() : writeStatus.getSender()));
+    for (ActorRef client : clients) {
+        client.tell(
+            new ClientOperationErrorResponse(id, "Operation timed out before quorum was reached"),
+            getSelf()
+        );
+    }
 
     // Clean up pending state & cancel timer
+    if (readStatus != null) {
+        inFlightReads.remove(readStatus.getKey(), requestId);
+    }
     readRequests.remove(requestId);
     writeRequests.remove(requestId);
-    Cancellable timer = requestsTimers.remove(requestId);
-    if (timer != null) timer.cancel();
+    writeResponses.remove(requestId);
 }
 
-protected void onJoinData(@NotNull JoinDataMessage msg) {
-    // Should only happen during join phase
-    if (state != State.JOINING_WAITING_DATA) {
-        logger.warning("Unexpected JOIN_DATA from {} in state {} – ignoring", msg.getSenderID(), state);
-        return;
+protected void onJoin(@NotNull List<MembershipDelta> joins) {
+    final Ring previous = ring.copy();
+    for (MembershipDelta join : joins) {
+        ring.addNode(join.getNodeID(), join.getNode(), join.getWeight(), join.getZone());
+
+        // Streams of the join not completed (eg. replaced by streams from other nodes) are not needed anymore
+        outgoingStreams.remove(join.getNodeID());
+    }
+
+    // The admitted nodes received the writes forwarded until now, the next ones reach them directly
+    if (scaleOutRing != null && joins.stream().anyMatch(join -> !previous.contains(join.getNodeID())
+        && scaleOutRing.contains(join.getNodeID()))) {
+        scaleOutRing = null;
     }
+    logger.info("Nodes {} joined the ring. Members = {}",
+        joins.stream().map(MembershipDelta::getNodeID).collect(Collectors.toList()), new TreeSet<>(ring.getNodeIDs()));
 
+    // Remove records no longer our responsibility, once for all the nodes that joined together
+    // NB: the joining nodes already fetched their data, no need to send it
+    rebalance(previous, false);
+    logger.debug("After join, cleaned up local records. Cache now holds keys = {}", cache.keySet());
+}
+
+protected void onReJoin(@NotNull MembershipDelta delta) {
+    int rejoiningId = delta.getNodeID();
+    final Ring previous = ring.copy();
+    ring.addNode(rejoiningId, delta.getNode(), delta.getWeight(), delta.getZone());
+    logger.info("Node {} re-joined after crash. Members = {}", rejoiningId, new TreeSet<>(ring.getNodeIDs()));
+
+    // The node restarted: its heartbeats start a new generation
+    failureDetector.remove(rejoiningId);
+    downNodes.remove(rejoiningId);
+
+    // Deliver the writes stored while the node was down (restart any interrupted delivery)
+    suspectedNodes.remove(rejoiningId);
+    replayingHints.remove(rejoiningId);
+    replayHints(rejoiningId);
+
+    // A different weight moves the ranges adjacent to the added or removed tokens,
+    // a different zone may move the replicas of the keys close to the node
+    if (previous.getWeight(rejoiningId) != delta.getWeight() || !previous.getZone(rejoiningId).equals(delta.getZone())) {
+        logger.info(String.format("Node %d changed placement: weight %d -> %d, zone %s -> %s", rejoiningId,
+            previous.getWeight(rejoiningId), delta.getWeight(), previous.getZone(rejoiningId), delta.getZone()));
+        rebalance(previous, true);
+    }
+}
+
+protected void onLeave(@NotNull MembershipDelta delta) {
+    int leavingId = delta.getNodeID();
+    ring.removeNode(leavingId);
+    suspectedNodes.remove(leavingId);
+    heartbeats.remove(leavingId);
+    failureDetector.remove(leavingId);
+    latencies.remove(leavingId);
+    replicaScores.remove(leavingId);
+    downNodes.remove(leavingId);
+    logger.info("Node {} gracefully left. Members = {}", leavingId, new TreeSet<>(ring.getNodeIDs()));
+    handOffHints(leavingId);
+}
+
+protected void onRebalanceData(@NotNull RebalanceDataMessage msg) {
+    int fromId = msg.getSenderID();
     Map<Integer, VersionedItem> records = msg.getRecords();
-    logger.info(
-        "Received initial data for join: {} keys from node {}",
-        records.size(), msg.getSenderID()
-    );
+    logger.info("Received {} records from node {} after a rebalance", records.size(), fromId);
 
-    // Persist & cache
+    // Merge into storage & cache
     storageManager.appendRecords(records);
-    cache.putAll(records);
+    cache.mergeAll(records);
+}
+protected void onHintReplay(@NotNull HintReplayMessage msg) {
+    int fromId = msg.getSenderID();
+    Map<Integer, VersionedItem> records = msg.getRecords();
+    logger.info("Received {} hinted writes from node {}", records.size(), fromId);
 
-    // Announce presence
-    multicast(new JoinMessage(id));
+    // Merge into storage & cache
+    storageManager.appendRecords(records);
+    cache.mergeAll(records);
 
-    // Transition to ready
-    state = State.READY;
-    logger.info("Join complete: now READY. Ring members = {}", new TreeSet<>(ring.getNodeIDs()));
+    // Acknowledge, so that the sender can forget them
+    Map<Integer, Long> versions = new HashMap<>();
+    records.forEach((key, item) -> versions.put(key, item.getVersion()));
+    reply(new HintReplayAckMessage(id, versions));
 }
 
-protected void onJoin(@NotNull JoinMessage msg) {
-    int joiningId = msg.getSenderID();
-    ring.addNode(joiningId, getSender());
-    logger.info("Node {} joined the ring. Members = {}", joiningId, new TreeSet<>(ring.getNodeIDs()));
+protected void onHintReplayAck(@NotNull HintReplayAckMessage msg) {
+    int owner = msg.getSenderID();
+    hintStore.remove(owner, msg.getVersions());
+    replayingHints.remove(owner);
+    logger.info("Node {} acknowledged {} hinted writes, {} hints left", owner, msg.getVersions().size(), hintStore.size());
 
-    // Remove records no longer our responsibility
-    dropOldKeys();
-    logger.debug("After join, cleaned up local records. Cache now holds keys = {}", cache.keySet());
+    // Next batch, if any
+    replayHints(owner);
 }
 
-protected void onReJoin(@NotNull ReJoinMessage msg) {
-    int rejoiningId = msg.getSenderID();
-    ring.addNode(rejoiningId, getSender());
-    logger.info("Node {} re-joined after crash. Members = {}", rejoiningId, new TreeSet<>(ring.getNodeIDs()));
+// Start a round of anti-entropy: for each range I replicate,
+// send the root of my tree to a random co-replica
+protected void onAntiEntropyTick() {
+    if (state != State.READY) {
+        return;
+    }
+    logger.debug("Replica scores (average response time/outstanding requests): {}", replicaScores);
+    logger.debug("Quorum timeouts (milliseconds): {}", quorumTimeouts);
+    int rounds = 0;
+    for (TokenRange range : ring.rangesOf(id)) {
+        List<Integer> peers = ring.responsibleForPosition(range.getEnd()).stream()
+            .filter(nodeId -> nodeId != id && !suspectedNodes.contains(nodeId))
+            .collect(Collectors.toList());
+        if (peers.isEmpty()) {
+            continue;
+        }
+        int peer = peers.get(random.nextInt(peers.size()));
+        ring.getNode(peer).tell(new MerkleDigestMessage(id, range, 0,
+            Collections.singletonMap(0, merkleTree(range).root())), getSelf());
+        rounds++;
+    }
+    logger.debug("Anti-entropy: compared the roots of {} ranges", rounds);
 }
 
-protected void onLeave(@NotNull LeaveMessage msg) {
-    int leavingId = msg.getSenderID();
-    ring.removeNode(leavingId);
-    logger.info("Node {} gracefully left. Members = {}", leavingId, new TreeSet<>(ring.getNodeIDs()));
+// Compare some nodes of the Merkle tree of a co-replica with mine,
+// then descend into the ones that differ
+protected void onMerkleDigest(@NotNull MerkleDigestMessage msg) {
+    TokenRange range = msg.getRange();
+    if (state != State.READY || !ring.responsibleForPosition(range.getEnd()).contains(id)) {
+        logger.debug("Ignoring Merkle digests for range {} from node {}", range, msg.getSenderID());
+        return;
+    }
+
+    MerkleTree tree = merkleTree(range);
+    int level = msg.getLevel();
+    List<Integer> different = new ArrayList<>();
+    msg.getDigests().forEach((index, digest) -> {
+        if (level > tree.depth() || index >= tree.width(level) || tree.digest(level, index) != digest) {
+            different.add(index);
+        }
+    });
+    if (different.isEmpty()) {
+        logger.debug("Range {} in sync with node {} at level {}", range, msg.getSenderID(), level);
+        return;
+    }
+    if (level > tree.depth()) {
+        logger.warning("Merkle tree of node {} for range {} has a different shape", msg.getSenderID(), range);
+        return;
+    }
+
+    // Reached the leaves: exchange the records
+    if (level == tree.depth()) {
+        logger.info("Range {} differs from node {} in {} leaves, exchanging records", range, msg.getSenderID(), different.size());
+        reply(new AntiEntropyDataMessage(id, range, different, recordsInLeaves(tree, different), true));
+        return;
+    }
+
+    // Otherwise, send the digests of the children of the nodes that differ
+    Map<Integer, Long> children = new HashMap<>();
+    for (Integer index : different) {
+        children.put(2 * index, tree.digest(level + 1, 2 * index));
+        children.put(2 * index + 1, tree.digest(level + 1, 2 * index + 1));
+    }
+    reply(new MerkleDigestMessage(id, range, level + 1, children));
 }
 
-protected void onLeaveData(@NotNull LeaveDataMessage msg) {
-    int fromId = msg.getSenderID();
-    Map<Integer, VersionedItem> legacy = msg.getRecords();
-    logger.info("Received {} legacy records from departing node {}", legacy.size(), fromId);
+// Keep the most recent records received from a co-replica, then send back mine if requested
+protected void onAntiEntropyData(@NotNull AntiEntropyDataMessage msg) {
+    TokenRange range = msg.getRange();
+    if (!ring.responsibleForPosition(range.getEnd()).contains(id)) {
+        return;
+    }
 
-    // Merge into storage & cache
-    storageManager.appendRecords(legacy);
-    cache.putAll(legacy);
-    logger.debug("Post-merge cache keys = {}", cache.keySet());
-}
-// Multicast a message to all other nodes in the ring
-private void multicast(Serializable message) {
-    Set<Integer> targets = ring.getNodeIDs().stream()
-        .filter(nodeId -> nodeId != id)
-        .collect(Collectors.toCollection(TreeSet::new));
-
-    logger.info("Multicasting {} to nodes {}", message.getClass().getSimpleName(), targets);
-    targets.forEach(nodeId ->
-        ring.getNode(nodeId).tell(message, getSelf())
-    );
+    int repaired = mergeNewer(msg.getRecords());
+    if (repaired > 0) {
+        logger.info("Anti-entropy with node {}: repaired {} records in range {}", msg.getSenderID(), repaired, range);
+    }
+
+    if (msg.isReplyExpected()) {
+        MerkleTree tree = merkleTree(range);
+        reply(new AntiEntropyDataMessage(id, range, msg.getLeaves(), recordsInLeaves(tree, msg.getLeaves()), false));
+    }
+}
+
+// Persist the received records that are more recent than mine, return how many they are
+private int mergeNewer(@NotNull Map<Integer, VersionedItem> records) {
+    Map<Integer, VersionedItem> newer = new HashMap<>();
+    records.forEach((key, item) -> {
+        VersionedItem mine = cache.get(key);
+        if (mine == null || mine.getVersion() < item.getVersion()) {
+            newer.put(key, item);
+        }
+    });
+    if (!newer.isEmpty()) {
+        storageManager.appendRecords(newer);
+        cache.mergeAll(newer);
+    }
+    return newer.size();
+}
+
+// Merkle tree of some range, rebuilt only if the records changed
+private MerkleTree merkleTree(@NotNull TokenRange range) {
+    if (merkleTreesVersion != cache.modifications()) {
+        merkleTrees.clear();
+        merkleTreesVersion = cache.modifications();
+    }
+    return merkleTrees.computeIfAbsent(range, r -> MerkleTree.build(r, cache));
+}
+
+// Records in some leaves of a tree
+private Map<Integer, VersionedItem> recordsInLeaves(@NotNull MerkleTree tree, @NotNull List<Integer> leaves) {
+    Map<Integer, VersionedItem> records = new HashMap<>();
+    for (Integer index : leaves) {
+        TokenRange leaf = tree.leaf(index);
+        if (leaf != null) {
+            cache.keysIn(leaf).forEach(key -> records.put(key, cache.get(key)));
+        }
+    }
+    return records;
+}
+
+// Persist the membership log, to rebuild the ring after a restart
+private void saveMembership() {
+    membershipStore.save(membership.since(0));
+}
+
+// Resolve the actor path of a node stored in the membership snapshot
+private ActorRef resolveNode(String path) {
+    return ((ExtendedActorSystem) getContext().system()).provider().resolveActorRef(path);
 }
 
 // Send a direct reply to the original sender
@@ -760,6 +2432,114 @@ private VersionedItem read(int key) {
     );
     return item;
 }
+// Send the most recent value to the replicas that returned an older one (or nothing)
+private void repairStaleReplicas(int requestId, @NotNull ReadRequestStatus status) {
+    final VersionedItem latest = status.getLatestItem();
+    for (Integer nodeId : status.getStaleNodes()) {
+        if (!acquireRepairPermit()) {
+            logger.debug("Read repair rate limit reached, node {} not repaired for request {}", nodeId, requestId);
+            return;
+        }
+        status.markRepaired(nodeId, latest);
+        logger.info("Read repair of key={} on node {} (v{})", status.getKey(), nodeId, latest.getVersion());
+        if (nodeId == id) {
+            write(status.getKey(), latest);
+        } else if (ring.contains(nodeId)) {
+            ring.getNode(nodeId).tell(new WriteRequest(id, requestId, status.getKey(), latest), getSelf());
+        }
+    }
+}
+
+// Simple fixed window rate limiter for the read repair
+private boolean acquireRepairPermit() {
+    final long now = System.currentTimeMillis();
+    if (now - repairWindowStart >= 1000) {
+        repairWindowStart = now;
+        repairsInWindow = 0;
+    }
+    if (repairsInWindow >= READ_REPAIR_MAX_PER_SECOND) {
+        return false;
+    }
+    repairsInWindow++;
+    return true;
+}
+
+// Write a record received from a coordinator: either for myself,
+// or as a hint on behalf of an unreachable replica
+private void storeWrite(int key, VersionedItem item, @Nullable Integer hintFor) {
+    if (hintFor == null) {
+        write(key, item);
+        forwardLeavingWrite(key, item);
+        forwardScaleOutWrite(key, item);
+    } else {
+        logger.info("Storing hint for node {}: key={} (version={})", hintFor, key, item.getVersion());
+        hintStore.add(hintFor, key, item);
+    }
+}
+
+// While I am leaving, the new replicas of a key may have already received the stream of its range:
+// send them the write directly, so that it is not lost when I leave.
+private void forwardLeavingWrite(int key, VersionedItem item) {
+    if (state != State.LEAVING) {
+        return;
+    }
+    Set<Integer> current = ring.responsibleForKey(key);
+    for (Integer nodeId : leaveRing.responsibleForKey(key)) {
+        if (!current.contains(nodeId) && ring.contains(nodeId)) {
+            ring.getNode(nodeId).tell(new RebalanceDataMessage(id, Collections.singletonMap(key, item)), getSelf());
+        }
+    }
+}
+
+// While some admitted nodes stream their ranges, they may have already received the range of a key:
+// send them the write directly, since the old replicas drop the key without handoff once the join is announced.
+private void forwardScaleOutWrite(int key, VersionedItem item) {
+    if (scaleOutRing == null) {
+        return;
+    }
+    for (Integer nodeId : scaleOutRing.responsibleForKey(key)) {
+        if (!ring.contains(nodeId)) {
+            scaleOutRing.getNode(nodeId).tell(new RebalanceDataMessage(id, Collections.singletonMap(key, item)), getSelf());
+        }
+    }
+}
+
+// Deliver the next batch of hints to their owner, if it is in the ring.
+// The following batch is sent when the owner acknowledges this one.
+private void replayHints(int owner) {
+    if (replayingHints.contains(owner) || !ring.contains(owner)) {
+        return;
+    }
+    Map<Integer, VersionedItem> batch = hintStore.get(owner, HINT_REPLAY_BATCH_SIZE);
+    if (batch.isEmpty()) {
+        return;
+    }
+    logger.info("Delivering {} hinted writes to node {}", batch.size(), owner);
+    replayingHints.add(owner);
+    ring.getNode(owner).tell(new HintReplayMessage(id, batch), getSelf());
+}
+
+// Deliver all hints for a node that left the ring to the current replicas of their keys
+private void handOffHints(int owner) {
+    Map<Integer, VersionedItem> hints = hintStore.removeAll(owner);
+    replayingHints.remove(owner);
+    if (hints.isEmpty()) {
+        return;
+    }
+    Map<Integer, Map<Integer, VersionedItem>> batches = new HashMap<>();
+    hints.forEach((key, item) -> ring.responsibleForKey(key).forEach(replica ->
+        batches.computeIfAbsent(replica, r -> new HashMap<>()).put(key, item)));
+    logger.info("Node {} left with {} hinted writes, sending them to the new replicas {}", owner, hints.size(), batches.keySet());
+    batches.forEach((replica, records) -> {
+        if (replica == id) {
+            storageManager.appendRecords(records);
+            cache.mergeAll(records);
+        } else {
+            ring.getNode(replica).tell(new RebalanceDataMessage(id, records), getSelf());
+        }
+    });
+}
+
 // Persistent + write-through cache write
 private void write(int key, VersionedItem item) {
     logger.info(
@@ -767,33 +2547,63 @@ private void write(int key, VersionedItem item) {
         key, item.getValue(), item.getVersion()
     );
     storageManager.appendRecord(key, item);
-    cache.put(key, item);
+    cache.merge(key, item);
 }
 
-// Remove keys no longer this node's responsibility (on join/recovery)
-private void dropOldKeys() {
-    Map<Integer, VersionedItem> all = storageManager.readRecords();
-    Set<Integer> keep = all.keySet().stream()
-        .filter(k -> ring.responsibleForKey(k).contains(id))
-        .collect(Collectors.toCollection(TreeSet::new));
+// Compute the repartitioning of the given records on the fork/join pool.
+// The result is delivered back to this actor as a message, to be applied on the actor thread.
+private void repartition(@NotNull Map<Integer, VersionedItem> records,
+                         @NotNull IntFunction<Set<Integer>> targets, @NotNull IntPredicate keep) {
+    final ActorRef self = getSelf();
+    logger.info("Repartitioning {} records in background", records.size());
+    repartitioner.plan(records, targets, keep).whenComplete((plan, error) ->
+        self.tell(new Repartitioner.Completed(plan, error), self));
+}
 
-    Set<Integer> removed = new TreeSet<>(all.keySet());
-    removed.removeAll(keep);
+// Move the records whose replicas changed after a membership change and drop the ones no longer mine.
+// Only the keys inside the token ranges that changed replicas are visited.
+private void rebalance(@NotNull Ring previous, boolean handoff) {
+    Map<Integer, Map<Integer, VersionedItem>> handoffs = new HashMap<>();
+    List<Integer> removed = new ArrayList<>();
+    List<TokenRange> changed = ring.changedRanges(previous);
+    int visited = 0;
+
+    for (TokenRange range : changed) {
+        List<Integer> keys = cache.keysIn(range);
+        if (keys.isEmpty()) continue;
+        visited += keys.size();
+
+        Set<Integer> before = previous.responsibleForPosition(range.getEnd());
+        Set<Integer> after = ring.responsibleForPosition(range.getEnd());
+
+        // the first old replica still in the ring is in charge of the handoff
+        Integer sender = before.stream().filter(ring::contains).findFirst().orElse(null);
+        if (handoff && sender != null && sender == id) {
+            after.stream()
+                .filter(nodeId -> !before.contains(nodeId))
+                .forEach(nodeId -> {
+                    Map<Integer, VersionedItem> batch = handoffs.computeIfAbsent(nodeId, k -> new HashMap<>());
+                    keys.forEach(key -> batch.put(key, cache.get(key)));
+                });
+        }
+        if (!after.contains(id)) {
+            removed.addAll(keys);
+        }
+    }
+
+    handoffs.forEach((nodeId, records) -> {
+        logger.info("Rebalance: sending {} records to node {}", records.size(), nodeId);
+        ring.getNode(nodeId).tell(new RebalanceDataMessage(id, records), getSelf());
+    });
 
     logger.info(
-        "Repartitioning storage: keeping {} keys, removing {} keys",
-        keep.size(), removed.size()
+        "Rebalance: {} ranges changed replicas, visited {} of {} keys, removing {} keys",
+        changed.size(), visited, cache.size(), removed.size()
     );
-    logger.debug("Old keys={}, New keys={}", all.keySet(), keep);
-
-    // Persist only the kept keys
-    Map<Integer, VersionedItem> filtered = keep.stream()
-        .collect(Collectors.toMap(k -> k, all::get));
-    storageManager.writeRecords(filtered);
-
-    // Refresh cache
-    cache.clear();
-    cache.putAll(filtered);
+    if (!removed.isEmpty()) {
+        storageManager.removeRecords(removed);
+        cache.removeAll(removed);
+    }
 }
 
 	private enum StartupCommand {
@@ -804,7 +2614,11 @@ private void dropOldKeys() {
 	private enum State {
 		JOINING_WAITING_NODES,
 		JOINING_WAITING_DATA,
+		JOINING_WAITING_BATCH,
 		RECOVERING_WAITING_NODES,
-		READY
+		RECOVERING_LOADING,
+		RECOVERING_CATCHING_UP,
+		READY,
+		LEAVING
 	}
 }
@@ -0,0 +1,175 @@
+package it.unitn.ds1.node;
+
+import akka.actor.ActorRef;
+import it.unitn.ds1.messages.internal.StreamChunkMessage;
+import it.unitn.ds1.storage.Segment;
+import it.unitn.ds1.storage.VersionedItem;
+import org.jetbrains.annotations.NotNull;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * State of a stream of records sent by this node to another one.
+ * <p>
+ * The records of the requested ranges are sent in ring order, as chunks of bounded size.
+ * Chunks never split the keys of the same position, so the progress of the stream
+ * is always described by a range and the last position sent from it.
+ * The receiver grants credits (one per chunk) and the sender stops when it runs out of them;
+ * the sender also paces the chunks so that the transfer rate does not exceed a given limit.
+ */
+final class OutgoingStream {
+
+	// receiver of the stream
+	private final int target;
+	private final ActorRef receiver;
+	private final int streamID;
+
+	// ranges to send, in order
+	private final List<TokenRange> ranges;
+
+	// index of the range being sent and last position sent from it (null if none)
+	private int nextRange;
+	private Integer position;
+
+	// chunks that can be sent before the next acknowledgement
+	private int credits;
+
+	// sequence number of the next chunk
+	private int sequence;
+
+	// chunks acknowledged by the receiver
+	private int acknowledged;
+
+	// earliest time (in nanoseconds) at which the next chunk can be sent
+	private long nextSendTime;
+
+	// true if a pump message is already scheduled for this stream
+	private boolean pumpScheduled;
+
+	/**
+	 * Create a new stream.
+	 *
+	 * @param target   ID of the node that receives the records.
+	 * @param receiver Reference to the node that receives the records.
+	 * @param streamID Identifier of the stream, chosen by the receiver.
+	 * @param ranges   Ranges to send.
+	 * @param credits  Initial number of chunks that can be sent.
+	 */
+	OutgoingStream(int target, ActorRef receiver, int streamID, @NotNull List<TokenRange> ranges, int credits) {
+		this.target = target;
+		this.receiver = receiver;
+		this.streamID = streamID;
+		this.ranges = ranges;
+		this.nextRange = 0;
+		this.position = null;
+		this.credits = credits;
+		this.sequence = 0;
+		this.acknowledged = 0;
+		this.nextSendTime = 0;
+		this.pumpScheduled = false;
+	}
+
+	int getTarget() {
+		return target;
+	}
+
+	ActorRef getReceiver() {
+		return receiver;
+	}
+
+	int getStreamID() {
+		return streamID;
+	}
+
+	/**
+	 * @return True if all the ranges were sent.
+	 */
+	boolean isCompleted() {
+		return nextRange >= ranges.size();
+	}
+
+	/**
+	 * @return True if the receiver granted enough credits to send another chunk.
+	 */
+	boolean canSend() {
+		return credits > 0 && !isCompleted();
+	}
+
+	/**
+	 * Record that the receiver stored the next chunk: the stream can send one more chunk.
+	 */
+	void acknowledge() {
+		credits++;
+		acknowledged++;
+	}
+
+	/**
+	 * @return True if all the ranges were sent and the receiver acknowledged all the chunks.
+	 */
+	boolean isAcknowledged() {
+		return isCompleted() && acknowledged == sequence;
+	}
+
+	/**
+	 * Compute how long the sender must wait before sending the next chunk.
+	 *
+	 * @param now Current time, in nanoseconds.
+	 * @return The delay in nanoseconds, 0 if the next chunk can be sent immediately.
+	 */
+	long delay(long now) {
+		return Math.max(0, nextSendTime - now);
+	}
+
+	boolean isPumpScheduled() {
+		return pumpScheduled;
+	}
+
+	void setPumpScheduled(boolean pumpScheduled) {
+		this.pumpScheduled = pumpScheduled;
+	}
+
+	/**
+	 * Build the next chunk of the stream and consume one credit.
+	 * The chunk contains the records of consecutive positions, encoded as a @{@link Segment},
+	 * until their encoded size reaches the limit
+	 * (at least one position is always included, even if it is bigger than the limit).
+	 *
+	 * @param senderID     ID of this node.
+	 * @param cache        Records of this node.
+	 * @param maxBytes     Maximum size of the records of the chunk, in bytes.
+	 * @param now          Current time, in nanoseconds.
+	 * @param bytesPerNano Maximum transfer rate, used to schedule the next chunk.
+	 * @return The chunk to send.
+	 */
+	@NotNull
+	StreamChunkMessage nextChunk(int senderID, @NotNull RecordCache cache, int maxBytes, long now, double bytesPerNano) {
+		assert canSend();
+
+		final Map<Integer, VersionedItem> records = new HashMap<>();
+		final int[] size = {0};
+		while (!isCompleted() && size[0] < maxBytes) {
+			final TokenRange range = ranges.get(nextRange);
+			final TokenRange remaining = position == null ? range : new TokenRange(position, range.getEnd());
+			final boolean done = cache.forEachPosition(remaining, (hashedKey, keys) -> {
+				for (Integer key : keys) {
+					final VersionedItem item = cache.get(key);
+					records.put(key, item);
+					size[0] += Segment.recordSize(item.getValue());
+				}
+				position = hashedKey;
+				return size[0] < maxBytes;
+			}) || position == range.getEnd();
+			if (done) {
+				nextRange++;
+				position = null;
+			}
+		}
+
+		final byte[] segment = Segment.encode(records);
+		credits--;
+		nextSendTime = Math.max(nextSendTime, now) + (long) (segment.length / bytesPerNano);
+		return new StreamChunkMessage(senderID, streamID, sequence++, segment, nextRange, position, isCompleted());
+	}
+}
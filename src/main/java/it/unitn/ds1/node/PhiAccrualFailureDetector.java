@@ -0,0 +1,140 @@
+package it.unitn.ds1.node;
+
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Phi accrual failure detector (Hayashibara et al.).
+ * <p>
+ * For each monitored node, the detector keeps the last intervals between the arrivals
+ * of its heartbeats and models them as a normal distribution. Instead of a boolean,
+ * it returns phi = -log10(P), where P is the probability that the next heartbeat arrives
+ * even later than now: phi grows as the silence of the node becomes less likely,
+ * eg. phi = 8 means that a heartbeat this late happens once in 10^8 times.
+ * The distribution adapts to the actual network conditions, so the same threshold works
+ * for fast and slow (or loaded) networks.
+ */
+final class PhiAccrualFailureDetector {
+
+	// number of intervals used to estimate the distribution
+	private static final int WINDOW_SIZE = 100;
+
+	// expected interval between heartbeats, used before some interval is measured
+	private final long expectedInterval;
+
+	// lower bound for the standard deviation, to avoid too sensitive estimations
+	private final double minStdDeviation;
+
+	// state of each monitored node
+	private final Map<Integer, History> histories;
+
+	/**
+	 * Create a new failure detector.
+	 *
+	 * @param expectedInterval Expected interval between two heartbeats, in milliseconds.
+	 * @param minStdDeviation  Minimum standard deviation of the intervals, in milliseconds.
+	 */
+	PhiAccrualFailureDetector(long expectedInterval, double minStdDeviation) {
+		this.expectedInterval = expectedInterval;
+		this.minStdDeviation = minStdDeviation;
+		this.histories = new HashMap<>();
+	}
+
+	/**
+	 * Record the arrival of a heartbeat from a node. The first heartbeat starts the monitoring.
+	 *
+	 * @param nodeID ID of the node.
+	 * @param now    Current time, in milliseconds.
+	 */
+	void heartbeat(int nodeID, long now) {
+		final History history = histories.get(nodeID);
+		if (history == null) {
+			histories.put(nodeID, new History(now, expectedInterval));
+		} else {
+			history.add(now);
+		}
+	}
+
+	/**
+	 * @param nodeID ID of the node.
+	 * @return True if the node is monitored, i.e. some heartbeat was received.
+	 */
+	boolean isMonitoring(int nodeID) {
+		return histories.containsKey(nodeID);
+	}
+
+	/**
+	 * Compute the suspicion level of a node.
+	 *
+	 * @param nodeID ID of the node.
+	 * @param now    Current time, in milliseconds.
+	 * @return Phi value, 0 if the node is not monitored.
+	 */
+	double phi(int nodeID, long now) {
+		final History history = histories.get(nodeID);
+		if (history == null) {
+			return 0;
+		}
+		final double elapsed = now - history.lastArrival;
+		final double mean = history.mean();
+		final double stdDeviation = Math.max(minStdDeviation, history.stdDeviation());
+
+		// logistic approximation of the cumulative distribution function of the normal distribution
+		final double y = (elapsed - mean) / stdDeviation;
+		final double e = Math.exp(-y * (1.5976 + 0.070566 * y * y));
+		return elapsed > mean
+			? -Math.log10(e / (1.0 + e))
+			: -Math.log10(1.0 - 1.0 / (1.0 + e));
+	}
+
+	/**
+	 * Stop monitoring a node, eg. because it left or restarted.
+	 *
+	 * @param nodeID ID of the node.
+	 */
+	void remove(int nodeID) {
+		histories.remove(nodeID);
+	}
+
+	// arrival intervals of the heartbeats of a node
+	private static final class History {
+
+		private final Deque<Long> intervals;
+		private long lastArrival;
+		private double sum;
+		private double squaresSum;
+
+		private History(long firstArrival, long expectedInterval) {
+			this.intervals = new ArrayDeque<>(WINDOW_SIZE);
+			this.lastArrival = firstArrival;
+			push(expectedInterval);
+		}
+
+		private void add(long arrival) {
+			push(arrival - lastArrival);
+			lastArrival = arrival;
+		}
+
+		private void push(long interval) {
+			if (intervals.size() == WINDOW_SIZE) {
+				final long removed = intervals.removeFirst();
+				sum -= removed;
+				squaresSum -= (double) removed * removed;
+			}
+			intervals.addLast(interval);
+			sum += interval;
+			squaresSum += (double) interval * interval;
+		}
+
+		private double mean() {
+			return sum / intervals.size();
+		}
+
+		private double stdDeviation() {
+			final double mean = mean();
+			return Math.sqrt(Math.max(0, squaresSum / intervals.size() - mean * mean));
+		}
+	}
+}
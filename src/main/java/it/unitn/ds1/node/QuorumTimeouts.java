@@ -0,0 +1,200 @@
+package it.unitn.ds1.node;
+
+import org.jetbrains.annotations.NotNull;
+
+import java.util.Arrays;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.function.LongSupplier;
+
+/**
+ * Timeouts of the requests of a coordinator, computed from the time the recent requests
+ * of the same type took to reach their quorum.
+ * <p>
+ * For each type of operation, the most recent completion times are kept in a rolling window.
+ * The timeout is a high percentile of the window multiplied by a safety factor, clamped between
+ * a minimum and a maximum. Until enough completion times are known, a default timeout is used.
+ * A request that times out is recorded with the time it waited, so a burst of timeouts
+ * (eg. during a load spike or a rebalance) quickly raises the timeout of the next requests.
+ */
+final class QuorumTimeouts {
+
+	/**
+	 * Type of operation, each type has its own timeout.
+	 */
+	enum Operation {
+
+		// read of the value or the versions of a key (first phase of an update)
+		READ,
+
+		// write of a new version of a key
+		WRITE
+	}
+
+	// number of completion times kept for each type of operation
+	static final int WINDOW_SIZE = 1000;
+
+	// minimum number of completion times needed to compute the timeout
+	static final int MIN_SAMPLES = 100;
+
+	// number of new completion times after which the timeout is computed again
+	private static final int REFRESH_SAMPLES = 50;
+
+	// percentile of the completion times and factor used to compute the timeout
+	private final double percentile;
+	private final double factor;
+
+	// bounds and default value of the timeout, in milliseconds
+	private final long min;
+	private final long max;
+	private final long fallback;
+
+	// source of time, in nanoseconds
+	private final LongSupplier clock;
+
+	// operation -> circular buffer of completion times, in nanoseconds
+	private final Map<Operation, long[]> samples;
+
+	// operation -> number of completion times recorded (may be bigger than the window)
+	private final Map<Operation, Integer> counts;
+
+	// operation -> last timeout computed, in milliseconds, and number of completion times used for it
+	private final Map<Operation, Long> timeouts;
+	private final Map<Operation, Integer> computedAt;
+
+	// requests waiting for their quorum: requestID -> operation and start time
+	private final Map<Integer, Operation> pendingOperations;
+	private final Map<Integer, Long> pendingStarts;
+
+	/**
+	 * Create new timeouts based on the system time.
+	 *
+	 * @param percentile Percentile of the completion times, between 0 and 1.
+	 * @param factor     Factor applied to the percentile.
+	 * @param min        Minimum timeout, in milliseconds.
+	 * @param max        Maximum timeout, in milliseconds.
+	 * @param fallback   Timeout used until enough completion times are known, in milliseconds.
+	 */
+	QuorumTimeouts(double percentile, double factor, long min, long max, long fallback) {
+		this(percentile, factor, min, max, fallback, System::nanoTime);
+	}
+
+	/**
+	 * Create new timeouts based on the given time source.
+	 *
+	 * @param percentile Percentile of the completion times, between 0 and 1.
+	 * @param factor     Factor applied to the percentile.
+	 * @param min        Minimum timeout, in milliseconds.
+	 * @param max        Maximum timeout, in milliseconds.
+	 * @param fallback   Timeout used until enough completion times are known, in milliseconds.
+	 * @param clock      Source of time, in nanoseconds.
+	 */
+	QuorumTimeouts(double percentile, double factor, long min, long max, long fallback, @NotNull LongSupplier clock) {
+		assert min > 0 && min <= max : "bounds of the timeout must be positive and ordered";
+		this.percentile = percentile;
+		this.factor = factor;
+		this.min = min;
+		this.max = max;
+		this.fallback = Math.max(min, Math.min(max, fallback));
+		this.clock = clock;
+		this.samples = new EnumMap<>(Operation.class);
+		this.counts = new EnumMap<>(Operation.class);
+		this.timeouts = new EnumMap<>(Operation.class);
+		this.computedAt = new EnumMap<>(Operation.class);
+		this.pendingOperations = new HashMap<>();
+		this.pendingStarts = new HashMap<>();
+	}
+
+	/**
+	 * Remember that a request started waiting for its quorum.
+	 *
+	 * @param requestId ID of the request.
+	 * @param operation Type of operation.
+	 * @return The timeout of the request, in milliseconds.
+	 */
+	long start(int requestId, @NotNull Operation operation) {
+		pendingOperations.put(requestId, operation);
+		pendingStarts.put(requestId, clock.getAsLong());
+		return timeout(operation);
+	}
+
+	/**
+	 * Remember that a request reached its quorum.
+	 * Nothing happens if the request is not waiting.
+	 *
+	 * @param requestId ID of the request.
+	 */
+	void complete(int requestId) {
+		final Operation operation = pendingOperations.remove(requestId);
+		final Long start = pendingStarts.remove(requestId);
+		if (operation != null) {
+			record(operation, clock.getAsLong() - start);
+		}
+	}
+
+	/**
+	 * Remember that a request did not reach its quorum before the timeout.
+	 * Its waiting time is recorded and the timeout is computed again, so that
+	 * the next requests wait longer if timeouts are frequent.
+	 * Nothing happens if the request is not waiting.
+	 *
+	 * @param requestId ID of the request.
+	 */
+	void expire(int requestId) {
+		final Operation operation = pendingOperations.get(requestId);
+		complete(requestId);
+		if (operation != null) {
+			computedAt.remove(operation);
+		}
+	}
+
+	/**
+	 * @param operation Type of operation.
+	 * @return The current timeout for the operation, in milliseconds.
+	 */
+	long timeout(@NotNull Operation operation) {
+		final int count = counts.getOrDefault(operation, 0);
+		if (count < MIN_SAMPLES) {
+			return fallback;
+		}
+		final Integer computed = computedAt.get(operation);
+		if (computed == null || count - computed >= REFRESH_SAMPLES) {
+			timeouts.put(operation, compute(operation, Math.min(count, WINDOW_SIZE)));
+			computedAt.put(operation, count);
+		}
+		return timeouts.get(operation);
+	}
+
+	/**
+	 * @return Readable description of the timeouts, for debugging.
+	 */
+	@Override
+	public String toString() {
+		final Map<Operation, Long> description = new EnumMap<>(Operation.class);
+		for (Operation operation : Operation.values()) {
+			description.put(operation, timeout(operation));
+		}
+		return description.toString();
+	}
+
+	/* -----
+	 * Utils
+	 ----- */
+
+	private void record(@NotNull Operation operation, long nanos) {
+		final long[] window = samples.computeIfAbsent(operation, o -> new long[WINDOW_SIZE]);
+		final int count = counts.getOrDefault(operation, 0);
+		window[count % WINDOW_SIZE] = nanos;
+		counts.put(operation, count + 1);
+	}
+
+	private long compute(@NotNull Operation operation, int count) {
+		final long[] sorted = Arrays.copyOf(samples.get(operation), count);
+		Arrays.sort(sorted);
+		final int index = Math.max(0, Math.min(count - 1, (int) Math.ceil(percentile * count) - 1));
+		final long timeout = (long) Math.ceil(sorted[index] * factor / TimeUnit.MILLISECONDS.toNanos(1));
+		return Math.max(min, Math.min(max, timeout));
+	}
+}
@@ -0,0 +1,45 @@
+package it.unitn.ds1.node;
+
+import static it.unitn.ds1.SystemConstants.COALESCE_READS;
+import static it.unitn.ds1.SystemConstants.DIGEST_READS;
+import static it.unitn.ds1.SystemConstants.HEDGED_READS;
+
+/**
+ * Strategies used by a coordinator to serve the reads of the clients.
+ * The nodes use the ones configured in @{@link it.unitn.ds1.SystemConstants},
+ * see HEDGED_READS, DIGEST_READS and COALESCE_READS for their trade-offs.
+ */
+final class ReadOptions {
+
+	/**
+	 * Strategies configured for the system.
+	 */
+	static final ReadOptions DEFAULT = new ReadOptions(HEDGED_READS, DIGEST_READS, COALESCE_READS);
+
+	private final boolean hedged;
+	private final boolean digest;
+	private final boolean coalesce;
+
+	/**
+	 * @param hedged   True to contact only a quorum of replicas and hedge the late answers.
+	 * @param digest   True to receive the value from one replica and the version from the others.
+	 * @param coalesce True to serve concurrent reads of the same key with a single quorum read.
+	 */
+	ReadOptions(boolean hedged, boolean digest, boolean coalesce) {
+		this.hedged = hedged;
+		this.digest = digest;
+		this.coalesce = coalesce;
+	}
+
+	boolean isHedged() {
+		return hedged;
+	}
+
+	boolean isDigest() {
+		return digest;
+	}
+
+	boolean isCoalesce() {
+		return coalesce;
+	}
+}
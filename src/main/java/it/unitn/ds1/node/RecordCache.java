@@ -0,0 +1,288 @@
+package it.unitn.ds1.node;
+
+import it.unitn.ds1.storage.VersionedItem;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.function.BiConsumer;
+import java.util.function.BiPredicate;
+
+/**
+ * In-memory copy of the records stored by a node.
+ * Besides the records, the cache keeps an index of the keys ordered by their position
+ * on the ring. This allows to find the keys inside some token range without
+ * hashing every key in the store. Finally, the cache keeps the digest of the records
+ * of each bucket of the hash space, used to build the @{@link MerkleTree} of a range,
+ * and an index of the keys by the local time of their last change, used to find
+ * the records that a recovering node missed.
+ */
+final class RecordCache {
+
+	// key -> record
+	private final Map<Integer, VersionedItem> records;
+
+	// hashed key -> keys with that hash
+	private final NavigableMap<Integer, Set<Integer>> index;
+
+	// bucket -> XOR of the digests of the records in the bucket
+	private final long[] digests;
+
+	// incremented on every change, used to know when a tree must be rebuilt
+	private long modifications;
+
+	// key -> local time of the last change (milliseconds)
+	private final Map<Integer, Long> changedAt;
+
+	// local time of the last change -> keys changed at that time
+	private final NavigableMap<Long, Set<Integer>> changes;
+
+	/**
+	 * Create a new empty cache.
+	 */
+	RecordCache() {
+		this.records = new HashMap<>();
+		this.index = new TreeMap<>();
+		this.digests = new long[1 << MerkleTree.LEAF_BITS];
+		this.modifications = 0;
+		this.changedAt = new HashMap<>();
+		this.changes = new TreeMap<>();
+	}
+
+	/**
+	 * Get the record for some key.
+	 *
+	 * @param key Key.
+	 * @return The record, or null if not present.
+	 */
+	@Nullable
+	VersionedItem get(int key) {
+		return this.records.get(key);
+	}
+
+	/**
+	 * Insert or replace the record for some key.
+	 *
+	 * @param key  Key.
+	 * @param item Record.
+	 */
+	void put(int key, @NotNull VersionedItem item) {
+		final int hashedKey = HashUtil.hash(key);
+		final int bucket = MerkleTree.bucketOf(hashedKey);
+		final VersionedItem previous = this.records.put(key, item);
+		if (previous == null) {
+			this.index.computeIfAbsent(hashedKey, h -> new HashSet<>()).add(key);
+		} else {
+			this.digests[bucket] ^= MerkleTree.digest(key, previous);
+		}
+		this.digests[bucket] ^= MerkleTree.digest(key, item);
+		this.modifications++;
+		trackChange(key, System.currentTimeMillis());
+	}
+
+	/**
+	 * Insert or replace a set of records.
+	 *
+	 * @param records Records to insert.
+	 */
+	void putAll(@NotNull Map<Integer, VersionedItem> records) {
+		records.forEach(this::put);
+	}
+
+	/**
+	 * Insert a record, unless the cache contains a more recent version for the same key.
+	 * This follows the same rules of the persistent storage.
+	 *
+	 * @param key  Key.
+	 * @param item Record.
+	 */
+	void merge(int key, @NotNull VersionedItem item) {
+		final VersionedItem current = this.records.get(key);
+		if (current == null || current.getVersion() <= item.getVersion()) {
+			put(key, item);
+		}
+	}
+
+	/**
+	 * Merge a set of records, keeping the most recent version of each key.
+	 *
+	 * @param records Records to merge.
+	 */
+	void mergeAll(@NotNull Map<Integer, VersionedItem> records) {
+		records.forEach(this::merge);
+	}
+
+	/**
+	 * Remove the record for some key, if present.
+	 *
+	 * @param key Key.
+	 */
+	void remove(int key) {
+		final VersionedItem previous = this.records.remove(key);
+		if (previous != null) {
+			final int hashedKey = HashUtil.hash(key);
+			this.digests[MerkleTree.bucketOf(hashedKey)] ^= MerkleTree.digest(key, previous);
+			this.modifications++;
+			untrackChange(key);
+			final Set<Integer> keys = this.index.get(hashedKey);
+			keys.remove(key);
+			if (keys.isEmpty()) {
+				this.index.remove(hashedKey);
+			}
+		}
+	}
+
+	/**
+	 * Remove the records for a set of keys.
+	 *
+	 * @param keys Keys to remove.
+	 */
+	void removeAll(@NotNull Collection<Integer> keys) {
+		keys.forEach(this::remove);
+	}
+
+	/**
+	 * Remove all records.
+	 */
+	void clear() {
+		this.records.clear();
+		this.index.clear();
+		Arrays.fill(this.digests, 0);
+		this.modifications++;
+		this.changedAt.clear();
+		this.changes.clear();
+	}
+
+	/**
+	 * @return Number of records in the cache.
+	 */
+	int size() {
+		return this.records.size();
+	}
+
+	/**
+	 * @return Keys of the records in the cache.
+	 */
+	@NotNull
+	Set<Integer> keySet() {
+		return this.records.keySet();
+	}
+
+	/**
+	 * Iterate over all records.
+	 *
+	 * @param action Action to perform for each record.
+	 */
+	void forEach(@NotNull BiConsumer<Integer, VersionedItem> action) {
+		this.records.forEach(action);
+	}
+
+	/**
+	 * @param bucket Bucket of the hash space (see @{@link MerkleTree#bucketOf(int)}).
+	 * @return The XOR of the digests of the records in the bucket.
+	 */
+	long bucketDigest(int bucket) {
+		return this.digests[bucket];
+	}
+
+	/**
+	 * @return A counter incremented on every change of the cache.
+	 */
+	long modifications() {
+		return this.modifications;
+	}
+
+	/**
+	 * Return the records inside the given range that changed on this node
+	 * at the given time or later. Only the keys changed since then are visited.
+	 *
+	 * @param range Range on the ring.
+	 * @param since Local time, in milliseconds.
+	 * @return Records changed since the given time, as a map key -> record.
+	 */
+	@NotNull
+	Map<Integer, VersionedItem> changedSince(@NotNull TokenRange range, long since) {
+		final Map<Integer, VersionedItem> result = new HashMap<>();
+		for (Set<Integer> keys : this.changes.tailMap(since, true).values()) {
+			for (Integer key : keys) {
+				if (range.contains(HashUtil.hash(key))) {
+					result.put(key, this.records.get(key));
+				}
+			}
+		}
+		return result;
+	}
+
+	/**
+	 * Visit the positions inside the given range that contain some key, in ring order
+	 * (starting from the beginning of the range), until the visitor returns false.
+	 *
+	 * @param range   Range on the ring.
+	 * @param visitor Called with each position and the keys at that position;
+	 *                returns true to continue, false to stop.
+	 * @return True if the whole range was visited, false if the visitor stopped before.
+	 */
+	boolean forEachPosition(@NotNull TokenRange range, @NotNull BiPredicate<Integer, Set<Integer>> visitor) {
+		final List<NavigableMap<Integer, Set<Integer>>> parts = range.wraps()
+			? Arrays.asList(this.index.tailMap(range.getStart(), false), this.index.headMap(range.getEnd(), true))
+			: Collections.singletonList(this.index.subMap(range.getStart(), false, range.getEnd(), true));
+		for (NavigableMap<Integer, Set<Integer>> part : parts) {
+			for (Map.Entry<Integer, Set<Integer>> position : part.entrySet()) {
+				if (!visitor.test(position.getKey(), position.getValue())) {
+					return false;
+				}
+			}
+		}
+		return true;
+	}
+
+	/**
+	 * Return the keys whose position on the ring falls inside the given range.
+	 * Only the keys inside the range are visited.
+	 *
+	 * @param range Range on the ring.
+	 * @return Keys inside the range.
+	 */
+	@NotNull
+	List<Integer> keysIn(@NotNull TokenRange range) {
+		final List<Integer> result = new ArrayList<>();
+		final Collection<Set<Integer>> buckets;
+		if (range.getStart() == range.getEnd()) {
+			buckets = this.index.values();
+		} else if (!range.wraps()) {
+			buckets = this.index.subMap(range.getStart(), false, range.getEnd(), true).values();
+		} else {
+			buckets = new ArrayList<>(this.index.tailMap(range.getStart(), false).values());
+			buckets.addAll(this.index.headMap(range.getEnd(), true).values());
+		}
+		buckets.forEach(result::addAll);
+		return result;
+	}
+
+	private void trackChange(int key, long time) {
+		untrackChange(key);
+		this.changedAt.put(key, time);
+		this.changes.computeIfAbsent(time, t -> new HashSet<>()).add(key);
+	}
+
+	private void untrackChange(int key) {
+		final Long previous = this.changedAt.remove(key);
+		if (previous != null) {
+			final Set<Integer> keys = this.changes.get(previous);
+			keys.remove(key);
+			if (keys.isEmpty()) {
+				this.changes.remove(previous);
+			}
+		}
+	}
+}
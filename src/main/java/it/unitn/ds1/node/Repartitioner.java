@@ -0,0 +1,191 @@
+package it.unitn.ds1.node;
+
+import it.unitn.ds1.storage.VersionedItem;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+import java.util.function.IntFunction;
+import java.util.function.IntPredicate;
+
+/**
+ * Compute how the records of a node have to be repartitioned, outside the actor thread.
+ * The keys are split in chunks processed in parallel by a fork/join pool.
+ * The partial results of the chunks are merged in one batch of records per target node.
+ * <p>
+ * NB: the functions used to compute the targets must not depend on the mutable state
+ * of the actor. Use a copy of the @{@link Ring} instead.
+ */
+final class Repartitioner {
+
+	// chunks smaller than this are processed sequentially
+	private static final int CHUNK_SIZE = 2048;
+
+	// pool used for the computation
+	private final ForkJoinPool pool;
+
+	/**
+	 * Create a new repartitioner.
+	 *
+	 * @param pool Pool used to run the computation.
+	 */
+	Repartitioner(@NotNull ForkJoinPool pool) {
+		this.pool = pool;
+	}
+
+	/**
+	 * Compute the repartitioning of the given records in background.
+	 *
+	 * @param records Records to repartition. The map must not be modified during the computation.
+	 * @param targets Function that returns the nodes that have to receive some key.
+	 * @param keep    Predicate that tells if the current node should keep some key.
+	 * @return A future with the result of the computation.
+	 */
+	@NotNull
+	CompletableFuture<Plan> plan(@NotNull Map<Integer, VersionedItem> records,
+								 @NotNull IntFunction<Set<Integer>> targets,
+								 @NotNull IntPredicate keep) {
+		final int[] keys = records.keySet().stream().mapToInt(Integer::intValue).toArray();
+		return CompletableFuture.supplyAsync(
+			() -> this.pool.invoke(new Chunk(keys, 0, keys.length, records, targets, keep)),
+			this.pool
+		);
+	}
+
+	/**
+	 * Result of a repartitioning: the batches of records to send to each node
+	 * and the keys the current node should drop.
+	 */
+	static final class Plan {
+
+		// target node -> records to send
+		private final Map<Integer, Map<Integer, VersionedItem>> batches;
+
+		// keys that are no longer under the responsibility of the node
+		private final List<Integer> removed;
+
+		private Plan(Map<Integer, Map<Integer, VersionedItem>> batches, List<Integer> removed) {
+			this.batches = batches;
+			this.removed = removed;
+		}
+
+		/**
+		 * @return Records to send to each node, as a Map: node id -> records.
+		 */
+		@NotNull
+		Map<Integer, Map<Integer, VersionedItem>> getBatches() {
+			return Collections.unmodifiableMap(this.batches);
+		}
+
+		/**
+		 * @return Keys that the current node should drop.
+		 */
+		@NotNull
+		List<Integer> getRemoved() {
+			return Collections.unmodifiableList(this.removed);
+		}
+
+		// merge the other plan in this one, reusing the biggest maps
+		private Plan merge(Plan other) {
+			other.batches.forEach((nodeId, records) -> this.batches.merge(nodeId, records, (a, b) -> {
+				if (a.size() < b.size()) {
+					b.putAll(a);
+					return b;
+				}
+				a.putAll(b);
+				return a;
+			}));
+			this.removed.addAll(other.removed);
+			return this;
+		}
+	}
+
+	/**
+	 * Task that processes the keys in [from, to).
+	 */
+	private static final class Chunk extends RecursiveTask<Plan> {
+
+		private final int[] keys;
+		private final int from;
+		private final int to;
+		private final Map<Integer, VersionedItem> records;
+		private final IntFunction<Set<Integer>> targets;
+		private final IntPredicate keep;
+
+		private Chunk(int[] keys, int from, int to, Map<Integer, VersionedItem> records,
+					  IntFunction<Set<Integer>> targets, IntPredicate keep) {
+			this.keys = keys;
+			this.from = from;
+			this.to = to;
+			this.records = records;
+			this.targets = targets;
+			this.keep = keep;
+		}
+
+		@Override
+		protected Plan compute() {
+
+			// split big chunks in two halves
+			if (this.to - this.from > CHUNK_SIZE) {
+				final int middle = (this.from + this.to) >>> 1;
+				final Chunk left = new Chunk(this.keys, this.from, middle, this.records, this.targets, this.keep);
+				final Chunk right = new Chunk(this.keys, middle, this.to, this.records, this.targets, this.keep);
+				left.fork();
+				final Plan rightPlan = right.compute();
+				return left.join().merge(rightPlan);
+			}
+
+			// process small chunks sequentially
+			final Plan plan = new Plan(new HashMap<>(), new ArrayList<>());
+			for (int i = this.from; i < this.to; i++) {
+				final int key = this.keys[i];
+				for (Integer nodeId : this.targets.apply(key)) {
+					plan.batches.computeIfAbsent(nodeId, k -> new HashMap<>()).put(key, this.records.get(key));
+				}
+				if (!this.keep.test(key)) {
+					plan.removed.add(key);
+				}
+			}
+			return plan;
+		}
+	}
+
+	/**
+	 * Message sent by the actor to itself when a repartitioning is completed.
+	 */
+	static final class Completed {
+
+		private final Plan plan;
+		private final Throwable failure;
+
+		Completed(@Nullable Plan plan, @Nullable Throwable failure) {
+			assert (plan == null) != (failure == null);
+			this.plan = plan;
+			this.failure = failure;
+		}
+
+		/**
+		 * @return The result of the repartitioning, or null if the computation failed.
+		 */
+		@Nullable
+		Plan getPlan() {
+			return this.plan;
+		}
+
+		/**
+		 * @return The cause of the failure, or null if the computation succeeded.
+		 */
+		@Nullable
+		Throwable getFailure() {
+			return this.failure;
+		}
+	}
+}
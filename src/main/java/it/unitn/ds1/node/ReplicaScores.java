@@ -0,0 +1,193 @@
+package it.unitn.ds1.node;
+
+import org.jetbrains.annotations.NotNull;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.function.IntPredicate;
+import java.util.function.LongSupplier;
+
+/**
+ * Score of each node as a replica, used by the coordinator to choose
+ * the replicas that receive the requests of a read when not all of them are contacted.
+ * <p>
+ * For each node the coordinator keeps an exponentially weighted moving average (EWMA)
+ * of its response times and the number of its requests that are still waiting for an answer.
+ * The score is the average response time multiplied by the number of outstanding requests plus one,
+ * so a node that becomes slow (eg. because of the disk or a GC pause) is penalized both by its
+ * response times and by the requests that pile up on it. Lower scores are better.
+ * <p>
+ * The average of a node that does not answer for a while decays towards zero (it halves
+ * every halfLife), so a node that was slow is tried again after some time.
+ * <p>
+ * When the nodes are ranked, a fixed penalty is added to the score of the nodes in other zones
+ * (eg. racks or data centers), so that a node in the same zone of the coordinator is preferred
+ * unless it is clearly slower than a remote one.
+ */
+final class ReplicaScores {
+
+	// state of a node
+	private static final class Score {
+		private boolean answered;
+		private double average;
+		private int outstanding;
+		private long updatedAt;
+	}
+
+	// weight of the last response time in the average
+	private final double alpha;
+
+	// time after which the average of an idle node halves, in nanoseconds
+	private final long halfLife;
+
+	// penalty added to the score of the nodes in other zones, in nanoseconds
+	private final long remotePenalty;
+
+	// source of time, in nanoseconds
+	private final LongSupplier clock;
+
+	// node -> score
+	private final Map<Integer, Score> scores;
+
+	/**
+	 * Create new scores based on the system time.
+	 *
+	 * @param alpha         Weight of the last response time in the average, between 0 and 1.
+	 * @param halfLife      Time after which the average of an idle node halves, in nanoseconds.
+	 * @param remotePenalty Penalty added to the score of the nodes in other zones, in nanoseconds.
+	 */
+	ReplicaScores(double alpha, long halfLife, long remotePenalty) {
+		this(alpha, halfLife, remotePenalty, System::nanoTime);
+	}
+
+	/**
+	 * Create new scores based on the given time source.
+	 *
+	 * @param alpha         Weight of the last response time in the average, between 0 and 1.
+	 * @param halfLife      Time after which the average of an idle node halves, in nanoseconds.
+	 * @param remotePenalty Penalty added to the score of the nodes in other zones, in nanoseconds.
+	 * @param clock         Source of time, in nanoseconds.
+	 */
+	ReplicaScores(double alpha, long halfLife, long remotePenalty, @NotNull LongSupplier clock) {
+		assert alpha > 0 && alpha <= 1 : "alpha must be in (0, 1]";
+		assert halfLife > 0 : "half life must be positive";
+		assert remotePenalty >= 0 : "penalty must not be negative";
+		this.alpha = alpha;
+		this.halfLife = halfLife;
+		this.remotePenalty = remotePenalty;
+		this.clock = clock;
+		this.scores = new HashMap<>();
+	}
+
+	/**
+	 * Remember that a request was sent to a node.
+	 *
+	 * @param node ID of the node.
+	 */
+	void sent(int node) {
+		scores.computeIfAbsent(node, n -> new Score()).outstanding++;
+	}
+
+	/**
+	 * Remember that a node answered to a request.
+	 *
+	 * @param node  ID of the node.
+	 * @param nanos Time between the request and the response, in nanoseconds.
+	 */
+	void answered(int node, long nanos) {
+		final Score score = scores.computeIfAbsent(node, n -> new Score());
+		final long now = clock.getAsLong();
+		score.average = score.answered ? alpha * nanos + (1 - alpha) * decayed(score, now) : nanos;
+		score.answered = true;
+		score.updatedAt = now;
+		score.outstanding = Math.max(0, score.outstanding - 1);
+	}
+
+	/**
+	 * Remember that a request to a node will not be answered anymore
+	 * (eg. the request failed), without changing the average of the node.
+	 *
+	 * @param node ID of the node.
+	 */
+	void abandoned(int node) {
+		final Score score = scores.get(node);
+		if (score != null) {
+			score.outstanding = Math.max(0, score.outstanding - 1);
+		}
+	}
+
+	/**
+	 * @param node ID of the node.
+	 * @return Current score of the node, lower is better. Nodes never contacted have score 0,
+	 * for the others the outstanding requests count even if the node never answered.
+	 */
+	double score(int node) {
+		final Score score = scores.get(node);
+		if (score == null) {
+			return 0;
+		}
+		return Math.max(1, decayed(score, clock.getAsLong())) * (score.outstanding + 1);
+	}
+
+	/**
+	 * Sort some nodes from the best to the worst score.
+	 * Nodes with the same score keep their relative order.
+	 *
+	 * @param nodes IDs of the nodes.
+	 * @return A new list with the nodes sorted.
+	 */
+	@NotNull
+	List<Integer> rank(@NotNull List<Integer> nodes) {
+		return rank(nodes, node -> false);
+	}
+
+	/**
+	 * Sort some nodes from the best to the worst score, penalizing the nodes in other zones.
+	 * Nodes with the same score keep their relative order.
+	 *
+	 * @param nodes  IDs of the nodes.
+	 * @param remote Tells if a node is in another zone.
+	 * @return A new list with the nodes sorted.
+	 */
+	@NotNull
+	List<Integer> rank(@NotNull List<Integer> nodes, @NotNull IntPredicate remote) {
+		final Map<Integer, Double> current = new HashMap<>();
+		for (Integer node : nodes) {
+			current.put(node, score(node) + (remote.test(node) ? remotePenalty : 0));
+		}
+		final List<Integer> ranked = new ArrayList<>(nodes);
+		ranked.sort(Comparator.comparingDouble(current::get));
+		return ranked;
+	}
+
+	/**
+	 * Forget a node (eg. it left the ring).
+	 *
+	 * @param node ID of the node.
+	 */
+	void remove(int node) {
+		scores.remove(node);
+	}
+
+	/**
+	 * @return Readable description of the scores, for debugging.
+	 */
+	@Override
+	public String toString() {
+		final long now = clock.getAsLong();
+		final Map<Integer, String> description = new TreeMap<>();
+		scores.forEach((node, score) -> description.put(node, String.format("%.2fms/%d",
+			decayed(score, now) / 1e6, score.outstanding)));
+		return description.toString();
+	}
+
+	// average of the node, halved for each half life since its last answer
+	private double decayed(@NotNull Score score, long now) {
+		final long idle = now - score.updatedAt;
+		return !score.answered || idle <= 0 ? score.average : score.average * Math.pow(0.5, (double) idle / halfLife);
+	}
+}
@@ -1,20 +1,39 @@
 package it.unitn.ds1.node;
 
 import akka.actor.ActorRef;
+import it.unitn.ds1.SystemConstants;
 import org.jetbrains.annotations.NotNull;
-import it.unitn.ds1.node.HashUtil;
 
-import java.util.Collections;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
 import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
 import java.util.Map;
+import java.util.NavigableMap;
+import java.util.NavigableSet;
 import java.util.Set;
-import java.util.stream.Collectors;
-import java.util.LinkedHashSet;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import java.util.function.IntPredicate;
 
 /**
  * Represent the topology of the system.
  * Contains utilities to individuate the nodes to interrogate for a given function.
  * Eg. next node in the ring
+ * <p>
+ * Each node owns a number of tokens on the ring equal to its weight.
+ * The first token is always the ID of the node, the others are derived
+ * deterministically from the ID. Since the tokens of a node with weight W
+ * are a prefix of the tokens of the same node with weight W + 1, changing
+ * the weight of a node only moves the ranges adjacent to the added (or removed) tokens.
+ * <p>
+ * Each node is also labeled with a zone (eg. a rack or a data center).
+ * The replicas of a key are spread across as many distinct zones as possible.
  */
 final class Ring {
 
@@ -28,6 +47,18 @@ final class Ring {
 	// NB: this map contains also the node that instantiated this object!
 	private final Map<Integer, ActorRef> nodes;
 
+	// Weight of each node in the system, i.e. the number of tokens it owns.
+	private final Map<Integer, Integer> weights;
+
+	// Zone of each node in the system.
+	private final Map<Integer, String> zones;
+
+	// Number of distinct zones in the system.
+	private int zoneCount;
+
+	// Tokens on the ring: position -> ID of the node owning the position.
+	private final NavigableMap<Integer, Integer> tokens;
+
 	/**
 	 * Create a new empty ring for a node.
 	 *
@@ -38,19 +69,144 @@ final class Ring {
 		this.replication = replication;
 		this.myID = myID;
 		this.nodes = new HashMap<>();
+		this.weights = new HashMap<>();
+		this.zones = new HashMap<>();
+		this.tokens = new TreeMap<>();
+	}
+
+	/**
+	 * Compute the positions on the ring of the tokens owned by some node.
+	 *
+	 * @param id     ID of the node.
+	 * @param weight Weight of the node.
+	 * @return List of tokens, the first one is always the ID itself.
+	 */
+	@NotNull
+	static List<Integer> tokensOf(int id, int weight) {
+		final List<Integer> result = new ArrayList<>(weight);
+		result.add(id);
+		for (int i = 1; i < weight; i++) {
+			result.add(HashUtil.hash(id + "#" + i));
+		}
+		return result;
+	}
+
+	/**
+	 * Walk the ring clockwise starting from the given position and collect
+	 * the first distinct nodes that satisfy the given filter.
+	 *
+	 * @param hashedKey Position where to start.
+	 * @param filter    Filter on the node IDs.
+	 * @param limit     Maximum number of nodes to collect.
+	 * @return The nodes found, in ring order.
+	 */
+	@NotNull
+	private Set<Integer> walk(int hashedKey, IntPredicate filter, int limit) {
+		final Set<Integer> result = new LinkedHashSet<>(); // preserve order
+		for (Integer owner : ownersFrom(hashedKey)) {
+			if (result.size() >= limit) return result;
+			if (filter.test(owner)) result.add(owner);
+		}
+		return result;
+	}
+
+	/**
+	 * @param hashedKey Position where to start.
+	 * @return The owners of the tokens of the ring, clockwise from the given position
+	 * (a node appears once for each of its tokens).
+	 */
+	@NotNull
+	private Iterable<Integer> ownersFrom(int hashedKey) {
+		final Collection<Integer> tail = this.tokens.tailMap(hashedKey, true).values();
+		final Collection<Integer> head = this.tokens.headMap(hashedKey, false).values();
+		return () -> new Iterator<Integer>() {
+			private Iterator<Integer> current = tail.iterator();
+			private boolean wrapped = false;
+
+			@Override
+			public boolean hasNext() {
+				if (!current.hasNext() && !wrapped) {
+					current = head.iterator();
+					wrapped = true;
+				}
+				return current.hasNext();
+			}
+
+			@Override
+			public Integer next() {
+				hasNext();
+				return current.next();
+			}
+		};
 	}
 
+	/**
+	 * Walk the ring clockwise starting from the given position and collect
+	 * the replicas for that position. Each replica is taken from a zone not yet used,
+	 * if any. When there are less zones than replicas, the remaining replicas are
+	 * the first nodes skipped during the walk.
+	 * The walk stops as soon as the replicas are known, so with a single zone
+	 * it is the same walk of a ring without zones.
+	 *
+	 * @param hashedKey Position where to start.
+	 * @param filter    Filter on the node IDs.
+	 * @return The replicas, in order of preference.
+	 */
 	@NotNull
-	private static Set<Integer> computeResponsibleForKey(int hashedKey, Set<Integer> nodes, int replication) {
-		return nodes.stream()
-				.sorted((o1, o2) -> {
-					if (o1 >= hashedKey && o2 >= hashedKey) return o1 - o2;
-					if (o1 >= hashedKey && o2 < hashedKey) return -1;
-					if (o1 < hashedKey && o2 >= hashedKey) return +1;
-					else return o1 - o2;
-				})
-				.limit(replication)
-				.collect(Collectors.toCollection(LinkedHashSet::new)); // preserve order
+	private Set<Integer> placeReplicas(int hashedKey, IntPredicate filter) {
+		if (this.zoneCount <= 1) {
+			return walk(hashedKey, filter, this.replication);
+		}
+
+		final Set<String> usedZones = new HashSet<>();
+		final Set<Integer> result = new LinkedHashSet<>();
+		final Set<Integer> skipped = new LinkedHashSet<>();
+		for (Integer owner : ownersFrom(hashedKey)) {
+			if (result.size() >= this.replication
+				|| (usedZones.size() >= this.zoneCount && result.size() + skipped.size() >= this.replication)) {
+				break;
+			}
+			if (result.contains(owner) || !filter.test(owner)) continue;
+			if (usedZones.add(getZone(owner))) {
+				result.add(owner);
+			} else {
+				skipped.add(owner);
+			}
+		}
+		for (Integer id : skipped) {
+			if (result.size() >= this.replication) break;
+			result.add(id);
+		}
+		return result;
+	}
+
+	/**
+	 * Compute the nodes where to write the given key when some replicas are unreachable (sloppy quorum).
+	 * Each healthy replica receives the write for itself. Each unreachable replica is substituted
+	 * by the next healthy node on the ring that is not a replica, which stores the write
+	 * as a hint for the replica. If no substitute is available, the unreachable replica is kept.
+	 *
+	 * @param key     Key.
+	 * @param healthy Tells if a node is believed to be reachable.
+	 * @return Map from the node where to write to the intended replica (the node itself for healthy replicas),
+	 * in order of preference.
+	 */
+	@NotNull
+	Map<Integer, Integer> sloppyReplicasForKey(int key, IntPredicate healthy) {
+		final int hashedKey = HashUtil.hash(key);
+		final Set<Integer> replicas = placeReplicas(hashedKey, id -> true);
+		final Iterator<Integer> substitutes = walk(hashedKey,
+			id -> !replicas.contains(id) && healthy.test(id), this.nodes.size()).iterator();
+
+		final Map<Integer, Integer> result = new LinkedHashMap<>();
+		for (Integer replica : replicas) {
+			if (healthy.test(replica) || !substitutes.hasNext()) {
+				result.put(replica, replica);
+			} else {
+				result.put(substitutes.next(), replica);
+			}
+		}
+		return result;
 	}
 
 	/**
@@ -62,7 +218,91 @@ final class Ring {
 	@NotNull
 	Set<Integer> responsibleForKey(int key) {
 		int hashedKey = HashUtil.hash(key); // <-- hash the key before lookup
-		return computeResponsibleForKey(hashedKey, this.nodes.keySet(), this.replication);
+		return placeReplicas(hashedKey, id -> true);
+	}
+
+	/**
+	 * Return the IDs responsible for the keys hashed on the given position.
+	 *
+	 * @param hashedKey Position on the ring.
+	 * @return Set of responsible IDs.
+	 */
+	@NotNull
+	Set<Integer> responsibleForPosition(int hashedKey) {
+		return placeReplicas(hashedKey, id -> true);
+	}
+
+	/**
+	 * Split the ring in the ranges delimited by the tokens of this ring and of the given one.
+	 * All the positions in one of these ranges have the same replicas in each of the two rings.
+	 *
+	 * @param other Another ring.
+	 * @return Ranges of the ring, in order.
+	 */
+	@NotNull
+	List<TokenRange> rangesWith(@NotNull Ring other) {
+		final NavigableSet<Integer> boundaries = new TreeSet<>(this.tokens.keySet());
+		boundaries.addAll(other.tokens.keySet());
+
+		final List<TokenRange> result = new ArrayList<>(boundaries.size());
+		if (boundaries.isEmpty()) return result;
+
+		Integer previous = boundaries.last();
+		for (Integer boundary : boundaries) {
+			result.add(new TokenRange(previous, boundary));
+			previous = boundary;
+		}
+		return result;
+	}
+
+	/**
+	 * Return the ranges of the ring replicated by the given node.
+	 *
+	 * @param nodeID ID of the node.
+	 * @return Ranges replicated by the node, in order.
+	 */
+	@NotNull
+	List<TokenRange> rangesOf(int nodeID) {
+		final List<TokenRange> result = new ArrayList<>();
+		for (TokenRange range : rangesWith(this)) {
+			if (responsibleForPosition(range.getEnd()).contains(nodeID)) {
+				result.add(range);
+			}
+		}
+		return result;
+	}
+
+	/**
+	 * Compute the ranges of the ring whose replicas are different between the given ring and this one.
+	 * Only the keys in these ranges need to be moved after a membership change.
+	 *
+	 * @param previous Ring before the membership change.
+	 * @return Ranges whose replicas changed.
+	 */
+	@NotNull
+	List<TokenRange> changedRanges(@NotNull Ring previous) {
+		final List<TokenRange> result = new ArrayList<>();
+		for (TokenRange range : rangesWith(previous)) {
+			if (!responsibleForPosition(range.getEnd()).equals(previous.responsibleForPosition(range.getEnd()))) {
+				result.add(range);
+			}
+		}
+		return result;
+	}
+
+	/**
+	 * Sort the given nodes so that the ones in the given zone come first.
+	 * The relative order of the nodes is otherwise preserved.
+	 *
+	 * @param nodes Nodes to sort.
+	 * @param zone  Zone to prefer.
+	 * @return The sorted nodes.
+	 */
+	@NotNull
+	List<Integer> preferZone(@NotNull Set<Integer> nodes, @NotNull String zone) {
+		final List<Integer> result = new ArrayList<>(nodes);
+		result.sort(Comparator.comparing(id -> !zone.equals(getZone(id))));
+		return result;
 	}
 
 	/**
@@ -74,10 +314,7 @@ final class Ring {
 	@NotNull
 	Set<Integer> nextResponsibleReplicasForLeaving(int key) {
 		int hashedKey = HashUtil.hash(key); // <-- hash the key before lookup
-		final Set<Integer> nodesExceptMe = this.nodes.keySet().stream()
-				.filter(id -> id != this.myID)
-				.collect(Collectors.toSet());
-		return computeResponsibleForKey(hashedKey, nodesExceptMe, this.replication);
+		return placeReplicas(hashedKey, id -> id != this.myID);
 	}
 
 	/**
@@ -85,10 +322,8 @@ final class Ring {
 	 */
 	@NotNull
 	Integer nextIDInTheRing() {
-		return this.nodes.keySet().stream()
-			.filter(key -> key > myID)
-			.findFirst()
-			.orElse(Collections.min(nodes.keySet()));
+		final Set<Integer> next = walk(this.myID + 1, id -> id != this.myID, 1);
+		return next.isEmpty() ? this.myID : next.iterator().next();
 	}
 
 	/**
@@ -130,6 +365,37 @@ final class Ring {
 		return this.nodes.keySet();
 	}
 
+	/**
+	 * Return the weight of some node.
+	 *
+	 * @param id ID of the node.
+	 * @return Weight of the node, or the default weight if the node is unknown.
+	 */
+	int getWeight(int id) {
+		return this.weights.getOrDefault(id, SystemConstants.DEFAULT_NODE_WEIGHT);
+	}
+
+	/**
+	 * Return the zone of some node.
+	 *
+	 * @param id ID of the node.
+	 * @return Zone of the node, or the default zone if the node is unknown.
+	 */
+	@NotNull
+	String getZone(int id) {
+		return this.zones.getOrDefault(id, SystemConstants.DEFAULT_NODE_ZONE);
+	}
+
+	/**
+	 * Check if some node is part of the ring.
+	 *
+	 * @param id ID of the node.
+	 * @return True if the node is in the ring, false otherwise.
+	 */
+	boolean contains(int id) {
+		return this.nodes.containsKey(id);
+	}
+
 	/**
 	 * @return The size of the ring.
 	 */
@@ -138,22 +404,35 @@ final class Ring {
 	}
 
 	/**
-	 * Add a new node to the system.
+	 * Add a new node with the default weight and zone to the system.
+	 * If the node is already present, its weight and zone are kept.
 	 *
 	 * @param id       ID of the node.
 	 * @param actorRef Actor reference to the node.
 	 */
 	void addNode(int id, ActorRef actorRef) {
-		this.nodes.put(id, actorRef);
+		addNode(id, actorRef, getWeight(id), getZone(id));
 	}
 
 	/**
-	 * Add a set of nodes to the ring.
+	 * Add a new node to the system. If the node is already present,
+	 * its reference, weight and zone are updated.
 	 *
-	 * @param nodes Set of nodes.
+	 * @param id       ID of the node.
+	 * @param actorRef Actor reference to the node.
+	 * @param weight   Weight of the node.
+	 * @param zone     Zone of the node.
 	 */
-	void addNodes(Map<Integer, ActorRef> nodes) {
-		this.nodes.putAll(nodes);
+	void addNode(int id, ActorRef actorRef, int weight, @NotNull String zone) {
+		assert weight > 0 : "Weight must be positive";
+		removeTokens(id);
+		this.nodes.put(id, actorRef);
+		this.weights.put(id, weight);
+		this.zones.put(id, zone);
+		this.zoneCount = new HashSet<>(this.zones.values()).size();
+		for (int token : tokensOf(id, weight)) {
+			this.tokens.putIfAbsent(token, id);
+		}
 	}
 
 	/**
@@ -162,6 +441,31 @@ final class Ring {
 	 * @param nodeID ID of the nodo to remove.
 	 */
 	void removeNode(int nodeID) {
+		removeTokens(nodeID);
 		this.nodes.remove(nodeID);
+		this.weights.remove(nodeID);
+		this.zones.remove(nodeID);
+		this.zoneCount = new HashSet<>(this.zones.values()).size();
+	}
+
+	/**
+	 * Create a copy of this ring. This is used to compare
+	 * the ownership of the keys before and after a membership change.
+	 *
+	 * @return A new independent ring with the same nodes.
+	 */
+	@NotNull
+	Ring copy() {
+		final Ring copy = new Ring(this.replication, this.myID);
+		copy.nodes.putAll(this.nodes);
+		copy.weights.putAll(this.weights);
+		copy.zones.putAll(this.zones);
+		copy.zoneCount = this.zoneCount;
+		copy.tokens.putAll(this.tokens);
+		return copy;
+	}
+
+	private void removeTokens(int id) {
+		this.tokens.values().removeIf(owner -> owner == id);
 	}
 }
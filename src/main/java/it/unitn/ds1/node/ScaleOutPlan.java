@@ -0,0 +1,135 @@
+package it.unitn.ds1.node;
+
+import akka.actor.ActorRef;
+import org.jetbrains.annotations.NotNull;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Batch of nodes admitted to the ring at the same time by a scale-out.
+ * <p>
+ * All the nodes of the batch compute their ranges on the final ring (the current ring
+ * plus all of them) and stream them directly from the current replicas, in parallel.
+ * The current replicas keep all their records until the node that admitted the batch
+ * announces it, when every node of the batch received its ranges: then the other nodes
+ * apply all the joins together and repartition their records once.
+ */
+final class ScaleOutPlan {
+
+	// joins of the nodes in the batch, not announced yet (epoch 0)
+	private final Map<Integer, MembershipDelta> joins;
+
+	// epoch of the membership known by each node when it asked to join
+	private final Map<Integer, Long> knownEpochs;
+
+	// nodes that did not receive all their ranges yet
+	private final Set<Integer> pending;
+
+	ScaleOutPlan() {
+		this.joins = new LinkedHashMap<>();
+		this.knownEpochs = new LinkedHashMap<>();
+		this.pending = new HashSet<>();
+	}
+
+	/**
+	 * Add a node to the batch. If the node was already added (eg. it sent its request again),
+	 * its reference and placement are updated.
+	 *
+	 * @param nodeID     ID of the node.
+	 * @param node       Reference to the node.
+	 * @param weight     Weight of the node.
+	 * @param zone       Zone of the node.
+	 * @param knownEpoch Epoch of the membership known by the node.
+	 */
+	void admit(int nodeID, @NotNull ActorRef node, int weight, @NotNull String zone, long knownEpoch) {
+		joins.put(nodeID, new MembershipDelta(0, MembershipDelta.Type.JOIN, nodeID, node, weight, zone));
+		knownEpochs.put(nodeID, knownEpoch);
+		pending.add(nodeID);
+	}
+
+	/**
+	 * @param nodeID ID of some node.
+	 * @return True if the node is part of the batch.
+	 */
+	boolean contains(int nodeID) {
+		return joins.containsKey(nodeID);
+	}
+
+	/**
+	 * @return True if no node was admitted.
+	 */
+	boolean isEmpty() {
+		return joins.isEmpty();
+	}
+
+	/**
+	 * @return IDs of the nodes in the batch, in order of admission.
+	 */
+	@NotNull
+	Set<Integer> getNodeIDs() {
+		return Collections.unmodifiableSet(joins.keySet());
+	}
+
+	/**
+	 * @param nodeID ID of a node in the batch.
+	 * @return Epoch of the membership known by the node when it asked to join.
+	 */
+	long getKnownEpoch(int nodeID) {
+		return knownEpochs.get(nodeID);
+	}
+
+	/**
+	 * @return The joins of the nodes in the batch, not announced yet (epoch 0).
+	 */
+	@NotNull
+	List<MembershipDelta> getJoins() {
+		return new ArrayList<>(joins.values());
+	}
+
+	/**
+	 * Record that a node of the batch received all its ranges.
+	 *
+	 * @param nodeID ID of the node.
+	 * @return True if the node was part of the batch and was still receiving its ranges.
+	 */
+	boolean complete(int nodeID) {
+		return pending.remove(nodeID);
+	}
+
+	/**
+	 * @return IDs of the nodes that are still receiving their ranges.
+	 */
+	@NotNull
+	Set<Integer> getPending() {
+		return Collections.unmodifiableSet(pending);
+	}
+
+	/**
+	 * @return True if all the nodes of the batch received their ranges.
+	 */
+	boolean isCompleted() {
+		return pending.isEmpty();
+	}
+
+	/**
+	 * Create the changes to announce the batch: all the joins have the same epoch.
+	 *
+	 * @param epoch Epoch of the announcement.
+	 * @return The joins of all the nodes in the batch.
+	 */
+	@NotNull
+	List<MembershipDelta> announce(long epoch) {
+		final List<MembershipDelta> result = new ArrayList<>();
+		for (MembershipDelta join : joins.values()) {
+			result.add(new MembershipDelta(epoch, MembershipDelta.Type.JOIN, join.getNodeID(),
+				join.getNode(), join.getWeight(), join.getZone()));
+		}
+		return result;
+	}
+}
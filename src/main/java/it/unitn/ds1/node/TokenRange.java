@@ -0,0 +1,105 @@
+package it.unitn.ds1.node;
+
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Represent a range of positions on the ring, from the start (excluded) to the end (included).
+ * The range wraps around the end of the hash space when the start is not lower than the end.
+ * A range where start and end coincide covers the whole ring.
+ */
+public final class TokenRange implements Serializable {
+
+	// range bounds
+	private final int start;
+	private final int end;
+
+	/**
+	 * Create a new range of positions on the ring.
+	 *
+	 * @param start First position, excluded.
+	 * @param end   Last position, included.
+	 */
+	public TokenRange(int start, int end) {
+		this.start = start;
+		this.end = end;
+	}
+
+	/**
+	 * @return First position of the range, excluded.
+	 */
+	public int getStart() {
+		return start;
+	}
+
+	/**
+	 * @return Last position of the range, included.
+	 */
+	public int getEnd() {
+		return end;
+	}
+
+	/**
+	 * @return True if the range wraps around the end of the hash space.
+	 */
+	public boolean wraps() {
+		return start >= end;
+	}
+
+	/**
+	 * Check if some hashed key falls inside this range.
+	 *
+	 * @param hashedKey Position on the ring.
+	 * @return True if the position is inside the range, false otherwise.
+	 */
+	public boolean contains(int hashedKey) {
+		return wraps()
+			? hashedKey > start || hashedKey <= end
+			: hashedKey > start && hashedKey <= end;
+	}
+
+	/**
+	 * @return Number of positions in the range.
+	 */
+	public long width() {
+		return start == end ? 1L << 32 : (end - start) & 0xffffffffL;
+	}
+
+	/**
+	 * Split the range in consecutive parts of (almost) the same width.
+	 *
+	 * @param parts Number of parts, at least 1.
+	 * @return The parts, in ring order. They are less than requested if the range is too small.
+	 */
+	public List<TokenRange> split(int parts) {
+		assert parts > 0 : "The range must be split in at least one part";
+		final long count = Math.min(parts, width());
+		final List<TokenRange> result = new ArrayList<>();
+		int previous = start;
+		for (int i = 1; i <= count; i++) {
+			final int next = i == count ? end : (int) (start + width() * i / count);
+			result.add(new TokenRange(previous, next));
+			previous = next;
+		}
+		return result;
+	}
+
+	@Override
+	public boolean equals(Object o) {
+		if (this == o) return true;
+		if (o == null || getClass() != o.getClass()) return false;
+		final TokenRange that = (TokenRange) o;
+		return start == that.start && end == that.end;
+	}
+
+	@Override
+	public int hashCode() {
+		return 31 * start + end;
+	}
+
+	@Override
+	public String toString() {
+		return "(" + start + ", " + end + "]";
+	}
+}
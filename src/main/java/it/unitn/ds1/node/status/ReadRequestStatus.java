@@ -4,24 +4,46 @@ import akka.actor.ActorRef;
 import it.unitn.ds1.storage.VersionedItem;
 import org.jetbrains.annotations.Nullable;
 
+import java.util.HashMap;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
 import java.util.LinkedList;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
 
 /**
  * This object is used to collect the responses of some read.
  * The coordinator store an instance of this object in memory until the request is served (or times-out).
  * When a quorum is reached, this object computes the right value to return to the client.
+ * It also remembers the version returned by each replica, so that stale replicas can be repaired.
+ * <p>
+ * Some replicas may return only a digest, i.e. the version of their value: the digest counts
+ * for the quorum, but if it is more recent than all the values received the read is not resolved
+ * until the value is fetched from a replica that has that version.
+ * <p>
+ * Concurrent reads of the same key can be attached to the status, so that they are answered
+ * with the result of the same quorum.
  */
 public final class ReadRequestStatus {
 
 	// internal variables
 	private final int key;
 	private final ActorRef sender;
+	private final List<ActorRef> attached;
 	private final int quorum;
+	private final long knownVersion;
 
-	// store the votes
+	// store the votes: values received and number of votes (including the null ones and the digests)
 	private final List<VersionedItem> replies;
-	private int nullVotes;
+	private int votes;
+
+	// latest version known to be stored on each replica that voted
+	private final Map<Integer, VersionedItem> nodeVotes;
+
+	// replicas asked for their value after they returned a digest
+	private final Set<Integer> fetched;
 
 	/**
 	 * Create a new instance of a read status.
@@ -31,13 +53,29 @@ public final class ReadRequestStatus {
 	 * @param quorum Quorum needed for the read operation.
 	 */
 	public ReadRequestStatus(int key, ActorRef sender, int quorum) {
+		this(key, sender, quorum, 0);
+	}
+
+	/**
+	 * Create a new instance of a read status, for a client that already knows some version of the key.
+	 *
+	 * @param key          Key that was requested.
+	 * @param sender       Actor that requested this read. Used to reply.
+	 * @param quorum       Quorum needed for the read operation.
+	 * @param knownVersion Version of the key known by the client, or 0 if none.
+	 */
+	public ReadRequestStatus(int key, ActorRef sender, int quorum, long knownVersion) {
 		assert quorum > 0;
 
 		this.key = key;
 		this.replies = new LinkedList<>();
 		this.sender = sender;
+		this.attached = new ArrayList<>();
 		this.quorum = quorum;
-		this.nullVotes = 0;
+		this.knownVersion = knownVersion;
+		this.votes = 0;
+		this.nodeVotes = new HashMap<>();
+		this.fetched = new HashSet<>();
 	}
 
 	/**
@@ -55,6 +93,26 @@ public final class ReadRequestStatus {
 		return this.sender;
 	}
 
+	/**
+	 * Attach another read of the same key, that will be answered with the result of this one.
+	 *
+	 * @param sender Actor that requested the read.
+	 */
+	public void attach(ActorRef sender) {
+		this.attached.add(sender);
+	}
+
+	/**
+	 * @return All the actors waiting for the result of this read: the one that requested it first,
+	 * followed by the ones attached to it.
+	 */
+	public List<ActorRef> getSenders() {
+		final List<ActorRef> senders = new ArrayList<>(this.attached.size() + 1);
+		senders.add(this.sender);
+		senders.addAll(this.attached);
+		return Collections.unmodifiableList(senders);
+	}
+
 	/**
 	 * Add a new vote, i.e. the value stored on a node responsible for the requested key.
 	 * The votes are used, when the quorum is reached, to get the most recent value for the key.
@@ -64,20 +122,94 @@ public final class ReadRequestStatus {
 	 * @param item The value and version of the key stored on some node.
 	 */
 	public void addVote(VersionedItem item) {
-		if (item == null) {
-			this.nullVotes++;
-		} else {
+		this.votes++;
+		if (item != null) {
 			this.replies.add(item);
 		}
 	}
 
+	/**
+	 * Add a new vote from the given node.
+	 * The vote is counted as in {@link #addVote(VersionedItem)} and remembered,
+	 * so that the node can be repaired if it returned an old version.
+	 * If the node already voted with a digest, the value is used but the vote is not counted again.
+	 *
+	 * @param nodeID ID of the node that voted.
+	 * @param item   The value and version of the key stored on the node.
+	 */
+	public void addVote(int nodeID, VersionedItem item) {
+		if (this.nodeVotes.containsKey(nodeID)) {
+			if (item != null) this.replies.add(item);
+		} else {
+			addVote(item);
+		}
+		this.nodeVotes.put(nodeID, item);
+	}
+
+	/**
+	 * Add a new vote from the given node, that returned only the version of its value.
+	 *
+	 * @param nodeID ID of the node that voted.
+	 * @param digest The version of the key stored on the node (the value is not set), or null.
+	 */
+	public void addDigest(int nodeID, VersionedItem digest) {
+		if (!this.nodeVotes.containsKey(nodeID)) {
+			this.votes++;
+			this.nodeVotes.put(nodeID, digest);
+		}
+	}
+
 	/**
 	 * Check if the quorum if reached.
 	 *
 	 * @return True if the quorum is reached, false otherwise.
 	 */
 	public boolean isQuorumReached() {
-		return this.replies.size() + this.nullVotes >= this.quorum;
+		return this.votes >= this.quorum;
+	}
+
+	/**
+	 * Check if the most recent value is known, i.e. no digest is more recent than the values received.
+	 *
+	 * @return True if the value to return to the client is known, false if it must be fetched.
+	 */
+	public boolean isResolved() {
+		final VersionedItem latest = getLatestItem();
+		return (latest != null ? latest.getVersion() : 0) >= getLatestVersion();
+	}
+
+	/**
+	 * @return The version of the key known by the client, or 0 if none.
+	 */
+	public long getKnownVersion() {
+		return this.knownVersion;
+	}
+
+	/**
+	 * Check if the most recent version is the one the client already knows,
+	 * so the value does not need to be sent.
+	 *
+	 * @return True if the client has the most recent value, false otherwise.
+	 */
+	public boolean isNotModified() {
+		return this.knownVersion > 0 && getLatestVersion() == this.knownVersion;
+	}
+
+	/**
+	 * Choose a node that returned the most recent version as a digest,
+	 * to ask it the value. Each node is chosen at most once.
+	 *
+	 * @return ID of the node to ask, or null if all such nodes were already asked.
+	 */
+	@Nullable
+	public Integer nextFetch() {
+		final long latest = getLatestVersion();
+		for (Map.Entry<Integer, VersionedItem> vote : this.nodeVotes.entrySet()) {
+			if (vote.getValue() != null && vote.getValue().getVersion() == latest && this.fetched.add(vote.getKey())) {
+				return vote.getKey();
+			}
+		}
+		return null;
 	}
 
 	/**
@@ -90,15 +222,66 @@ public final class ReadRequestStatus {
 		if (!isQuorumReached()) {
 			throw new IllegalStateException("Please make sure the quorum is reached before getting the value");
 		}
+		final VersionedItem latest = getLatestItem();
+		return latest != null ? latest.getValue() : null;
+	}
+
+	/**
+	 * @return The most recent item among the votes received so far, if any. Otherwise null.
+	 */
+	@Nullable
+	public VersionedItem getLatestItem() {
 		return this.replies.stream()
-			.sorted((o1, o2) -> o2.getVersion() - o1.getVersion())
-			.findFirst()
-			.orElse(new VersionedItem(null, Integer.MAX_VALUE))
-			.getValue();
+			.max((o1, o2) -> Long.compare(o1.getVersion(), o2.getVersion()))
+			.orElse(null);
+	}
+
+	/**
+	 * @return The most recent version among the votes and digests received so far, or 0 if none.
+	 */
+	public long getLatestVersion() {
+		long latest = 0;
+		for (VersionedItem item : this.replies) {
+			latest = Math.max(latest, item.getVersion());
+		}
+		for (VersionedItem item : this.nodeVotes.values()) {
+			if (item != null) latest = Math.max(latest, item.getVersion());
+		}
+		return latest;
+	}
+
+	/**
+	 * Find the nodes that returned a version older than the most recent value (or no value at all).
+	 * Only votes added with {@link #addVote(int, VersionedItem)} are considered.
+	 *
+	 * @return IDs of the nodes that should be repaired.
+	 */
+	public Set<Integer> getStaleNodes() {
+		final Set<Integer> stale = new HashSet<>();
+		final VersionedItem latest = getLatestItem();
+		if (latest != null) {
+			this.nodeVotes.forEach((nodeID, item) -> {
+				if (item == null || item.getVersion() < latest.getVersion()) {
+					stale.add(nodeID);
+				}
+			});
+		}
+		return stale;
+	}
+
+	/**
+	 * Record that the given node was sent the given item to repair it,
+	 * so that it is not considered stale anymore (unless a newer version shows up).
+	 *
+	 * @param nodeID ID of the repaired node.
+	 * @param item   Item sent to the node.
+	 */
+	public void markRepaired(int nodeID, VersionedItem item) {
+		this.nodeVotes.put(nodeID, item);
 	}
 
 	public int getVotesCount() {
-    return this.replies.size() + this.nullVotes;
+    return this.votes;
 	}
 
 }
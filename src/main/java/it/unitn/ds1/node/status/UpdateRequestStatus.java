@@ -104,7 +104,7 @@ public final class UpdateRequestStatus {
 		}
 
 		// calculate new version
-		int lastVersion = 0;
+		long lastVersion = 0;
 		for (VersionedItem record : this.replies) {
 			lastVersion = (record.getVersion() > lastVersion) ? (record.getVersion()) : (lastVersion);
 		}
@@ -12,8 +12,14 @@ import java.io.File;
 import java.io.FileReader;
 import java.io.FileWriter;
 import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
 
@@ -67,7 +73,7 @@ public final class FileStorageManager implements StorageManager {
 				// return the item, if found
 				final int fileKey = Integer.parseInt(record.get(0));
 				if (fileKey == key) {
-					return new VersionedItem(record.get(1), Integer.parseInt(record.get(2)));
+					return new VersionedItem(record.get(1), Long.parseLong(record.get(2)));
 				}
 			}
 
@@ -92,7 +98,7 @@ public final class FileStorageManager implements StorageManager {
 			final Iterable<CSVRecord> records = CUSTOM_CSV_FORMAT.parse(fileReader);
 			for (CSVRecord record : records) {
 				validateRecord(record);
-				result.put(Integer.parseInt(record.get(0)), new VersionedItem(record.get(1), Integer.parseInt(record.get(2))));
+				result.put(Integer.parseInt(record.get(0)), new VersionedItem(record.get(1), Long.parseLong(record.get(2))));
 			}
 
 		} catch (IOException | NumberFormatException e) {
@@ -107,16 +113,10 @@ public final class FileStorageManager implements StorageManager {
 	public void appendRecord(int key, @NotNull VersionedItem versionedItem) {
 		try {
 			final Map<Integer, VersionedItem> fileRecords = readRecords();
-			final CSVPrinter csvFilePrinter = getFilePrinter();
-
 			updateRecordMap(fileRecords, key, versionedItem);
 
 			// save updated map
-			for (Map.Entry<Integer, VersionedItem> record : fileRecords.entrySet()) {
-				csvFilePrinter.printRecord(toCsvRecord(record));
-			}
-
-			csvFilePrinter.close();
+			saveRecords(fileRecords);
 
 		} catch (IOException e) {
 			throw new WriteException(e);
@@ -128,7 +128,6 @@ public final class FileStorageManager implements StorageManager {
 		try {
 
 			final Map<Integer, VersionedItem> fileRecords = readRecords();
-			final CSVPrinter csvFilePrinter = getFilePrinter();
 
 			// update map with new records
 			for (Map.Entry<Integer, VersionedItem> record : records.entrySet()) {
@@ -136,11 +135,7 @@ public final class FileStorageManager implements StorageManager {
 			}
 
 			// save updated map
-			for (Map.Entry<Integer, VersionedItem> fileRecord : fileRecords.entrySet()) {
-				csvFilePrinter.printRecord(toCsvRecord(fileRecord));
-			}
-
-			csvFilePrinter.close();
+			saveRecords(fileRecords);
 
 		} catch (IOException e) {
 			throw new WriteException(e);
@@ -152,12 +147,7 @@ public final class FileStorageManager implements StorageManager {
 
 		// replace all old records with the new ones
 		try {
-			final CSVPrinter csvFilePrinter = getFilePrinter();
-			for (Map.Entry<Integer, VersionedItem> record : records.entrySet()) {
-				final List<String> csvRecord = toCsvRecord(record.getKey(), record.getValue());
-				csvFilePrinter.printRecord(csvRecord);
-			}
-			csvFilePrinter.close();
+			saveRecords(records);
 
 		} catch (IOException e) {
 			throw new WriteException(e);
@@ -170,16 +160,9 @@ public final class FileStorageManager implements StorageManager {
 
 			// read current records
 			final Map<Integer, VersionedItem> fileRecords = readRecords();
+			fileRecords.keySet().removeAll(new HashSet<>(keys));
 
-			final CSVPrinter csvFilePrinter = getFilePrinter();
-
-			for (Map.Entry<Integer, VersionedItem> fileRecord : fileRecords.entrySet()) {
-				final Integer fileKey = fileRecord.getKey();
-				if (keys.indexOf(fileKey) == -1) {
-					csvFilePrinter.printRecord(toCsvRecord(fileRecord));
-				}
-			}
-			csvFilePrinter.close();
+			saveRecords(fileRecords);
 
 		} catch (IOException e) {
 			throw new WriteException(e);
@@ -187,17 +170,14 @@ public final class FileStorageManager implements StorageManager {
 	}
 
 	/**
-	 * Clear the storage.
-	 * NB: When the getFilePrinter fucntion is called, the storage
-	 * is automatically wiped. Therefore, no actions need to be taken.
+	 * Clear the storage, replacing it with an empty one.
 	 *
 	 * @throws WriteException on file I/O exceptions
 	 */
 	@Override
 	public void clearStorage() throws WriteException {
 		try {
-			final CSVPrinter csvFilePrinter = getFilePrinter();
-			csvFilePrinter.close();
+			saveRecords(Collections.emptyMap());
 		} catch (IOException e) {
 			throw new WriteException(e);
 		}
@@ -217,13 +197,31 @@ public final class FileStorageManager implements StorageManager {
 		}
 	}
 
+	@Override
+	public long lastModified() {
+		return new File(fileLocation).lastModified();
+	}
+
 	/* -----
 	 * Utils
 	 ----- */
 
-	private CSVPrinter getFilePrinter() throws IOException {
-		final FileWriter fileWriter = new FileWriter(fileLocation);
-		return new CSVPrinter(fileWriter, CUSTOM_CSV_FORMAT);
+	/**
+	 * Write all the records to a temporary file and then replace the storage file with it,
+	 * so that a crash while writing never leaves a truncated or partially written storage.
+	 *
+	 * @param records Records to store, the previous ones are replaced.
+	 * @throws IOException on file I/O exceptions
+	 */
+	private void saveRecords(@NotNull Map<Integer, VersionedItem> records) throws IOException {
+		final Path file = Paths.get(fileLocation);
+		final Path temporary = Paths.get(fileLocation + ".tmp");
+		try (CSVPrinter csvFilePrinter = new CSVPrinter(new FileWriter(temporary.toFile()), CUSTOM_CSV_FORMAT)) {
+			for (Map.Entry<Integer, VersionedItem> record : records.entrySet()) {
+				csvFilePrinter.printRecord(toCsvRecord(record));
+			}
+		}
+		Files.move(temporary, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
 	}
 
 	/**
@@ -251,14 +249,6 @@ public final class FileStorageManager implements StorageManager {
 		}
 	}
 
-	private List<String> toCsvRecord(int key, @NotNull VersionedItem versionedItem) {
-		List<String> csvRecord = new ArrayList<>();
-		csvRecord.add(key + "");
-		csvRecord.add(versionedItem.getValue());
-		csvRecord.add(versionedItem.getVersion() + "");
-		return csvRecord;
-	}
-
 	private List<String> toCsvRecord(@NotNull Map.Entry<Integer, VersionedItem> record) {
 		List<String> csvRecord = new ArrayList<>();
 		csvRecord.add(record.getKey() + "");
@@ -281,7 +271,7 @@ public final class FileStorageManager implements StorageManager {
 		}
 
 		try {
-			Integer.parseInt(record.get(2));
+			Long.parseLong(record.get(2));
 		} catch (NumberFormatException e) {
 			throw new ReadException("Read bad record. Version of record \"" + record.toString() + "\" is not a valid number.");
 		}
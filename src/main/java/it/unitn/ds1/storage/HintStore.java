@@ -0,0 +1,216 @@
+package it.unitn.ds1.storage;
+
+import it.unitn.ds1.storage.exceptions.ReadException;
+import it.unitn.ds1.storage.exceptions.WriteException;
+import org.apache.commons.csv.CSVFormat;
+import org.apache.commons.csv.CSVPrinter;
+import org.apache.commons.csv.CSVRecord;
+import org.jetbrains.annotations.NotNull;
+
+import java.io.File;
+import java.io.FileReader;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Durable store for hinted writes.
+ * When a replica is unreachable, the coordinator sends the write to another node,
+ * which keeps the record here, tagged with the intended owner,
+ * until it can be delivered to the owner.
+ * <p>
+ * The hints are kept in memory and every change is written to a file
+ * (one record per line: owner, key, value and version), so that they survive a crash.
+ * The file is replaced atomically, so a crash while writing it never loses the hints already stored.
+ */
+public final class HintStore {
+
+	// same format used for the records of the node
+	private static final CSVFormat CUSTOM_CSV_FORMAT = CSVFormat.DEFAULT.withDelimiter(' ');
+
+	// location of the file for this node
+	private final String fileLocation;
+
+	// hints: intended owner -> key -> record
+	private final Map<Integer, Map<Integer, VersionedItem>> hints;
+
+	/**
+	 * Create a new hint store for the node with the given ID.
+	 * If the node already stored some hints (eg. before a crash), they are loaded.
+	 *
+	 * @param directory Directory where to store the file.
+	 * @param nodeID    ID of the node that uses this store.
+	 * @throws IOException If it is not possible to read or create the file.
+	 */
+	public HintStore(@NotNull String directory, int nodeID) throws IOException {
+		final File file = new File(directory, "nodeHints-" + nodeID + ".txt");
+		this.fileLocation = file.getAbsolutePath();
+		this.hints = new HashMap<>();
+
+		if (!file.exists()) {
+			final boolean created = file.createNewFile();
+			if (!created) {
+				throw new RuntimeException("Unable to create new file \"" + fileLocation + "\" for storage purposes.\n" +
+					"Please, check the \"storage-path\" key in Akka configuration file.");
+			}
+		}
+		load();
+	}
+
+	/**
+	 * Store a hint for the given owner.
+	 * If a hint for the same key is already present, the most recent version is kept.
+	 *
+	 * @param owner Node that should store the record.
+	 * @param key   Key of the record.
+	 * @param item  Record.
+	 * @throws WriteException thrown if any error during writing occur
+	 */
+	public void add(int owner, int key, @NotNull VersionedItem item) throws WriteException {
+		if (put(owner, key, item)) {
+			save();
+		}
+	}
+
+	/**
+	 * @return The IDs of the nodes for which some hint is stored.
+	 */
+	@NotNull
+	public Set<Integer> owners() {
+		return Collections.unmodifiableSet(hints.keySet());
+	}
+
+	/**
+	 * Get some hints for the given owner.
+	 *
+	 * @param owner Node that should store the records.
+	 * @param limit Maximum number of hints to return.
+	 * @return A copy of at most limit hints, as a map key -> record.
+	 */
+	@NotNull
+	public Map<Integer, VersionedItem> get(int owner, int limit) {
+		final Map<Integer, VersionedItem> result = new LinkedHashMap<>();
+		for (Map.Entry<Integer, VersionedItem> hint : hints.getOrDefault(owner, Collections.emptyMap()).entrySet()) {
+			if (result.size() >= limit) break;
+			result.put(hint.getKey(), hint.getValue());
+		}
+		return result;
+	}
+
+	/**
+	 * Remove the hints that were delivered to the owner.
+	 * A hint is kept if it was replaced by a more recent version after the delivery.
+	 *
+	 * @param owner     Node that received the records.
+	 * @param delivered Versions delivered, as a map key -> version.
+	 * @throws WriteException thrown if any error during writing occur
+	 */
+	public void remove(int owner, @NotNull Map<Integer, Long> delivered) throws WriteException {
+		final Map<Integer, VersionedItem> ownerHints = hints.get(owner);
+		if (ownerHints == null) {
+			return;
+		}
+		delivered.forEach((key, version) -> {
+			final VersionedItem hint = ownerHints.get(key);
+			if (hint != null && hint.getVersion() <= version) {
+				ownerHints.remove(key);
+			}
+		});
+		if (ownerHints.isEmpty()) {
+			hints.remove(owner);
+		}
+		save();
+	}
+
+	/**
+	 * Remove all hints for the given owner.
+	 *
+	 * @param owner Node that should store the records.
+	 * @return The removed hints, as a map key -> record.
+	 * @throws WriteException thrown if any error during writing occur
+	 */
+	@NotNull
+	public Map<Integer, VersionedItem> removeAll(int owner) throws WriteException {
+		final Map<Integer, VersionedItem> removed = hints.remove(owner);
+		if (removed == null) {
+			return Collections.emptyMap();
+		}
+		save();
+		return removed;
+	}
+
+	/**
+	 * @return Total number of hints stored.
+	 */
+	public int size() {
+		return hints.values().stream().mapToInt(Map::size).sum();
+	}
+
+	/**
+	 * Delete the persistent store.
+	 */
+	public void deleteStorage() {
+		hints.clear();
+		final File file = new File(fileLocation);
+		if (file.exists()) {
+			boolean delete = file.delete();
+			if (!delete) {
+				throw new RuntimeException("Unable to delete file \"" + fileLocation + "\".");
+			}
+		}
+	}
+
+	/* -----
+	 * Utils
+	 ----- */
+
+	private boolean put(int owner, int key, @NotNull VersionedItem item) {
+		final Map<Integer, VersionedItem> ownerHints = hints.computeIfAbsent(owner, o -> new LinkedHashMap<>());
+		final VersionedItem current = ownerHints.get(key);
+		if (current == null || current.getVersion() <= item.getVersion()) {
+			ownerHints.put(key, item);
+			return true;
+		}
+		return false;
+	}
+
+	private void load() {
+		try (FileReader fileReader = new FileReader(fileLocation)) {
+			for (CSVRecord record : CUSTOM_CSV_FORMAT.parse(fileReader)) {
+				if (record.size() != 4) {
+					throw new ReadException("Read bad hint \"" + record.toString() + "\".");
+				}
+				put(Integer.parseInt(record.get(0)), Integer.parseInt(record.get(1)),
+					new VersionedItem(record.get(2), Long.parseLong(record.get(3))));
+			}
+		} catch (IOException | NumberFormatException e) {
+			throw new ReadException(e);
+		}
+	}
+
+	// write all the hints to a temporary file and then replace the file with it
+	private void save() {
+		final Path file = Paths.get(fileLocation);
+		final Path temporary = Paths.get(fileLocation + ".tmp");
+		try {
+			try (CSVPrinter printer = new CSVPrinter(new FileWriter(temporary.toFile()), CUSTOM_CSV_FORMAT)) {
+				for (Map.Entry<Integer, Map<Integer, VersionedItem>> owner : hints.entrySet()) {
+					for (Map.Entry<Integer, VersionedItem> hint : owner.getValue().entrySet()) {
+						printer.printRecord(owner.getKey(), hint.getKey(), hint.getValue().getValue(), hint.getValue().getVersion());
+					}
+				}
+			}
+			Files.move(temporary, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+		} catch (IOException e) {
+			throw new WriteException(e);
+		}
+	}
+}
@@ -0,0 +1,130 @@
+package it.unitn.ds1.storage;
+
+import it.unitn.ds1.storage.exceptions.ReadException;
+import org.jetbrains.annotations.NotNull;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.zip.CRC32;
+
+/**
+ * Compact binary encoding of a set of records, used to move records between nodes in bulk.
+ * <p>
+ * A segment is a flat byte array: a header (magic number and number of records),
+ * the records (key, version, length of the value in bytes or -1 if missing, value in UTF-8)
+ * and the CRC32 checksum of all the previous bytes. Sending a segment instead of a map of
+ * @{@link VersionedItem}s avoids serializing (and allocating on the receiver) an object per record,
+ * and the checksum lets the receiver discard a corrupted segment before storing it.
+ */
+public final class Segment {
+
+	// first bytes of every segment
+	private static final int MAGIC = 0x52485331;
+
+	// magic number and number of records
+	private static final int HEADER_BYTES = 8;
+
+	// key, version and length of the value
+	private static final int RECORD_HEADER_BYTES = 16;
+
+	// checksum
+	private static final int TRAILER_BYTES = 8;
+
+	private Segment() {
+	}
+
+	/**
+	 * Encode the given records.
+	 *
+	 * @param records Records, as a map key -> record.
+	 * @return The segment.
+	 */
+	@NotNull
+	public static byte[] encode(@NotNull Map<Integer, VersionedItem> records) {
+		final ByteArrayOutputStream bytes = new ByteArrayOutputStream(HEADER_BYTES + TRAILER_BYTES + records.size() * (RECORD_HEADER_BYTES + 16));
+		try (DataOutputStream out = new DataOutputStream(bytes)) {
+			out.writeInt(MAGIC);
+			out.writeInt(records.size());
+			for (Map.Entry<Integer, VersionedItem> record : records.entrySet()) {
+				final String value = record.getValue().getValue();
+				out.writeInt(record.getKey());
+				out.writeLong(record.getValue().getVersion());
+				if (value == null) {
+					out.writeInt(-1);
+				} else {
+					final byte[] encoded = value.getBytes(StandardCharsets.UTF_8);
+					out.writeInt(encoded.length);
+					out.write(encoded);
+				}
+			}
+			out.flush();
+			final CRC32 checksum = new CRC32();
+			checksum.update(bytes.toByteArray());
+			out.writeLong(checksum.getValue());
+		} catch (IOException e) {
+			// never thrown by an in-memory stream
+			throw new IllegalStateException(e);
+		}
+		return bytes.toByteArray();
+	}
+
+	/**
+	 * Decode a segment, checking that it was not corrupted.
+	 *
+	 * @param segment Segment produced by @{@link #encode(Map)}.
+	 * @return The records, as a map key -> record.
+	 * @throws ReadException if the checksum does not match or the segment is malformed.
+	 */
+	@NotNull
+	public static Map<Integer, VersionedItem> decode(@NotNull byte[] segment) throws ReadException {
+		if (segment.length < HEADER_BYTES + TRAILER_BYTES) {
+			throw new ReadException("Segment too short (" + segment.length + " bytes).");
+		}
+		final ByteBuffer buffer = ByteBuffer.wrap(segment);
+		final CRC32 checksum = new CRC32();
+		checksum.update(segment, 0, segment.length - TRAILER_BYTES);
+		if (checksum.getValue() != buffer.getLong(segment.length - TRAILER_BYTES)) {
+			throw new ReadException("Segment checksum mismatch.");
+		}
+
+		try {
+			if (buffer.getInt() != MAGIC) {
+				throw new ReadException("Bad segment header.");
+			}
+			final int count = buffer.getInt();
+			final Map<Integer, VersionedItem> records = new HashMap<>(count * 4 / 3 + 1);
+			buffer.limit(segment.length - TRAILER_BYTES);
+			for (int i = 0; i < count; i++) {
+				final int key = buffer.getInt();
+				final long version = buffer.getLong();
+				final int length = buffer.getInt();
+				String value = null;
+				if (length >= 0) {
+					value = new String(segment, buffer.position(), length, StandardCharsets.UTF_8);
+					buffer.position(buffer.position() + length);
+				}
+				records.put(key, new VersionedItem(value, version));
+			}
+			if (buffer.hasRemaining()) {
+				throw new ReadException("Unexpected bytes at the end of the segment.");
+			}
+			return records;
+		} catch (BufferUnderflowException | IllegalArgumentException | IndexOutOfBoundsException e) {
+			throw new ReadException(e);
+		}
+	}
+
+	/**
+	 * @param value Value of a record.
+	 * @return Size of the record in a segment, in bytes.
+	 */
+	public static int recordSize(String value) {
+		return RECORD_HEADER_BYTES + (value != null ? value.getBytes(StandardCharsets.UTF_8).length : 0);
+	}
+}
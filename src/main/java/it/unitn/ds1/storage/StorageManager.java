@@ -79,6 +79,13 @@ public interface StorageManager {
 	 */
 	void clearStorage() throws WriteException;
 
+	/**
+	 * Return the time of the last change of the storage.
+	 *
+	 * @return the time in milliseconds since the epoch, or 0 if the storage does not exist
+	 */
+	long lastModified();
+
 	/**
 	 * Delete the persistent storage.
 	 */
@@ -6,13 +6,14 @@ import java.io.Serializable;
 
 /**
  * Represent an item saved in the data store.
- * Each item has a value and a version.
+ * Each item has a value and a version. The version is either a counter
+ * incremented on each update or a hybrid logical clock timestamp (see SystemConstants#HLC_WRITES).
  */
 public final class VersionedItem implements Serializable {
 
 	// private variables
 	private final String value;
-	private final int version;
+	private final long version;
 
 	/**
 	 * Create a new versioned item. This stores the value and the version of the item.
@@ -20,7 +21,7 @@ public final class VersionedItem implements Serializable {
 	 * @param value   Value for the item.
 	 * @param version Version of the item.
 	 */
-	public VersionedItem(@Nullable String value, int version) {
+	public VersionedItem(@Nullable String value, long version) {
 		assert version > 0;
 		this.value = value;
 		this.version = version;
@@ -37,7 +38,7 @@ public final class VersionedItem implements Serializable {
 	/**
 	 * @return Return the version of the item.
 	 */
-	public int getVersion() {
+	public long getVersion() {
 		return version;
 	}
 }
@@ -0,0 +1,65 @@
+package it.unitn.ds1.node;
+
+import org.junit.Test;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.Assert.*;
+
+/**
+ * Test for @{@link HybridLogicalClock}.
+ */
+public final class HybridLogicalClockTest {
+
+	@Test
+	public void timestampsFollowPhysicalTime() {
+		final AtomicLong time = new AtomicLong(1000);
+		final HybridLogicalClock clock = new HybridLogicalClock(time::get);
+
+		final long first = clock.now();
+		assertEquals(1000, HybridLogicalClock.physicalTime(first));
+		assertEquals(0, HybridLogicalClock.logicalTime(first));
+
+		time.set(2000);
+		final long second = clock.now();
+		assertEquals(2000, HybridLogicalClock.physicalTime(second));
+		assertEquals(0, HybridLogicalClock.logicalTime(second));
+	}
+
+	@Test
+	public void strictlyIncreasingInSameMillisecond() {
+		final HybridLogicalClock clock = new HybridLogicalClock(() -> 1000);
+		long previous = clock.now();
+		for (int i = 0; i < 100; i++) {
+			final long next = clock.now();
+			assertTrue(next > previous);
+			assertEquals(1000, HybridLogicalClock.physicalTime(next));
+			previous = next;
+		}
+	}
+
+	@Test
+	public void strictlyIncreasingWhenPhysicalClockGoesBack() {
+		final AtomicLong time = new AtomicLong(5000);
+		final HybridLogicalClock clock = new HybridLogicalClock(time::get);
+		final long first = clock.now();
+		time.set(4000);
+		assertTrue(clock.now() > first);
+	}
+
+	@Test
+	public void updateOrdersAfterRemoteTimestamps() {
+		final HybridLogicalClock remote = new HybridLogicalClock(() -> 9000);
+		final HybridLogicalClock local = new HybridLogicalClock(() -> 1000);
+
+		final long remoteTimestamp = remote.now();
+		local.update(remoteTimestamp);
+		assertTrue(local.now() > remoteTimestamp);
+	}
+
+	@Test
+	public void biggerThanCounterVersions() {
+		final HybridLogicalClock clock = new HybridLogicalClock();
+		assertTrue(clock.now() > Integer.MAX_VALUE);
+	}
+}
@@ -0,0 +1,62 @@
+package it.unitn.ds1.node;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+/**
+ * Test for @{@link LatencyTracker}.
+ */
+public final class LatencyTrackerTest {
+
+	@Test
+	public void tooFewSamples() {
+		final LatencyTracker tracker = new LatencyTracker();
+		assertEquals(-1, tracker.percentile(1, 0.95));
+		for (int i = 0; i < LatencyTracker.MIN_SAMPLES - 1; i++) {
+			tracker.record(1, 100);
+		}
+		assertEquals(-1, tracker.percentile(1, 0.95));
+		tracker.record(1, 100);
+		assertEquals(100, tracker.percentile(1, 0.95));
+	}
+
+	@Test
+	public void percentile() {
+		final LatencyTracker tracker = new LatencyTracker();
+		for (int i = 100; i >= 1; i--) {
+			tracker.record(1, i);
+		}
+		assertEquals(95, tracker.percentile(1, 0.95));
+		assertEquals(50, tracker.percentile(1, 0.5));
+		assertEquals(100, tracker.percentile(1, 1));
+		assertEquals(1, tracker.percentile(1, 0));
+	}
+
+	@Test
+	public void keepsOnlyRecentSamples() {
+		final LatencyTracker tracker = new LatencyTracker();
+		for (int i = 0; i < LatencyTracker.WINDOW_SIZE; i++) {
+			tracker.record(1, 1000);
+		}
+		for (int i = 0; i < LatencyTracker.WINDOW_SIZE; i++) {
+			tracker.record(1, 10);
+		}
+		assertEquals(10, tracker.percentile(1, 0.99));
+	}
+
+	@Test
+	public void nodesAreIndependent() {
+		final LatencyTracker tracker = new LatencyTracker();
+		for (int i = 0; i < LatencyTracker.MIN_SAMPLES; i++) {
+			tracker.record(1, 10);
+			tracker.record(2, 20);
+		}
+		assertEquals(10, tracker.percentile(1, 0.95));
+		assertEquals(20, tracker.percentile(2, 0.95));
+
+		tracker.remove(1);
+		assertEquals(-1, tracker.percentile(1, 0.95));
+		assertEquals(20, tracker.percentile(2, 0.95));
+	}
+}
@@ -0,0 +1,80 @@
+package it.unitn.ds1.node;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+/**
+ * Test for @{@link MembershipLog}.
+ */
+public final class MembershipLogTest {
+
+	private static MembershipDelta delta(long epoch, MembershipDelta.Type type, int node) {
+		return new MembershipDelta(epoch, type, node, null, 1, "zone");
+	}
+
+	@Test
+	public void empty() {
+		final MembershipLog log = new MembershipLog();
+		assertEquals(0, log.epoch());
+		assertEquals(1, log.nextEpoch());
+		assertTrue(log.since(0).isEmpty());
+		assertNull(log.get(10));
+	}
+
+	@Test
+	public void keepsMostRecentChange() {
+		final MembershipLog log = new MembershipLog();
+		assertTrue(log.apply(delta(1, MembershipDelta.Type.JOIN, 10)));
+		assertTrue(log.apply(delta(3, MembershipDelta.Type.LEAVE, 10)));
+		assertFalse(log.apply(delta(2, MembershipDelta.Type.REJOIN, 10)));
+		assertFalse(log.apply(delta(3, MembershipDelta.Type.LEAVE, 10)));
+		assertEquals(MembershipDelta.Type.LEAVE, log.get(10).getType());
+		assertEquals(3, log.epoch());
+	}
+
+	@Test
+	public void since() {
+		final MembershipLog log = new MembershipLog();
+		log.apply(delta(3, MembershipDelta.Type.JOIN, 30));
+		log.apply(delta(1, MembershipDelta.Type.JOIN, 10));
+		log.apply(delta(2, MembershipDelta.Type.JOIN, 20));
+		assertEquals(Arrays.asList(10, 20, 30), nodes(log, 0));
+		assertEquals(Arrays.asList(20, 30), nodes(log, 1));
+		assertEquals(Collections.emptyList(), nodes(log, 3));
+	}
+
+	@Test
+	public void checksumDependsOnlyOnChanges() {
+		final MembershipLog first = new MembershipLog();
+		first.apply(delta(1, MembershipDelta.Type.JOIN, 10));
+		first.apply(delta(2, MembershipDelta.Type.JOIN, 20));
+		first.apply(delta(2, MembershipDelta.Type.JOIN, 30));
+
+		final MembershipLog second = new MembershipLog();
+		second.apply(delta(2, MembershipDelta.Type.JOIN, 30));
+		second.apply(delta(2, MembershipDelta.Type.JOIN, 20));
+		assertEquals(first.epoch(), second.epoch());
+		assertNotEquals(first.checksum(), second.checksum());
+
+		second.apply(delta(1, MembershipDelta.Type.JOIN, 10));
+		assertEquals(first.checksum(), second.checksum());
+
+		first.apply(delta(4, MembershipDelta.Type.LEAVE, 20));
+		assertNotEquals(first.checksum(), second.checksum());
+		second.since(0).forEach(first::apply);
+		first.since(second.epoch()).forEach(second::apply);
+		assertEquals(first.checksum(), second.checksum());
+	}
+
+	private static List<Integer> nodes(MembershipLog log, long since) {
+		final List<Integer> result = new ArrayList<>();
+		log.since(since).forEach(delta -> result.add(delta.getNodeID()));
+		return result;
+	}
+}
@@ -0,0 +1,98 @@
+package it.unitn.ds1.node;
+
+import akka.actor.ActorRef;
+import akka.actor.ActorSystem;
+import akka.actor.ExtendedActorSystem;
+import com.typesafe.config.ConfigFactory;
+import org.junit.After;
+import org.junit.AfterClass;
+import org.junit.Before;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import java.io.File;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+/**
+ * Test for @{@link MembershipStore}.
+ */
+public final class MembershipStoreTest {
+
+	private static final int NODE_ID = 10;
+
+	private static final String storageFileDirectory = "/tmp";
+	private static final String membershipFilePath = storageFileDirectory + "/nodeMembership-" + NODE_ID + ".txt";
+
+	private static ActorSystem system;
+
+	@BeforeClass
+	public static void createSystem() {
+		system = ActorSystem.create("membership-store-test", ConfigFactory.parseString("akka.actor.provider = local"));
+	}
+
+	@AfterClass
+	public static void terminateSystem() {
+		system.terminate();
+	}
+
+	@Before
+	@After
+	public void removeSnapshot() {
+		final File file = new File(membershipFilePath);
+		if (file.exists()) {
+			assertTrue(file.delete());
+		}
+	}
+
+	private static ActorRef resolve(String path) {
+		return ((ExtendedActorSystem) system).provider().resolveActorRef(path);
+	}
+
+	@Test
+	public void noSnapshot() {
+		final MembershipStore store = new MembershipStore(storageFileDirectory, NODE_ID);
+		assertTrue(store.load(MembershipStoreTest::resolve).isEmpty());
+	}
+
+	@Test
+	public void saveAndLoad() {
+		final ActorRef node = system.deadLetters();
+		final MembershipStore store = new MembershipStore(storageFileDirectory, NODE_ID);
+		store.save(Arrays.asList(
+			new MembershipDelta(1, MembershipDelta.Type.JOIN, 10, node, 1, "a"),
+			new MembershipDelta(3, MembershipDelta.Type.REJOIN, 20, node, 4, "rack b"),
+			new MembershipDelta(4, MembershipDelta.Type.LEAVE, 30, null, 2, "c")
+		));
+
+		final List<MembershipDelta> deltas = new MembershipStore(storageFileDirectory, NODE_ID).load(MembershipStoreTest::resolve);
+		assertEquals(3, deltas.size());
+		assertEquals(1, deltas.get(0).getEpoch());
+		assertEquals(MembershipDelta.Type.JOIN, deltas.get(0).getType());
+		assertEquals(node.path(), deltas.get(0).getNode().path());
+		assertEquals(20, deltas.get(1).getNodeID());
+		assertEquals(4, deltas.get(1).getWeight());
+		assertEquals("rack b", deltas.get(1).getZone());
+		assertEquals(MembershipDelta.Type.LEAVE, deltas.get(2).getType());
+		assertNull(deltas.get(2).getNode());
+	}
+
+	@Test
+	public void saveReplaces() {
+		final MembershipStore store = new MembershipStore(storageFileDirectory, NODE_ID);
+		store.save(Arrays.asList(
+			new MembershipDelta(1, MembershipDelta.Type.JOIN, 10, null, 1, "a"),
+			new MembershipDelta(2, MembershipDelta.Type.JOIN, 20, null, 1, "a")
+		));
+		store.save(Arrays.asList(
+			new MembershipDelta(1, MembershipDelta.Type.JOIN, 10, null, 1, "a")
+		));
+		assertEquals(1, store.load(MembershipStoreTest::resolve).size());
+		assertFalse(new File(membershipFilePath + ".tmp").exists());
+
+		store.delete();
+		assertTrue(store.load(MembershipStoreTest::resolve).isEmpty());
+	}
+}
@@ -0,0 +1,148 @@
+package it.unitn.ds1.node;
+
+import it.unitn.ds1.storage.VersionedItem;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.Assert.*;
+
+/**
+ * Tests for @{@link MerkleTree}.
+ */
+public final class MerkleTreeTest {
+
+	private static RecordCache createCache(int keys) {
+		final RecordCache cache = new RecordCache();
+		for (int key = 0; key < keys; key++) {
+			cache.put(key, new VersionedItem("v" + key, 1));
+		}
+		return cache;
+	}
+
+	// descend the two trees as the anti-entropy protocol does, return the leaves that differ
+	private static List<Integer> differentLeaves(MerkleTree a, MerkleTree b) {
+		List<Integer> different = Collections.singletonList(0);
+		for (int level = 0; level <= a.depth(); level++) {
+			final List<Integer> next = new ArrayList<>();
+			for (Integer index : different) {
+				if (a.digest(level, index) != b.digest(level, index)) {
+					if (level == a.depth()) {
+						next.add(index);
+					} else {
+						next.add(2 * index);
+						next.add(2 * index + 1);
+					}
+				}
+			}
+			different = next;
+		}
+		return different;
+	}
+
+	@Test
+	public void leavesCoverRange() {
+		final TokenRange range = new TokenRange(-1000000, 5000000);
+		final List<TokenRange> leaves = MerkleTree.leavesOf(range);
+		assertEquals(range.getStart(), leaves.get(0).getStart());
+		assertEquals(range.getEnd(), leaves.get(leaves.size() - 1).getEnd());
+		for (int i = 1; i < leaves.size(); i++) {
+			assertEquals(leaves.get(i - 1).getEnd(), leaves.get(i).getStart());
+		}
+	}
+
+	@Test
+	public void leavesCoverWrappingRange() {
+		final TokenRange range = new TokenRange(Integer.MAX_VALUE - 100000, Integer.MIN_VALUE + 100000);
+		final List<TokenRange> leaves = MerkleTree.leavesOf(range);
+		assertEquals(range.getStart(), leaves.get(0).getStart());
+		assertEquals(range.getEnd(), leaves.get(leaves.size() - 1).getEnd());
+		assertTrue(leaves.size() >= 2);
+	}
+
+	@Test
+	public void wholeRingHasAllBuckets() {
+		assertEquals(1 << MerkleTree.LEAF_BITS, MerkleTree.leavesOf(new TokenRange(7, 7)).size());
+	}
+
+	@Test
+	public void bucketsAreOrdered() {
+		assertEquals(0, MerkleTree.bucketOf(Integer.MIN_VALUE));
+		assertEquals((1 << MerkleTree.LEAF_BITS) - 1, MerkleTree.bucketOf(Integer.MAX_VALUE));
+		assertTrue(MerkleTree.bucketOf(-1) < MerkleTree.bucketOf(0));
+		assertTrue(MerkleTree.bucketRange(MerkleTree.bucketOf(12345)).contains(12345));
+	}
+
+	@Test
+	public void sameRecordsSameRoot() {
+		final TokenRange range = new TokenRange(-500000000, 800000000);
+		assertEquals(
+			MerkleTree.build(range, createCache(1000)).root(),
+			MerkleTree.build(range, createCache(1000)).root());
+	}
+
+	@Test
+	public void digestsAreIncremental() {
+		final TokenRange range = new TokenRange(3, 3);
+		final RecordCache cache = createCache(1000);
+		cache.put(5, new VersionedItem("other", 2));
+		cache.remove(6);
+		cache.put(6, new VersionedItem("v6", 1));
+
+		final RecordCache expected = createCache(1000);
+		expected.put(5, new VersionedItem("other", 2));
+		assertEquals(MerkleTree.build(range, expected).root(), MerkleTree.build(range, cache).root());
+	}
+
+	@Test
+	public void descendToDifferentLeaf() {
+		final TokenRange range = new TokenRange(-500000000, 800000000);
+		final RecordCache a = createCache(1000);
+		final RecordCache b = createCache(1000);
+
+		// find a key inside the range and update it on one replica only
+		int key = 0;
+		while (!range.contains(HashUtil.hash(key))) key++;
+		b.put(key, new VersionedItem("new", 2));
+
+		final MerkleTree treeA = MerkleTree.build(range, a);
+		final MerkleTree treeB = MerkleTree.build(range, b);
+		assertNotEquals(treeA.root(), treeB.root());
+
+		final List<Integer> leaves = differentLeaves(treeA, treeB);
+		assertEquals(1, leaves.size());
+		assertTrue(treeA.leaf(leaves.get(0)).contains(HashUtil.hash(key)));
+	}
+
+	@Test
+	public void changesOutsideRangeAreIgnored() {
+		final TokenRange range = new TokenRange(-500000000, 800000000);
+		final RecordCache a = createCache(1000);
+		final RecordCache b = createCache(1000);
+
+		int key = 0;
+		while (range.contains(HashUtil.hash(key))) key++;
+		b.put(key, new VersionedItem("new", 2));
+		assertEquals(MerkleTree.build(range, a).root(), MerkleTree.build(range, b).root());
+	}
+
+	@Test
+	public void partialBucketsUseOnlyKeysInRange() {
+		final RecordCache cache = createCache(2000);
+		final int hashedKey = HashUtil.hash(42);
+
+		// a range ending exactly on a key: the last leaf covers only part of its bucket
+		final TokenRange range = new TokenRange(hashedKey - 1000000, hashedKey);
+		final Set<Integer> keys = new HashSet<>();
+		final MerkleTree tree = MerkleTree.build(range, cache);
+		for (int i = 0; i < tree.width(tree.depth()); i++) {
+			if (tree.leaf(i) != null) keys.addAll(cache.keysIn(tree.leaf(i)));
+		}
+		assertEquals(new HashSet<>(cache.keysIn(range)), keys);
+		assertTrue(keys.contains(42));
+	}
+}
@@ -0,0 +1,257 @@
+package it.unitn.ds1.node;
+
+import akka.actor.ActorRef;
+import akka.actor.ActorSystem;
+import akka.testkit.JavaTestKit;
+import com.typesafe.config.ConfigFactory;
+import it.unitn.ds1.messages.client.ClientOperationErrorResponse;
+import it.unitn.ds1.messages.client.ClientReadRequest;
+import it.unitn.ds1.messages.client.ClientReadResponse;
+import it.unitn.ds1.messages.internal.MembershipDeltaMessage;
+import it.unitn.ds1.messages.internal.ReadRequest;
+import it.unitn.ds1.messages.internal.ReadResponse;
+import it.unitn.ds1.messages.internal.RebalanceDataMessage;
+import it.unitn.ds1.messages.internal.ScaleOutAdmittedMessage;
+import it.unitn.ds1.messages.internal.StreamAckMessage;
+import it.unitn.ds1.messages.internal.StreamChunkMessage;
+import it.unitn.ds1.messages.internal.StreamRequestMessage;
+import it.unitn.ds1.messages.internal.WriteRequest;
+import it.unitn.ds1.messages.internal.WriteResponse;
+import it.unitn.ds1.storage.Segment;
+import it.unitn.ds1.storage.VersionedItem;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.stream.IntStream;
+
+import static it.unitn.ds1.SystemConstants.DEFAULT_NODE_WEIGHT;
+import static it.unitn.ds1.SystemConstants.DEFAULT_NODE_ZONE;
+import static it.unitn.ds1.SystemConstants.STREAM_WINDOW_CHUNKS;
+import static org.junit.Assert.*;
+
+/**
+ * Test for @{@link NodeActor}: the coordinator of the reads runs on a real node,
+ * the other replicas are probes that answer (or not) as each test needs.
+ */
+public final class NodeActorTest {
+
+	// system constants
+	private static final int READ_QUORUM = 2;
+	private static final int WRITE_QUORUM = 2;
+	private static final int REPLICATION = 3;
+
+	private static final String storagePath = "/tmp";
+
+	private static final int KEY = 7;
+
+	// testing system
+	private ActorSystem system;
+
+	// other replicas of every key, they see only the reads sent to them
+	private JavaTestKit replica20;
+	private JavaTestKit replica30;
+
+	@Before
+	public void setup() {
+		system = ActorSystem.create("node-actor-test", ConfigFactory.parseString("akka.actor.provider = local"));
+		replica20 = replica();
+		replica30 = replica();
+	}
+
+	@After
+	public void teardown() {
+		JavaTestKit.shutdownActorSystem(system);
+		system = null;
+	}
+
+	private JavaTestKit replica() {
+		final JavaTestKit replica = new JavaTestKit(system);
+		replica.new IgnoreMsg() {
+			@Override
+			protected boolean ignore(Object message) {
+				return !(message instanceof ReadRequest);
+			}
+		};
+		return replica;
+	}
+
+	// start node 10, with the two probes (the second one in another zone) as the other members of the ring
+	private ActorRef coordinator(ReadOptions readOptions) {
+		final ActorRef node = system.actorOf(NodeActor.bootstrap(10, "node10", storagePath, DEFAULT_NODE_WEIGHT,
+			DEFAULT_NODE_ZONE, READ_QUORUM, WRITE_QUORUM, REPLICATION, readOptions, false));
+		node.tell(new MembershipDeltaMessage(20, Arrays.asList(
+			new MembershipDelta(2, MembershipDelta.Type.JOIN, 20, replica20.getRef(), DEFAULT_NODE_WEIGHT, DEFAULT_NODE_ZONE),
+			new MembershipDelta(3, MembershipDelta.Type.JOIN, 30, replica30.getRef(), DEFAULT_NODE_WEIGHT, "remote")
+		)), replica20.getRef());
+		return node;
+	}
+
+	private static void answer(JavaTestKit replica, int replicaId, ReadRequest request, VersionedItem item) {
+		replica.reply(new ReadResponse(replicaId, request.getRequestID(), request.getKey(), item, request.isDigest()));
+	}
+
+	@Test
+	public void coalescedReads() {
+		final ActorRef node = coordinator(new ReadOptions(false, false, true));
+		final JavaTestKit first = new JavaTestKit(system);
+		final JavaTestKit second = new JavaTestKit(system);
+
+		// the second read arrives while the first one waits for the replicas
+		node.tell(new ClientReadRequest(KEY), first.getRef());
+		node.tell(new ClientReadRequest(KEY), second.getRef());
+
+		// a single request for each replica
+		final ReadRequest request = replica20.expectMsgClass(ReadRequest.class);
+		replica30.expectMsgClass(ReadRequest.class);
+		answer(replica20, 20, request, new VersionedItem("value", 1));
+
+		// both clients receive the result
+		assertEquals("value", first.expectMsgClass(ClientReadResponse.class).getValue());
+		assertEquals("value", second.expectMsgClass(ClientReadResponse.class).getValue());
+		replica20.expectNoMsg(replica20.duration("200 millis"));
+		replica30.expectNoMsg(replica30.duration("200 millis"));
+	}
+
+	@Test
+	public void notModified() {
+		final ActorRef node = coordinator(new ReadOptions(false, true, false));
+		final JavaTestKit client = new JavaTestKit(system);
+		node.tell(new WriteRequest(20, 1, KEY, new VersionedItem("value", 5)), replica20.getRef());
+
+		// the client already knows the current version
+		node.tell(new ClientReadRequest(KEY, 5), client.getRef());
+		final ReadRequest request = replica20.expectMsgClass(ReadRequest.class);
+		answer(replica20, 20, request, new VersionedItem(null, 5));
+
+		final ClientReadResponse response = client.expectMsgClass(ClientReadResponse.class);
+		assertTrue(response.isNotModified());
+		assertNull(response.getValue());
+		assertEquals(5, response.getVersion());
+	}
+
+	@Test
+	public void writeFromUnknownCoordinator() {
+		final ActorRef node = coordinator(new ReadOptions(false, false, false));
+		final JavaTestKit unknown = new JavaTestKit(system);
+		final JavaTestKit client = new JavaTestKit(system);
+
+		// a node whose join did not reach me yet coordinates a write
+		node.tell(new WriteRequest(40, 1, KEY, new VersionedItem("value", 1)), unknown.getRef());
+		assertEquals(1, unknown.expectMsgClass(WriteResponse.class).getRequestID());
+
+		// the record is still stored (the node did not restart with an empty storage)
+		node.tell(new ClientReadRequest(KEY), client.getRef());
+		answer(replica20, 20, replica20.expectMsgClass(ReadRequest.class), null);
+		assertEquals("value", client.expectMsgClass(ClientReadResponse.class).getValue());
+	}
+
+	@Test
+	public void writeForwardedToAdmittedNode() {
+		final ActorRef node = coordinator(new ReadOptions(false, false, false));
+		final JavaTestKit joiner = new JavaTestKit(system);
+		joiner.new IgnoreMsg() {
+			@Override
+			protected boolean ignore(Object message) {
+				return !(message instanceof StreamChunkMessage || message instanceof RebalanceDataMessage);
+			}
+		};
+		final int joinerId = 1 << 30;
+		final MembershipDelta join = new MembershipDelta(0, MembershipDelta.Type.JOIN, joinerId, joiner.getRef(), DEFAULT_NODE_WEIGHT, DEFAULT_NODE_ZONE);
+
+		// a key that the new node will replicate
+		final Ring future = new Ring(REPLICATION, joinerId);
+		future.addNode(10, node, DEFAULT_NODE_WEIGHT, DEFAULT_NODE_ZONE);
+		future.addNode(20, replica20.getRef(), DEFAULT_NODE_WEIGHT, DEFAULT_NODE_ZONE);
+		future.addNode(30, replica30.getRef(), DEFAULT_NODE_WEIGHT, "remote");
+		future.addNode(joinerId, joiner.getRef(), DEFAULT_NODE_WEIGHT, DEFAULT_NODE_ZONE);
+		final int key = IntStream.range(0, 1000)
+			.filter(k -> future.responsibleForKey(k).contains(joinerId))
+			.findFirst().getAsInt();
+		node.tell(new WriteRequest(20, 1, key, new VersionedItem("old", 1)), replica20.getRef());
+
+		// the new node is admitted and streams its ranges
+		node.tell(new ScaleOutAdmittedMessage(20, Collections.singletonList(join)), replica20.getRef());
+		node.tell(new StreamRequestMessage(joinerId, 1, future.rangesOf(joinerId), STREAM_WINDOW_CHUNKS), joiner.getRef());
+		final StreamChunkMessage chunk = joiner.expectMsgClass(StreamChunkMessage.class);
+		assertTrue(chunk.isLast());
+		assertEquals("old", Segment.decode(chunk.getSegment()).get(key).getValue());
+		joiner.reply(new StreamAckMessage(joinerId, 1, chunk.getSequence()));
+
+		// a write lands before the join is announced: it reaches the new node too
+		node.tell(new WriteRequest(20, 2, key, new VersionedItem("new", 2)), replica20.getRef());
+		assertEquals("new", joiner.expectMsgClass(RebalanceDataMessage.class).getRecords().get(key).getValue());
+
+		// once the join is announced, the coordinators send the writes to the new node
+		node.tell(new MembershipDeltaMessage(20, Collections.singletonList(
+			new MembershipDelta(4, MembershipDelta.Type.JOIN, joinerId, joiner.getRef(), DEFAULT_NODE_WEIGHT, DEFAULT_NODE_ZONE)
+		)), replica20.getRef());
+		node.tell(new WriteRequest(20, 3, key, new VersionedItem("newer", 3)), replica20.getRef());
+		joiner.expectNoMsg(joiner.duration("200 millis"));
+	}
+
+	@Test
+	public void hedgedRead() {
+		final ActorRef node = coordinator(new ReadOptions(true, false, false));
+		final JavaTestKit client = new JavaTestKit(system);
+
+		// only the replica in my zone is contacted, the remote one when the answer is late
+		node.tell(new ClientReadRequest(KEY), client.getRef());
+		replica20.expectMsgClass(ReadRequest.class);
+		replica30.expectNoMsg(replica30.duration("20 millis"));
+		final ReadRequest hedge = replica30.expectMsgClass(replica30.duration("1 second"), ReadRequest.class);
+		answer(replica30, 30, hedge, new VersionedItem("value", 1));
+
+		assertEquals("value", client.expectMsgClass(ClientReadResponse.class).getValue());
+	}
+
+	@Test
+	public void failFastWhenReplicasSuspected() {
+		final ActorRef node = coordinator(new ReadOptions(false, false, false));
+		final JavaTestKit client = new JavaTestKit(system);
+
+		// the replicas never answer: the read times out and they are suspected
+		// (the suspicion may follow the timeout of the read by a few milliseconds)
+		node.tell(new ClientReadRequest(KEY), client.getRef());
+		replica20.expectMsgClass(ReadRequest.class);
+		replica30.expectMsgClass(ReadRequest.class);
+		client.expectMsgClass(client.duration("5 seconds"), ClientOperationErrorResponse.class);
+		client.expectNoMsg(client.duration("100 millis"));
+
+		// the next read fails immediately, without contacting them
+		node.tell(new ClientReadRequest(KEY), client.getRef());
+		final ClientOperationErrorResponse error = client.expectMsgClass(client.duration("200 millis"), ClientOperationErrorResponse.class);
+		assertTrue(error.getMessage().contains("insufficient replicas"));
+		replica20.expectNoMsg(replica20.duration("200 millis"));
+		replica30.expectNoMsg(replica30.duration("200 millis"));
+	}
+
+	@Test
+	public void lateReplicaNotSuspected() {
+		final ActorRef node = coordinator(new ReadOptions(false, false, false));
+		final JavaTestKit client = new JavaTestKit(system);
+
+		// fast answers bring the adaptive timeout to its minimum
+		for (int i = 0; i < QuorumTimeouts.MIN_SAMPLES; i++) {
+			node.tell(new ClientReadRequest(KEY), client.getRef());
+			answer(replica20, 20, replica20.expectMsgClass(ReadRequest.class), null);
+			answer(replica30, 30, replica30.expectMsgClass(ReadRequest.class), null);
+			client.expectMsgClass(ClientReadResponse.class);
+		}
+
+		// a replica answers after the adaptive timeout of a read
+		node.tell(new ClientReadRequest(KEY), client.getRef());
+		answer(replica20, 20, replica20.expectMsgClass(ReadRequest.class), null);
+		final ReadRequest late = replica30.expectMsgClass(ReadRequest.class);
+		client.expectMsgClass(ClientReadResponse.class);
+		client.expectNoMsg(client.duration("300 millis"));
+
+		// it is still contacted by the next reads
+		node.tell(new ClientReadRequest(KEY), client.getRef());
+		replica20.expectMsgClass(ReadRequest.class);
+		replica30.expectMsgClass(ReadRequest.class);
+		answer(replica30, 30, late, null);
+	}
+}
@@ -0,0 +1,166 @@
+package it.unitn.ds1.node;
+
+import it.unitn.ds1.messages.internal.StreamChunkMessage;
+import it.unitn.ds1.storage.Segment;
+import it.unitn.ds1.storage.VersionedItem;
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import static org.junit.Assert.*;
+
+/**
+ * Test for @{@link OutgoingStream} and @{@link IncomingStream}.
+ */
+public final class OutgoingStreamTest {
+
+	// no rate limit
+	private static final double FAST = Double.MAX_VALUE;
+
+	private static RecordCache cache(int keys) {
+		final RecordCache cache = new RecordCache();
+		for (int key = 0; key < keys; key++) {
+			cache.put(key, new VersionedItem("value" + key, 1));
+		}
+		return cache;
+	}
+
+	private static Set<Integer> keysIn(RecordCache cache, List<TokenRange> ranges) {
+		final Set<Integer> keys = new HashSet<>();
+		ranges.forEach(range -> keys.addAll(cache.keysIn(range)));
+		return keys;
+	}
+
+	@Test
+	public void onlyRequestedRanges() {
+		final RecordCache cache = cache(1000);
+		final List<TokenRange> ranges = Arrays.asList(
+			new TokenRange(0, 1 << 30),
+			new TokenRange(Integer.MAX_VALUE - (1 << 28), Integer.MIN_VALUE + (1 << 28)));
+		final OutgoingStream stream = new OutgoingStream(1, null, 1, ranges, 1000);
+
+		final Map<Integer, VersionedItem> received = new HashMap<>();
+		StreamChunkMessage chunk;
+		do {
+			chunk = stream.nextChunk(0, cache, 200, 0, FAST);
+			received.putAll(Segment.decode(chunk.getSegment()));
+		} while (!chunk.isLast());
+
+		assertTrue(stream.isCompleted());
+		assertEquals(keysIn(cache, ranges), received.keySet());
+		assertTrue(received.size() < cache.size());
+	}
+
+	@Test
+	public void boundedChunks() {
+		final RecordCache cache = cache(1000);
+		final OutgoingStream stream = new OutgoingStream(1, null, 1, Collections.singletonList(new TokenRange(0, 0)), 1000);
+
+		int chunks = 0;
+		int records = 0;
+		StreamChunkMessage chunk;
+		do {
+			chunk = stream.nextChunk(0, cache, 500, 0, FAST);
+			assertEquals(chunks, chunk.getSequence());
+			// each record is about 24 bytes, the chunk may exceed the limit by one position
+			final int size = Segment.decode(chunk.getSegment()).size();
+			assertTrue(size <= 500 / 16 + 1);
+			records += size;
+			chunks++;
+		} while (!chunk.isLast());
+
+		assertEquals(1000, records);
+		assertTrue(chunks > 1);
+	}
+
+	@Test
+	public void credits() {
+		final RecordCache cache = cache(1000);
+		final OutgoingStream stream = new OutgoingStream(1, null, 1, Collections.singletonList(new TokenRange(0, 0)), 2);
+		stream.nextChunk(0, cache, 100, 0, FAST);
+		assertTrue(stream.canSend());
+		stream.nextChunk(0, cache, 100, 0, FAST);
+		assertFalse(stream.canSend());
+		stream.acknowledge();
+		assertTrue(stream.canSend());
+	}
+
+	@Test
+	public void acknowledged() {
+		final RecordCache cache = cache(10);
+		final OutgoingStream stream = new OutgoingStream(1, null, 1, Collections.singletonList(new TokenRange(0, 0)), 2);
+		stream.nextChunk(0, cache, 100, 0, FAST);
+		stream.nextChunk(0, cache, 1000, 0, FAST);
+		assertTrue(stream.isCompleted());
+		assertFalse(stream.isAcknowledged());
+		stream.acknowledge();
+		assertFalse(stream.isAcknowledged());
+		stream.acknowledge();
+		assertTrue(stream.isAcknowledged());
+	}
+
+	@Test
+	public void rateLimit() {
+		final RecordCache cache = cache(1000);
+		final OutgoingStream stream = new OutgoingStream(1, null, 1, Collections.singletonList(new TokenRange(0, 0)), 10);
+		assertEquals(0, stream.delay(0));
+
+		// 1 byte per nanosecond: the next chunk waits for the size of this one
+		final StreamChunkMessage chunk = stream.nextChunk(0, cache, 1000, 0, 1);
+		assertEquals(chunk.getSegment().length, stream.delay(0));
+		final long delay = stream.delay(0);
+		assertEquals(0, stream.delay(delay));
+	}
+
+	@Test
+	public void resume() {
+		final RecordCache cache = cache(1000);
+		final List<TokenRange> ranges = Arrays.asList(new TokenRange(0, 1 << 30), new TokenRange(-(1 << 30), -1));
+		final OutgoingStream first = new OutgoingStream(1, null, 1, ranges, 1000);
+		final IncomingStream incoming = new IncomingStream(0, 1, ranges, 0);
+
+		// receive some chunks, then the stream is interrupted
+		final Map<Integer, VersionedItem> received = new HashMap<>();
+		for (int i = 0; i < 3; i++) {
+			final StreamChunkMessage chunk = first.nextChunk(0, cache, 200, 0, FAST);
+			assertTrue(incoming.advance(chunk, 1));
+			received.putAll(Segment.decode(chunk.getSegment()));
+		}
+		assertFalse(incoming.isCompleted());
+
+		// resume with the remaining ranges only
+		final List<TokenRange> remaining = incoming.remainingRanges();
+		assertTrue(remaining.size() <= ranges.size());
+		final OutgoingStream second = new OutgoingStream(1, null, 2, remaining, 1000);
+		final IncomingStream resumed = new IncomingStream(0, 2, remaining, 2);
+		StreamChunkMessage chunk;
+		do {
+			chunk = second.nextChunk(0, cache, 200, 0, FAST);
+			assertTrue(resumed.advance(chunk, 3));
+			for (Integer key : Segment.decode(chunk.getSegment()).keySet()) {
+				assertFalse("key " + key + " sent twice", received.containsKey(key));
+			}
+			received.putAll(Segment.decode(chunk.getSegment()));
+		} while (!chunk.isLast());
+
+		assertTrue(resumed.isCompleted());
+		assertEquals(keysIn(cache, ranges), received.keySet());
+	}
+
+	@Test
+	public void ignoreChunksOfOtherStreams() {
+		final RecordCache cache = cache(10);
+		final List<TokenRange> ranges = Collections.singletonList(new TokenRange(0, 0));
+		final IncomingStream incoming = new IncomingStream(0, 2, ranges, 0);
+		final StreamChunkMessage old = new OutgoingStream(1, null, 1, ranges, 1).nextChunk(0, cache, 1000, 0, FAST);
+		assertFalse(incoming.advance(old, 1));
+		assertEquals(0, incoming.getLastActivity());
+		assertEquals(ranges, incoming.remainingRanges());
+	}
+}
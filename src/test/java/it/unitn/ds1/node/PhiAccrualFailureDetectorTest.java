@@ -0,0 +1,66 @@
+package it.unitn.ds1.node;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+/**
+ * Test for @{@link PhiAccrualFailureDetector}.
+ */
+public final class PhiAccrualFailureDetectorTest {
+
+	@Test
+	public void notMonitored() {
+		final PhiAccrualFailureDetector detector = new PhiAccrualFailureDetector(1000, 100);
+		assertFalse(detector.isMonitoring(1));
+		assertEquals(0, detector.phi(1, 1000), 0);
+	}
+
+	@Test
+	public void regularHeartbeats() {
+		final PhiAccrualFailureDetector detector = new PhiAccrualFailureDetector(1000, 100);
+		for (long time = 0; time <= 10_000; time += 1000) {
+			detector.heartbeat(1, time);
+		}
+		assertTrue(detector.phi(1, 10_500) < 1);
+		assertTrue(detector.phi(1, 11_000) < 1);
+		assertTrue(detector.phi(1, 20_000) > 8);
+	}
+
+	@Test
+	public void phiGrowsWithSilence() {
+		final PhiAccrualFailureDetector detector = new PhiAccrualFailureDetector(1000, 100);
+		for (long time = 0; time <= 10_000; time += 1000) {
+			detector.heartbeat(1, time);
+		}
+		double previous = 0;
+		for (long time = 10_000; time <= 20_000; time += 250) {
+			final double phi = detector.phi(1, time);
+			assertTrue(phi >= previous);
+			previous = phi;
+		}
+	}
+
+	@Test
+	public void adaptsToJitter() {
+		final PhiAccrualFailureDetector regular = new PhiAccrualFailureDetector(1000, 10);
+		final PhiAccrualFailureDetector jittery = new PhiAccrualFailureDetector(1000, 10);
+		long time = 0;
+		for (int i = 0; i < 50; i++) {
+			regular.heartbeat(1, i * 1000);
+			time += i % 2 == 0 ? 500 : 1500;
+			jittery.heartbeat(1, time);
+		}
+		// the same silence is much more suspicious when the heartbeats are regular
+		assertTrue(regular.phi(1, 49_000 + 2500) > jittery.phi(1, time + 2500));
+	}
+
+	@Test
+	public void remove() {
+		final PhiAccrualFailureDetector detector = new PhiAccrualFailureDetector(1000, 100);
+		detector.heartbeat(1, 0);
+		assertTrue(detector.isMonitoring(1));
+		detector.remove(1);
+		assertFalse(detector.isMonitoring(1));
+	}
+}
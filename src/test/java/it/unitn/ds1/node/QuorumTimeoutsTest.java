@@ -0,0 +1,87 @@
+package it.unitn.ds1.node;
+
+import org.junit.Test;
+
+import java.util.concurrent.TimeUnit;
+
+import static it.unitn.ds1.node.QuorumTimeouts.Operation.READ;
+import static it.unitn.ds1.node.QuorumTimeouts.Operation.WRITE;
+import static org.junit.Assert.*;
+
+/**
+ * Test for @{@link QuorumTimeouts}.
+ */
+public final class QuorumTimeoutsTest {
+
+	private static final long MS = TimeUnit.MILLISECONDS.toNanos(1);
+
+	private long now = 0;
+	private int requestId = 0;
+
+	private QuorumTimeouts timeouts() {
+		return new QuorumTimeouts(0.999, 4, 20, 5000, 3000, () -> now);
+	}
+
+	private void complete(QuorumTimeouts timeouts, QuorumTimeouts.Operation operation, long nanos) {
+		requestId++;
+		timeouts.start(requestId, operation);
+		now += nanos;
+		timeouts.complete(requestId);
+	}
+
+	@Test
+	public void fallbackUntilEnoughSamples() {
+		final QuorumTimeouts timeouts = timeouts();
+		for (int i = 0; i < QuorumTimeouts.MIN_SAMPLES - 1; i++) {
+			complete(timeouts, READ, 10 * MS);
+		}
+		assertEquals(3000, timeouts.timeout(READ));
+		complete(timeouts, READ, 10 * MS);
+		assertEquals(40, timeouts.timeout(READ));
+	}
+
+	@Test
+	public void operationsAreIndependent() {
+		final QuorumTimeouts timeouts = timeouts();
+		for (int i = 0; i < QuorumTimeouts.MIN_SAMPLES; i++) {
+			complete(timeouts, READ, 10 * MS);
+			complete(timeouts, WRITE, 100 * MS);
+		}
+		assertEquals(40, timeouts.timeout(READ));
+		assertEquals(400, timeouts.timeout(WRITE));
+	}
+
+	@Test
+	public void bounds() {
+		final QuorumTimeouts timeouts = timeouts();
+		for (int i = 0; i < QuorumTimeouts.MIN_SAMPLES; i++) {
+			complete(timeouts, READ, MS / 10);
+			complete(timeouts, WRITE, 10000 * MS);
+		}
+		assertEquals(20, timeouts.timeout(READ));
+		assertEquals(5000, timeouts.timeout(WRITE));
+	}
+
+	@Test
+	public void timeoutsRaiseTheTimeout() {
+		final QuorumTimeouts timeouts = timeouts();
+		for (int i = 0; i < QuorumTimeouts.WINDOW_SIZE; i++) {
+			complete(timeouts, READ, 10 * MS);
+		}
+		assertEquals(40, timeouts.timeout(READ));
+
+		// a load spike: two requests time out, the next ones wait longer
+		for (int i = 0; i < 2; i++) {
+			requestId++;
+			final long timeout = timeouts.start(requestId, READ);
+			now += timeout * MS;
+			timeouts.expire(requestId);
+		}
+		assertEquals(160, timeouts.timeout(READ));
+
+		// completing or expiring twice has no effect
+		timeouts.complete(requestId);
+		timeouts.expire(requestId);
+		assertEquals(160, timeouts.timeout(READ));
+	}
+}
@@ -5,6 +5,10 @@ import it.unitn.ds1.node.status.ReadRequestStatus;
 import it.unitn.ds1.storage.VersionedItem;
 import org.junit.Test;
 
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+
 import static org.junit.Assert.*;
 
 /**
@@ -71,4 +75,130 @@ public final class ReadRequestStatusTest {
 		assertEquals("hello", s.getLatestValue());
 	}
 
+	@Test
+	public void staleNodes() {
+		final ReadRequestStatus s = new ReadRequestStatus(3, ActorRef.noSender(), 2);
+		s.addVote(10, new VersionedItem("hello", 2));
+		s.addVote(20, new VersionedItem("ciao", 1));
+		s.addVote(30, null);
+		assertEquals(new HashSet<>(Arrays.asList(20, 30)), s.getStaleNodes());
+		assertEquals(2, s.getLatestItem().getVersion());
+	}
+
+	@Test
+	public void lateNewerVote() {
+		final ReadRequestStatus s = new ReadRequestStatus(3, ActorRef.noSender(), 2);
+		s.addVote(10, new VersionedItem("hello", 2));
+		s.addVote(20, new VersionedItem("hello", 2));
+		assertTrue(s.getStaleNodes().isEmpty());
+
+		// a late replica has a newer version: the others become stale
+		s.addVote(30, new VersionedItem("world", 3));
+		assertEquals(new HashSet<>(Arrays.asList(10, 20)), s.getStaleNodes());
+	}
+
+	@Test
+	public void markRepaired() {
+		final ReadRequestStatus s = new ReadRequestStatus(3, ActorRef.noSender(), 2);
+		s.addVote(10, new VersionedItem("hello", 2));
+		s.addVote(20, null);
+		s.markRepaired(20, s.getLatestItem());
+		assertTrue(s.getStaleNodes().isEmpty());
+		assertEquals(2, s.getVotesCount());
+	}
+
+	@Test
+	public void noStaleNodesWhenKeyMissing() {
+		final ReadRequestStatus s = new ReadRequestStatus(3, ActorRef.noSender(), 2);
+		s.addVote(10, null);
+		s.addVote(20, null);
+		assertTrue(s.getStaleNodes().isEmpty());
+	}
+
+	@Test
+	public void digestsMatchingTheValue() {
+		final ReadRequestStatus s = new ReadRequestStatus(3, ActorRef.noSender(), 2);
+		s.addVote(10, new VersionedItem("hello", 2));
+		s.addDigest(20, new VersionedItem(null, 2));
+		assertTrue(s.isQuorumReached());
+		assertTrue(s.isResolved());
+		assertEquals("hello", s.getLatestValue());
+		assertTrue(s.getStaleNodes().isEmpty());
+	}
+
+	@Test
+	public void digestMoreRecentThanTheValue() {
+		final ReadRequestStatus s = new ReadRequestStatus(3, ActorRef.noSender(), 2);
+		s.addVote(10, new VersionedItem("hello", 2));
+		s.addDigest(20, new VersionedItem(null, 3));
+		s.addDigest(20, new VersionedItem(null, 3));
+		assertEquals(2, s.getVotesCount());
+		assertTrue(s.isQuorumReached());
+		assertFalse(s.isResolved());
+		assertEquals(3, s.getLatestVersion());
+
+		// the value is fetched only once from the node that has it
+		assertEquals(Integer.valueOf(20), s.nextFetch());
+		assertNull(s.nextFetch());
+
+		// the value does not count as a new vote
+		s.addVote(20, new VersionedItem("world", 3));
+		assertEquals(2, s.getVotesCount());
+		assertTrue(s.isResolved());
+		assertEquals("world", s.getLatestValue());
+		assertEquals(new HashSet<>(Collections.singletonList(10)), s.getStaleNodes());
+	}
+
+	@Test
+	public void onlyDigests() {
+		final ReadRequestStatus s = new ReadRequestStatus(3, ActorRef.noSender(), 2);
+		s.addDigest(10, null);
+		s.addDigest(20, null);
+		assertTrue(s.isResolved());
+		assertNull(s.getLatestValue());
+
+		final ReadRequestStatus t = new ReadRequestStatus(3, ActorRef.noSender(), 2);
+		t.addDigest(10, null);
+		t.addDigest(20, new VersionedItem(null, 1));
+		assertFalse(t.isResolved());
+		assertEquals(Integer.valueOf(20), t.nextFetch());
+	}
+
+	@Test
+	public void notModified() {
+		final ReadRequestStatus s = new ReadRequestStatus(3, ActorRef.noSender(), 2, 5);
+		s.addDigest(10, new VersionedItem(null, 5));
+		s.addDigest(20, new VersionedItem(null, 4));
+		assertEquals(5, s.getKnownVersion());
+		assertTrue(s.isQuorumReached());
+		assertTrue(s.isNotModified());
+	}
+
+	@Test
+	public void modifiedSinceKnownVersion() {
+		final ReadRequestStatus s = new ReadRequestStatus(3, ActorRef.noSender(), 2, 5);
+		s.addDigest(10, new VersionedItem(null, 5));
+		s.addVote(20, new VersionedItem("world", 6));
+		assertFalse(s.isNotModified());
+		assertTrue(s.isResolved());
+		assertEquals("world", s.getLatestValue());
+
+		// no known version: never not modified
+		final ReadRequestStatus t = new ReadRequestStatus(3, ActorRef.noSender(), 1);
+		t.addDigest(10, null);
+		assertFalse(t.isNotModified());
+	}
+
+	@Test
+	public void attachedReads() {
+		final ReadRequestStatus s = new ReadRequestStatus(3, ActorRef.noSender(), 1);
+		assertEquals(Collections.singletonList(ActorRef.noSender()), s.getSenders());
+		s.attach(null);
+		s.attach(null);
+		assertEquals(3, s.getSenders().size());
+		assertEquals(ActorRef.noSender(), s.getSender());
+
+		// attached reads do not count as votes
+		assertFalse(s.isQuorumReached());
+	}
 }
@@ -0,0 +1,95 @@
+package it.unitn.ds1.node;
+
+import com.google.common.collect.Sets;
+import it.unitn.ds1.storage.VersionedItem;
+import org.junit.Test;
+
+import java.util.HashSet;
+
+import static org.junit.Assert.*;
+
+/**
+ * Tests for @{@link RecordCache}.
+ */
+public final class RecordCacheTest {
+
+	@Test
+	public void mergeKeepsLatestVersion() {
+		final RecordCache cache = new RecordCache();
+		cache.merge(1, new VersionedItem("new", 3));
+		cache.merge(1, new VersionedItem("old", 2));
+		assertEquals("new", cache.get(1).getValue());
+		cache.merge(1, new VersionedItem("newer", 4));
+		assertEquals("newer", cache.get(1).getValue());
+	}
+
+	@Test
+	public void keysInRange() {
+		final RecordCache cache = new RecordCache();
+		for (int key = 0; key < 100; key++) {
+			cache.put(key, new VersionedItem("v" + key, 1));
+		}
+
+		final TokenRange range = new TokenRange(HashUtil.hash(10), HashUtil.hash(20));
+		final HashSet<Integer> expected = new HashSet<>();
+		for (int key = 0; key < 100; key++) {
+			if (range.contains(HashUtil.hash(key))) expected.add(key);
+		}
+		assertEquals(expected, new HashSet<>(cache.keysIn(range)));
+		assertTrue(expected.contains(20));
+		assertFalse(expected.contains(10));
+	}
+
+	@Test
+	public void wholeRing() {
+		final RecordCache cache = new RecordCache();
+		cache.put(1, new VersionedItem("a", 1));
+		cache.put(2, new VersionedItem("b", 1));
+		assertEquals(Sets.newHashSet(1, 2), new HashSet<>(cache.keysIn(new TokenRange(5, 5))));
+	}
+
+	@Test
+	public void removeUpdatesIndex() {
+		final RecordCache cache = new RecordCache();
+		cache.put(1, new VersionedItem("a", 1));
+		cache.remove(1);
+		assertNull(cache.get(1));
+		assertTrue(cache.keysIn(new TokenRange(5, 5)).isEmpty());
+		assertEquals(0, cache.size());
+	}
+
+	@Test
+	public void changedSince() throws InterruptedException {
+		final RecordCache cache = new RecordCache();
+		cache.put(1, new VersionedItem("a", 1));
+		cache.put(2, new VersionedItem("b", 1));
+		Thread.sleep(5);
+		final long since = System.currentTimeMillis();
+		cache.put(2, new VersionedItem("c", 2));
+		cache.put(3, new VersionedItem("d", 1));
+
+		final TokenRange ring = new TokenRange(5, 5);
+		assertEquals(Sets.newHashSet(2, 3), cache.changedSince(ring, since).keySet());
+		assertEquals("c", cache.changedSince(ring, since).get(2).getValue());
+		assertEquals(Sets.newHashSet(1, 2, 3), cache.changedSince(ring, 0).keySet());
+
+		// removed keys are not returned, keys outside the range neither
+		cache.remove(3);
+		assertEquals(Sets.newHashSet(2), cache.changedSince(ring, since).keySet());
+		final int hashedKey = HashUtil.hash(2);
+		assertFalse(cache.changedSince(new TokenRange(hashedKey, hashedKey - 1), 0).containsKey(2));
+	}
+
+	@Test
+	public void digestsFollowChanges() {
+		final RecordCache cache = new RecordCache();
+		final int bucket = MerkleTree.bucketOf(HashUtil.hash(1));
+		cache.put(1, new VersionedItem("a", 1));
+		final long digest = cache.bucketDigest(bucket);
+		assertNotEquals(0, digest);
+		cache.put(1, new VersionedItem("b", 2));
+		assertNotEquals(digest, cache.bucketDigest(bucket));
+		cache.remove(1);
+		assertEquals(0, cache.bucketDigest(bucket));
+	}
+}
@@ -0,0 +1,49 @@
+package it.unitn.ds1.node;
+
+import com.google.common.collect.Sets;
+import it.unitn.ds1.storage.VersionedItem;
+import org.junit.Test;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.concurrent.ForkJoinPool;
+
+import static org.junit.Assert.assertEquals;
+
+/**
+ * Tests for @{@link Repartitioner}.
+ */
+public final class RepartitionerTest {
+
+	@Test
+	public void groupsByTarget() throws Exception {
+		final Map<Integer, VersionedItem> records = new HashMap<>();
+		for (int key = 0; key < 10000; key++) {
+			records.put(key, new VersionedItem("v" + key, 1));
+		}
+
+		// even keys go to nodes 1 and 2, odd keys to node 3; keep only the keys multiple of 3
+		final Repartitioner.Plan plan = new Repartitioner(ForkJoinPool.commonPool()).plan(records,
+			key -> key % 2 == 0 ? Sets.newHashSet(1, 2) : Collections.singleton(3),
+			key -> key % 3 == 0
+		).get();
+
+		assertEquals(Sets.newHashSet(1, 2, 3), plan.getBatches().keySet());
+		assertEquals(5000, plan.getBatches().get(1).size());
+		assertEquals(5000, plan.getBatches().get(2).size());
+		assertEquals(5000, plan.getBatches().get(3).size());
+		assertEquals("v42", plan.getBatches().get(1).get(42).getValue());
+		assertEquals("v43", plan.getBatches().get(3).get(43).getValue());
+		assertEquals(10000 - 3334, new HashSet<>(plan.getRemoved()).size());
+	}
+
+	@Test
+	public void emptyRecords() throws Exception {
+		final Repartitioner.Plan plan = new Repartitioner(ForkJoinPool.commonPool())
+			.plan(new HashMap<>(), key -> Collections.singleton(1), key -> true).get();
+		assertEquals(0, plan.getBatches().size());
+		assertEquals(0, plan.getRemoved().size());
+	}
+}
@@ -0,0 +1,104 @@
+package it.unitn.ds1.node;
+
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.*;
+
+/**
+ * Test for @{@link ReplicaScores}.
+ */
+public final class ReplicaScoresTest {
+
+	private static final long MS = TimeUnit.MILLISECONDS.toNanos(1);
+
+	private long now = 1;
+
+	private ReplicaScores scores() {
+		return new ReplicaScores(0.5, 1000 * MS, 10 * MS, () -> now);
+	}
+
+	@Test
+	public void movingAverage() {
+		final ReplicaScores scores = scores();
+		assertEquals(0, scores.score(1), 0);
+
+		scores.sent(1);
+		scores.answered(1, 10 * MS);
+		assertEquals(10 * MS, scores.score(1), 1);
+
+		scores.sent(1);
+		scores.answered(1, 30 * MS);
+		assertEquals(20 * MS, scores.score(1), 1);
+	}
+
+	@Test
+	public void outstandingRequests() {
+		final ReplicaScores scores = scores();
+		scores.sent(1);
+		scores.answered(1, 10 * MS);
+
+		scores.sent(1);
+		scores.sent(1);
+		assertEquals(30 * MS, scores.score(1), 1);
+
+		scores.abandoned(1);
+		assertEquals(20 * MS, scores.score(1), 1);
+
+		// a node that never answered is worse than a fast idle one
+		scores.sent(2);
+		scores.answered(3, 5 * MS);
+		assertTrue(scores.score(2) > 0);
+	}
+
+	@Test
+	public void idleNodesDecay() {
+		final ReplicaScores scores = scores();
+		scores.answered(1, 100 * MS);
+		now += 1000 * MS;
+		assertEquals(50 * MS, scores.score(1), 1);
+		now += 1000 * MS;
+		assertEquals(25 * MS, scores.score(1), 1);
+	}
+
+	@Test
+	public void rank() {
+		final ReplicaScores scores = scores();
+		scores.answered(1, 50 * MS);
+		scores.answered(2, 10 * MS);
+		scores.answered(3, 20 * MS);
+		assertEquals(Arrays.asList(4, 2, 3, 1), scores.rank(Arrays.asList(1, 2, 3, 4)));
+
+		// node 2 slows down: a few slow answers are enough to demote it
+		for (int i = 0; i < 3; i++) {
+			scores.answered(2, 200 * MS);
+		}
+		assertEquals(Arrays.asList(3, 1, 2), scores.rank(Arrays.asList(1, 2, 3)));
+
+		scores.remove(2);
+		assertEquals(0, scores.score(2), 0);
+	}
+
+	@Test
+	public void sameZonePreferred() {
+		final ReplicaScores scores = scores();
+		final Set<Integer> remote = new HashSet<>(Arrays.asList(1, 2));
+
+		// no response time known: the replica in my zone comes first
+		assertEquals(Arrays.asList(3, 1, 2), scores.rank(Arrays.asList(1, 2, 3), remote::contains));
+
+		// a replica in my zone that is a bit slower is still preferred
+		scores.answered(1, 5 * MS);
+		scores.answered(3, 12 * MS);
+		assertEquals(Arrays.asList(3, 1), scores.rank(Arrays.asList(1, 3), remote::contains));
+		assertEquals(Arrays.asList(1, 3), scores.rank(Arrays.asList(1, 3)));
+
+		// ...unless it is slower than the remote one by more than the penalty
+		scores.answered(3, 40 * MS);
+		assertEquals(Arrays.asList(1, 3), scores.rank(Arrays.asList(1, 3), remote::contains));
+	}
+}
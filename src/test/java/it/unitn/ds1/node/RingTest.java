@@ -4,9 +4,16 @@ import akka.actor.ActorRef;
 import com.google.common.collect.Sets;
 import org.junit.Test;
 
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
 import java.util.Set;
 
+import static it.unitn.ds1.SystemConstants.DEFAULT_NODE_ZONE;
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
 
 /**
  * Tests for @{@link Ring}.
@@ -98,4 +105,156 @@ public final class RingTest {
 		assertEquals(Sets.newHashSet(20), actual);
 	}
 
+	@Test
+	public void tokensArePrefixStable() {
+		final List<Integer> light = Ring.tokensOf(42, 3);
+		final List<Integer> heavy = Ring.tokensOf(42, 5);
+		assertEquals(3, light.size());
+		assertEquals(42, (int) light.get(0));
+		assertEquals(light, heavy.subList(0, 3));
+	}
+
+	@Test
+	public void weightScalesShareOfKeys() {
+		final Ring ring = new Ring(1, 1);
+		ring.addNode(Integer.MIN_VALUE / 2, ActorRef.noSender(), 8, DEFAULT_NODE_ZONE);
+		ring.addNode(Integer.MAX_VALUE / 2, ActorRef.noSender(), 32, DEFAULT_NODE_ZONE);
+
+		final Map<Integer, Integer> counts = new HashMap<>();
+		for (int key = 0; key < 20000; key++) {
+			counts.merge(ring.responsibleForKey(key).iterator().next(), 1, Integer::sum);
+		}
+		final int light = counts.getOrDefault(Integer.MIN_VALUE / 2, 0);
+		final int heavy = counts.getOrDefault(Integer.MAX_VALUE / 2, 0);
+		assertTrue("heavy=" + heavy + " light=" + light, heavy > 2 * light);
+	}
+
+	@Test
+	public void weightChangeMovesFewKeys() {
+		final Ring ring = createRing(new int[]{Integer.MIN_VALUE / 2, 0, Integer.MAX_VALUE / 2}, 1, 0);
+		for (int id : ring.getNodeIDs()) {
+			ring.addNode(id, ActorRef.noSender(), 8, DEFAULT_NODE_ZONE);
+		}
+		final Ring before = ring.copy();
+		ring.addNode(0, ActorRef.noSender(), 9, DEFAULT_NODE_ZONE);
+
+		int moved = 0;
+		for (int key = 0; key < 10000; key++) {
+			final Set<Integer> after = ring.responsibleForKey(key);
+			if (!after.equals(before.responsibleForKey(key))) {
+				assertEquals(Sets.newHashSet(0), after);
+				moved++;
+			}
+		}
+		assertTrue("moved=" + moved, moved < 2000);
+	}
+
+	@Test
+	public void replicasInDistinctZones() {
+		final Ring ring = new Ring(3, 10);
+		ring.addNode(10, ActorRef.noSender(), 1, "a");
+		ring.addNode(20, ActorRef.noSender(), 1, "a");
+		ring.addNode(30, ActorRef.noSender(), 1, "b");
+		ring.addNode(40, ActorRef.noSender(), 1, "b");
+		ring.addNode(50, ActorRef.noSender(), 1, "c");
+		for (int key = 0; key < 100; key++) {
+			final Set<Integer> replicas = ring.responsibleForKey(key);
+			assertEquals(3, replicas.size());
+			assertEquals(3, replicas.stream().map(ring::getZone).distinct().count());
+		}
+	}
+
+	@Test
+	public void sloppyReplicasAllHealthy() {
+		final Ring ring = createRing(new int[]{10, 20, 30, 40, 50}, 3, 10);
+		for (int key = 0; key < 100; key++) {
+			final Map<Integer, Integer> targets = ring.sloppyReplicasForKey(key, id -> true);
+			assertEquals(ring.responsibleForKey(key), targets.keySet());
+			targets.forEach((target, owner) -> assertEquals(target, owner));
+		}
+	}
+
+	@Test
+	public void sloppyReplicasSubstituteUnhealthy() {
+		final Ring ring = createRing(new int[]{10, 20, 30, 40, 50}, 3, 10);
+		for (int key = 0; key < 100; key++) {
+			final Set<Integer> replicas = ring.responsibleForKey(key);
+			final int down = replicas.iterator().next();
+			final Map<Integer, Integer> targets = ring.sloppyReplicasForKey(key, id -> id != down);
+
+			// still 3 targets, the unhealthy replica is replaced by a node that is not a replica
+			assertEquals(3, targets.size());
+			assertFalse(targets.containsKey(down));
+			assertEquals(replicas, Sets.newHashSet(targets.values()));
+			targets.forEach((target, owner) -> {
+				if (owner == down) assertFalse(replicas.contains(target));
+				else assertEquals(target, owner);
+			});
+		}
+	}
+
+	@Test
+	public void sloppyReplicasWithoutSubstitutes() {
+		final Ring ring = createRing(new int[]{10, 20, 30}, 3, 10);
+		final Map<Integer, Integer> targets = ring.sloppyReplicasForKey(7, id -> id != 20);
+		assertEquals(Sets.newHashSet(10, 20, 30), targets.keySet());
+	}
+
+	@Test
+	public void replicasFillWhenFewZones() {
+		final Ring ring = new Ring(3, 10);
+		ring.addNode(10, ActorRef.noSender(), 1, "a");
+		ring.addNode(20, ActorRef.noSender(), 1, "a");
+		ring.addNode(30, ActorRef.noSender(), 1, "a");
+		ring.addNode(40, ActorRef.noSender(), 1, "b");
+		for (int key = 0; key < 100; key++) {
+			final Set<Integer> replicas = ring.responsibleForKey(key);
+			assertEquals(3, replicas.size());
+			assertTrue(replicas.contains(40));
+		}
+	}
+
+	@Test
+	public void preferSameZone() {
+		final Ring ring = new Ring(3, 10);
+		ring.addNode(10, ActorRef.noSender(), 1, "a");
+		ring.addNode(20, ActorRef.noSender(), 1, "b");
+		ring.addNode(30, ActorRef.noSender(), 1, "c");
+		assertEquals(Arrays.asList(30, 10, 20), ring.preferZone(Sets.newLinkedHashSet(Arrays.asList(10, 20, 30)), "c"));
+	}
+
+	@Test
+	public void changedRangesOnJoin() {
+		final Ring before = createRing(new int[]{100, 200, 300, 400}, 2, 100);
+		final Ring after = before.copy();
+		after.addNode(250, ActorRef.noSender());
+
+		// the new node becomes a replica of the ranges (100, 200] and (200, 250]
+		final List<TokenRange> changed = after.changedRanges(before);
+		assertEquals(Arrays.asList(new TokenRange(100, 200), new TokenRange(200, 250)), changed);
+		for (int i = -1000; i < 1000; i++) {
+			final int position = i;
+			final boolean differs = !after.responsibleForPosition(position).equals(before.responsibleForPosition(position));
+			final boolean inChanged = changed.stream().anyMatch(range -> range.contains(position));
+			assertEquals("position " + position, differs, inChanged);
+		}
+	}
+
+	@Test
+	public void noChangedRangesForSameRing() {
+		final Ring ring = createRing(new int[]{100, 200, 300, 400}, 2, 100);
+		assertTrue(ring.changedRanges(ring.copy()).isEmpty());
+	}
+
+	@Test
+	public void tokenRangeWraps() {
+		final TokenRange range = new TokenRange(400, 100);
+		assertTrue(range.wraps());
+		assertTrue(range.contains(401));
+		assertTrue(range.contains(Integer.MIN_VALUE));
+		assertTrue(range.contains(100));
+		assertFalse(range.contains(400));
+		assertFalse(range.contains(101));
+	}
+
 }
@@ -0,0 +1,72 @@
+package it.unitn.ds1.node;
+
+import akka.actor.ActorRef;
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+/**
+ * Test for @{@link ScaleOutPlan}.
+ */
+public final class ScaleOutPlanTest {
+
+	@Test
+	public void empty() {
+		final ScaleOutPlan plan = new ScaleOutPlan();
+		assertTrue(plan.isEmpty());
+		assertTrue(plan.isCompleted());
+		assertTrue(plan.getJoins().isEmpty());
+	}
+
+	@Test
+	public void completesWhenAllNodesComplete() {
+		final ScaleOutPlan plan = new ScaleOutPlan();
+		plan.admit(10, ActorRef.noSender(), 1, "a", 3);
+		plan.admit(20, ActorRef.noSender(), 2, "b", 0);
+		assertEquals(Arrays.asList(10, 20), Arrays.asList(plan.getNodeIDs().toArray()));
+		assertEquals(3, plan.getKnownEpoch(10));
+		assertFalse(plan.isCompleted());
+
+		assertTrue(plan.complete(20));
+		assertFalse(plan.complete(20));
+		assertFalse(plan.complete(30));
+		assertEquals(Collections.singleton(10), plan.getPending());
+		assertFalse(plan.isCompleted());
+
+		assertTrue(plan.complete(10));
+		assertTrue(plan.isCompleted());
+	}
+
+	@Test
+	public void readmitRestartsNode() {
+		final ScaleOutPlan plan = new ScaleOutPlan();
+		plan.admit(10, ActorRef.noSender(), 1, "a", 0);
+		plan.complete(10);
+		plan.admit(10, ActorRef.noSender(), 1, "a", 5);
+		assertFalse(plan.isCompleted());
+		assertEquals(5, plan.getKnownEpoch(10));
+		assertEquals(1, plan.getJoins().size());
+	}
+
+	@Test
+	public void announce() {
+		final ScaleOutPlan plan = new ScaleOutPlan();
+		plan.admit(10, ActorRef.noSender(), 1, "a", 0);
+		plan.admit(20, ActorRef.noSender(), 2, "b", 0);
+		plan.getJoins().forEach(join -> assertEquals(0, join.getEpoch()));
+
+		final List<MembershipDelta> joins = plan.announce(7);
+		assertEquals(2, joins.size());
+		for (MembershipDelta join : joins) {
+			assertEquals(7, join.getEpoch());
+			assertEquals(MembershipDelta.Type.JOIN, join.getType());
+		}
+		assertEquals(20, joins.get(1).getNodeID());
+		assertEquals(2, joins.get(1).getWeight());
+		assertEquals("b", joins.get(1).getZone());
+	}
+}
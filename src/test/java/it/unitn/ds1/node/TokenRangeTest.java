@@ -0,0 +1,57 @@
+package it.unitn.ds1.node;
+
+import org.junit.Test;
+
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+/**
+ * Test for @{@link TokenRange}.
+ */
+public final class TokenRangeTest {
+
+	@Test
+	public void width() {
+		assertEquals(10, new TokenRange(0, 10).width());
+		assertEquals(1L << 32, new TokenRange(7, 7).width());
+		assertEquals(10, new TokenRange(Integer.MAX_VALUE - 4, Integer.MIN_VALUE + 5).width());
+	}
+
+	@Test
+	public void splitCoversRange() {
+		final TokenRange range = new TokenRange(Integer.MAX_VALUE - 100, Integer.MIN_VALUE + 200);
+		final List<TokenRange> parts = range.split(3);
+		assertEquals(3, parts.size());
+		assertEquals(range.getStart(), parts.get(0).getStart());
+		assertEquals(range.getEnd(), parts.get(2).getEnd());
+		for (int i = 1; i < parts.size(); i++) {
+			assertEquals(parts.get(i - 1).getEnd(), parts.get(i).getStart());
+		}
+		long width = 0;
+		for (TokenRange part : parts) {
+			assertTrue(part.width() >= 100 && part.width() <= 101);
+			width += part.width();
+		}
+		assertEquals(range.width(), width);
+	}
+
+	@Test
+	public void splitWholeRing() {
+		final List<TokenRange> parts = new TokenRange(0, 0).split(4);
+		assertEquals(4, parts.size());
+		for (TokenRange part : parts) {
+			assertEquals(1L << 30, part.width());
+		}
+		assertEquals(0, parts.get(3).getEnd());
+	}
+
+	@Test
+	public void splitSmallRange() {
+		final List<TokenRange> parts = new TokenRange(5, 7).split(3);
+		assertEquals(2, parts.size());
+		assertEquals(new TokenRange(5, 6), parts.get(0));
+		assertEquals(new TokenRange(6, 7), parts.get(1));
+		assertEquals(1, new TokenRange(5, 7).split(1).size());
+	}
+}
@@ -0,0 +1,91 @@
+package it.unitn.ds1.storage;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+
+import static org.junit.Assert.*;
+
+/**
+ * Test for @{@link HintStore}.
+ */
+public final class HintStoreTest {
+
+	private static final int NODE_ID = 10;
+
+	private static final String storageFileDirectory = "/tmp";
+	private static final String hintsFilePath = storageFileDirectory + "/nodeHints-" + NODE_ID + ".txt";
+
+	@Before
+	@After
+	public void removeHints() {
+		final File file = new File(hintsFilePath);
+		if (file.exists()) {
+			assertTrue(file.delete());
+		}
+	}
+
+	@Test
+	public void addAndGet() throws IOException {
+		final HintStore store = new HintStore(storageFileDirectory, NODE_ID);
+		store.add(20, 1, new VersionedItem("a", 1));
+		store.add(20, 2, new VersionedItem("b", 1));
+		store.add(30, 1, new VersionedItem("c", 1));
+
+		assertEquals(3, store.size());
+		assertEquals(2, store.get(20, 10).size());
+		assertEquals(1, store.get(20, 1).size());
+		assertTrue(store.get(40, 10).isEmpty());
+	}
+
+	@Test
+	public void keepMostRecent() throws IOException {
+		final HintStore store = new HintStore(storageFileDirectory, NODE_ID);
+		store.add(20, 1, new VersionedItem("new", 3));
+		store.add(20, 1, new VersionedItem("old", 2));
+		assertEquals("new", store.get(20, 10).get(1).getValue());
+	}
+
+	@Test
+	public void surviveRestart() throws IOException {
+		final HintStore store = new HintStore(storageFileDirectory, NODE_ID);
+		store.add(20, 1, new VersionedItem("a", 5));
+
+		final HintStore reloaded = new HintStore(storageFileDirectory, NODE_ID);
+		assertEquals(1, reloaded.size());
+		assertEquals(5, reloaded.get(20, 10).get(1).getVersion());
+		assertFalse(new File(hintsFilePath + ".tmp").exists());
+	}
+
+	@Test
+	public void removeDelivered() throws IOException {
+		final HintStore store = new HintStore(storageFileDirectory, NODE_ID);
+		store.add(20, 1, new VersionedItem("a", 1));
+		store.add(20, 2, new VersionedItem("b", 1));
+
+		// key 2 was updated after the delivery: keep it
+		store.add(20, 2, new VersionedItem("c", 2));
+		final Map<Integer, Long> delivered = new HashMap<>();
+		delivered.put(1, 1L);
+		delivered.put(2, 1L);
+		store.remove(20, delivered);
+
+		assertEquals(Collections.singleton(2), store.get(20, 10).keySet());
+		assertEquals(1, new HintStore(storageFileDirectory, NODE_ID).size());
+	}
+
+	@Test
+	public void removeAll() throws IOException {
+		final HintStore store = new HintStore(storageFileDirectory, NODE_ID);
+		store.add(20, 1, new VersionedItem("a", 1));
+		store.add(30, 1, new VersionedItem("a", 1));
+		assertEquals(1, store.removeAll(20).size());
+		assertEquals(Collections.singleton(30), store.owners());
+	}
+}
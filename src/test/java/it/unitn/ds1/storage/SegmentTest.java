@@ -0,0 +1,75 @@
+package it.unitn.ds1.storage;
+
+import it.unitn.ds1.storage.exceptions.ReadException;
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+
+import static org.junit.Assert.*;
+
+/**
+ * Test for @{@link Segment}.
+ */
+public final class SegmentTest {
+
+	private static Map<Integer, VersionedItem> records() {
+		final Map<Integer, VersionedItem> records = new HashMap<>();
+		records.put(1, new VersionedItem("one", 1));
+		records.put(-7, new VersionedItem("àèìòù €", 3));
+		records.put(Integer.MAX_VALUE, new VersionedItem("", Long.MAX_VALUE));
+		records.put(42, new VersionedItem(null, 2));
+		return records;
+	}
+
+	private static void assertSameRecords(Map<Integer, VersionedItem> expected, Map<Integer, VersionedItem> actual) {
+		assertEquals(expected.keySet(), actual.keySet());
+		expected.forEach((key, item) -> {
+			assertEquals(item.getValue(), actual.get(key).getValue());
+			assertEquals(item.getVersion(), actual.get(key).getVersion());
+		});
+	}
+
+	@Test
+	public void roundTrip() {
+		final Map<Integer, VersionedItem> records = records();
+		assertSameRecords(records, Segment.decode(Segment.encode(records)));
+	}
+
+	@Test
+	public void empty() {
+		assertTrue(Segment.decode(Segment.encode(Collections.emptyMap())).isEmpty());
+	}
+
+	@Test
+	public void corrupted() {
+		final byte[] segment = Segment.encode(records());
+		for (int i = 0; i < segment.length; i++) {
+			final byte[] corrupted = segment.clone();
+			corrupted[i] ^= 0x10;
+			try {
+				Segment.decode(corrupted);
+				fail("Corruption of byte " + i + " not detected");
+			} catch (ReadException e) {
+				// expected
+			}
+		}
+	}
+
+	@Test
+	public void recordSize() {
+		final Map<Integer, VersionedItem> records = records();
+		final int size = records.values().stream().mapToInt(item -> Segment.recordSize(item.getValue())).sum();
+
+		// header and trailer of the segment are 16 bytes
+		assertEquals(size + 16, Segment.encode(records).length);
+	}
+
+	@Test(expected = ReadException.class)
+	public void truncated() {
+		final byte[] segment = Segment.encode(records());
+		Segment.decode(Arrays.copyOf(segment, segment.length - 1));
+	}
+}
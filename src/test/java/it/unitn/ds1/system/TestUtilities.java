@@ -5,6 +5,7 @@ import akka.actor.ActorSystem;
 import akka.event.Logging;
 import akka.event.LoggingAdapter;
 import akka.testkit.JavaTestKit;
+import it.unitn.ds1.SystemConstants;
 import it.unitn.ds1.client.commands.Command;
 import it.unitn.ds1.client.commands.CommandResult;
 import it.unitn.ds1.messages.internal.JoinRequestMessage;
@@ -19,7 +20,7 @@ final class TestUtilities {
 			new AwaitCond(duration("500 millis"), duration("25 millis")) {
 				@Override
 				protected boolean cond() {
-					actor.tell(new JoinRequestMessage(0), getRef());
+					actor.tell(new JoinRequestMessage(0, SystemConstants.DEFAULT_NODE_WEIGHT, SystemConstants.DEFAULT_NODE_ZONE), getRef());
 					return msgAvailable();
 				}
 			};